@@ -31,7 +31,7 @@ import static network.balanced.score.core.balancedoracle.BalancedOracleConstants
 import static network.balanced.score.lib.utils.Check.*;
 import static network.balanced.score.lib.utils.Constants.EXA;
 import static network.balanced.score.lib.utils.Constants.MICRO_SECONDS_IN_A_DAY;
-import static network.balanced.score.lib.utils.Math.pow;
+import static network.balanced.score.lib.utils.Math.pow10;
 
 public class BalancedOracleImpl implements BalancedOracle {
     public static final String TAG = Names.BALANCEDORACLE;
@@ -259,7 +259,7 @@ public class BalancedOracleImpl implements BalancedOracle {
         BigInteger poolID = dexPricedAssets.get(symbol);
         Address base = Context.call(Address.class, dex.get(), "getPoolBase", poolID);
         BigInteger nrDecimals = Context.call(BigInteger.class, base, "decimals");
-        BigInteger decimals = pow(BigInteger.TEN, nrDecimals.intValue());
+        BigInteger decimals = pow10(nrDecimals.intValue());
 
         BigInteger bnusdPriceInAsset = Context.call(BigInteger.class, dex.get(), "getQuotePriceInBase", poolID);
 
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package network.balanced.score.core.dex;
+
+import com.eclipsesource.json.JsonObject;
+import com.iconloop.score.test.Account;
+import network.balanced.score.lib.test.benchmark.CostRecorder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import score.Address;
+import score.Context;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static network.balanced.score.lib.utils.Constants.EXA;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+/**
+ * Creates a pool with each of the configured amplifications, zero for a constant product pool, and reports the
+ * storage reads and writes, contract calls and wall time of swaps and quotes against it as JSON lines. Amplifications
+ * are read from the {@code benchmark.amplifications} system property as a comma separated list.
+ */
+class DexBenchmark extends DexTestBase {
+    private static final BigInteger RESERVE = BigInteger.valueOf(1_000_000).multiply(EXA);
+    private static final BigInteger TRADE = BigInteger.valueOf(1000).multiply(EXA);
+
+    private CostRecorder recorder;
+
+    static Stream<Arguments> amplifications() {
+        List<Arguments> amplifications = new ArrayList<>();
+        for (String amplification : System.getProperty("benchmark.amplifications", "0,100").split(",")) {
+            amplifications.add(Arguments.of(Integer.parseInt(amplification.trim())));
+        }
+
+        return amplifications.stream();
+    }
+
+    @AfterEach
+    void closeRecorder() {
+        recorder.close();
+        contextMock.close();
+    }
+
+    @ParameterizedTest
+    @MethodSource("amplifications")
+    void swapSteps(int amplification) throws Exception {
+        recorder = new CostRecorder(contextMock);
+        setup();
+        recorder.trackContracts(mockBalanced);
+        contextMock.when(() -> Context.call(any(Address.class), eq("transfer"), any(Address.class),
+                any(BigInteger.class))).thenReturn(null);
+
+        dexScore.invoke(governanceScore, "setStableSwapPair", balnScore.getAddress(), bnusdScore.getAddress(),
+                BigInteger.valueOf(amplification));
+        supplyLiquidity(ownerAccount, balnScore, bnusdScore, RESERVE, RESERVE, false);
+
+        Map<String, Object> parameters = Map.of("contract", "Dex", "amplification", amplification);
+
+        report(parameters, recorder.measureCall("quoteExactIn", () ->
+                dexScore.call("quoteExactIn", balnScore.getAddress(), bnusdScore.getAddress(), TRADE)));
+        report(parameters, recorder.measureCall("quoteExactOut", () ->
+                dexScore.call("quoteExactOut", balnScore.getAddress(), bnusdScore.getAddress(), TRADE)));
+        report(parameters, recorder.measureCall("quotePath", () ->
+                dexScore.call("quotePath", new Address[]{balnScore.getAddress(), bnusdScore.getAddress(),
+                        balnScore.getAddress()}, TRADE)));
+
+        Account trader = sm.createAccount();
+        byte[] sell = swapData(bnusdScore);
+        report(parameters, recorder.measureTransaction("swapSell", () ->
+                dexScore.invoke(balnScore, "tokenFallback", trader.getAddress(), TRADE, sell)));
+        byte[] buy = swapData(balnScore);
+        report(parameters, recorder.measureTransaction("swapBuy", () ->
+                dexScore.invoke(bnusdScore, "tokenFallback", trader.getAddress(), TRADE, buy)));
+    }
+
+    private static byte[] swapData(Account toToken) {
+        return new JsonObject()
+                .add("method", "_swap")
+                .add("params", new JsonObject().add("toToken", toToken.getAddress().toString()))
+                .toString().getBytes();
+    }
+
+    private void report(Map<String, Object> parameters, CostRecorder.Cost cost) {
+        recorder.report(cost, parameters);
+    }
+}
@@ -16,10 +16,15 @@
 
 package network.balanced.score.core.dex;
 
-import network.balanced.score.core.dex.db.NodeDB;
+import network.balanced.score.core.dex.curve.ConstantProductCurve;
+import network.balanced.score.core.dex.curve.Curve;
+import network.balanced.score.core.dex.curve.StableSwapCurve;
+import network.balanced.score.core.dex.db.CumulativePriceDB;
+import network.balanced.score.core.dex.db.PoolState;
+import network.balanced.score.core.dex.utils.SwapResult;
 import network.balanced.score.lib.interfaces.Dex;
 import network.balanced.score.lib.structs.PrepDelegations;
-import network.balanced.score.lib.structs.RewardsDataEntry;
+import network.balanced.score.lib.utils.EnumerableSetDB;
 import score.Address;
 import score.BranchDB;
 import score.Context;
@@ -34,13 +39,14 @@ import java.util.List;
 import java.util.Map;
 
 import static network.balanced.score.core.dex.DexDBVariables.*;
+import static network.balanced.score.core.dex.curve.ConstantProductCurve.ceilDivide;
 import static network.balanced.score.core.dex.utils.Check.isValidPoolId;
 import static network.balanced.score.core.dex.utils.Const.*;
 import static network.balanced.score.lib.utils.BalancedAddressManager.*;
 import static network.balanced.score.lib.utils.Check.onlyGovernance;
 import static network.balanced.score.lib.utils.Check.checkStatus;
 import static network.balanced.score.lib.utils.Constants.*;
-import static network.balanced.score.lib.utils.Math.pow;
+import static network.balanced.score.lib.utils.Math.pow10;
 
 public abstract class AbstractDex implements Dex {
 
@@ -60,9 +66,32 @@ public abstract class AbstractDex implements Dex {
             marketsToNames.set(SICXICX_POOL_ID, SICXICX_MARKET_NAME);
             dexOn.set(true);
         }
+
+        if (icxQueueShareTotal.get() == null) {
+            // Existing orders become shares at their current ICX size
+            icxQueueShareTotal.set(icxQueueTotal.getOrDefault(BigInteger.ZERO));
+        }
+        backfillTokenUnitValues();
         setGovernance(governance.get());
     }
 
+    // Tokens of pools created before tokenUnitValues existed only have their decimals stored
+    private static void backfillTokenUnitValues() {
+        int poolCount = nonce.getOrDefault(0);
+        for (int id = SICXICX_POOL_ID; id < poolCount; id++) {
+            PoolState pool = getPoolState(id);
+            if (pool == null) {
+                continue;
+            }
+
+            for (Address token : new Address[]{pool.base, pool.quote}) {
+                if (token != null && tokenUnitValues.get(token) == null && tokenPrecisions.get(token) != null) {
+                    setTokenPrecision(token, tokenPrecisions.get(token));
+                }
+            }
+        }
+    }
+
     @EventLog(indexed = 2)
     public void Swap(BigInteger _id, Address _baseToken, Address _fromToken, Address _toToken,
                      Address _sender, Address _receiver, BigInteger _fromValue, BigInteger _toValue,
@@ -189,6 +218,27 @@ public abstract class AbstractDex implements Dex {
         return quoteCoins.contains(_address);
     }
 
+    @External
+    public void setStableSwapPair(Address _baseToken, Address _quoteToken, BigInteger _amplification) {
+        onlyGovernance();
+        Context.require(poolId.at(_baseToken).get(_quoteToken) == null,
+                TAG + ": The curve of an existing pool cannot be changed");
+        Context.require(_amplification.signum() >= 0 && _amplification.compareTo(MAX_AMPLIFICATION) <= 0,
+                TAG + ": Amplification must be between 0 and " + MAX_AMPLIFICATION);
+
+        // Stored under both orders, the pool may be created with the tokens either way round
+        BigInteger amplification = _amplification.signum() == 0 ? null : _amplification;
+        stableSwapAmplification.at(_baseToken).set(_quoteToken, amplification);
+        stableSwapAmplification.at(_quoteToken).set(_baseToken, amplification);
+    }
+
+    @External(readonly = true)
+    public BigInteger getPoolAmplification(BigInteger _id) {
+        isValidPoolId(_id);
+        PoolState pool = getPoolState(_id.intValue());
+        return pool == null ? BigInteger.ZERO : pool.amplification;
+    }
+
     @External(readonly = true)
     public BigInteger getDay() {
         BigInteger blockTime = BigInteger.valueOf(Context.getBlockTimestamp());
@@ -219,7 +269,8 @@ public abstract class AbstractDex implements Dex {
 
     @External(readonly = true)
     public BigInteger getSicxEarnings(Address _user) {
-        return sicxEarnings.getOrDefault(_user, BigInteger.ZERO);
+        BigInteger sicxPerShare = icxQueueSicxPerShare.getOrDefault(BigInteger.ZERO);
+        return sicxEarnings.getOrDefault(_user, BigInteger.ZERO).add(pendingSicxEarnings(_user, sicxPerShare));
     }
 
     @External(readonly = true)
@@ -246,17 +297,24 @@ public abstract class AbstractDex implements Dex {
 
     @External(readonly = true)
     public BigInteger getPoolTotal(BigInteger _id, Address _token) {
-        return poolTotal.at(_id.intValue()).getOrDefault(_token, BigInteger.ZERO);
+        PoolState pool = getPoolState(_id.intValue());
+        if (pool == null) {
+            return BigInteger.ZERO;
+        }
+
+        return pool.getTotal(_token);
     }
 
     @External(readonly = true)
     public Address getPoolBase(BigInteger _id) {
-        return poolBase.get(_id.intValue());
+        PoolState pool = getPoolState(_id.intValue());
+        return pool == null ? null : pool.base;
     }
 
     @External(readonly = true)
     public Address getPoolQuote(BigInteger _id) {
-        return poolQuote.get(_id.intValue());
+        PoolState pool = getPoolState(_id.intValue());
+        return pool == null ? null : pool.quote;
     }
 
     @External(readonly = true)
@@ -267,7 +325,8 @@ public abstract class AbstractDex implements Dex {
             return ((EXA.multiply(EXA)).divide(getSicxRate()));
         }
 
-        return priceOfAInB(_id.intValue(), poolQuote, poolBase);
+        PoolState pool = getPoolState(_id.intValue());
+        return getCurve(pool).getQuotePrice(pool);
     }
 
     @External(readonly = true)
@@ -278,18 +337,141 @@ public abstract class AbstractDex implements Dex {
             return getSicxRate();
         }
 
-        return priceOfAInB(_id.intValue(), poolBase, poolQuote);
+        PoolState pool = getPoolState(_id.intValue());
+        return getCurve(pool).getBasePrice(pool);
+    }
+
+    @External(readonly = true)
+    public Map<String, Object> getCumulativePrice(BigInteger _id) {
+        int id = _id.intValue();
+        requireTradablePool(id);
+        PoolState pool = getPoolState(id);
+        Curve curve = getCurve(pool);
+        return CumulativePriceDB.getCumulativePrice(id, curve.getBasePrice(pool), curve.getQuotePrice(pool));
+    }
+
+    @External(readonly = true)
+    public Map<String, Object> getTWAP(BigInteger _id, BigInteger _window) {
+        int id = _id.intValue();
+        requireTradablePool(id);
+        PoolState pool = getPoolState(id);
+        Curve curve = getCurve(pool);
+        return CumulativePriceDB.getTWAP(id, curve.getBasePrice(pool), curve.getQuotePrice(pool),
+                _window.longValue());
+    }
+
+    private void requireTradablePool(int id) {
+        isValidPoolId(id);
+        Context.require(id != SICXICX_POOL_ID, TAG + ": Not supported for the sICX/ICX pool");
+    }
+
+    @External(readonly = true)
+    public Map<String, Object> quoteExactIn(Address _fromToken, Address _toToken, BigInteger _amount) {
+        Context.require(_amount.signum() > 0, TAG + ": Invalid amount to quote");
+        PoolState pool = getQuotePool(getQuotePoolId(_fromToken, _toToken));
+        Curve curve = getCurve(pool);
+        SwapResult result = computeExchange(pool, curve, _fromToken, _toToken, _amount);
+        Context.require(result.sendAmount.signum() > 0, TAG + ": Invalid output amount in trade.");
+
+        return quoteDetails(_amount, result, pool, curve);
+    }
+
+    @External(readonly = true)
+    public Map<String, Object> quoteExactOut(Address _fromToken, Address _toToken, BigInteger _amountOut) {
+        PoolState pool = getQuotePool(getQuotePoolId(_fromToken, _toToken));
+        Context.require(_amountOut.signum() > 0 && _amountOut.compareTo(pool.getTotal(_toToken)) < 0,
+                TAG + ": Invalid amount to quote");
+
+        // Invert the curve, then gross the input up by the fee tier of the pool
+        Curve curve = getCurve(pool);
+        BigInteger inputWithoutFees = curve.getAmountIn(pool, _fromToken, _amountOut);
+        BigInteger feeRate = FEE_SCALE.subtract(pool.lpFee).subtract(pool.balnFee);
+        BigInteger value = ceilDivide(inputWithoutFees.multiply(FEE_SCALE), feeRate);
+
+        // Rounding of the fees and the curve can be off by a unit, settle on the smallest input that fills the order
+        for (int i = 0; i < QUOTE_REFINE_STEPS && simulateSendAmount(pool, curve, _fromToken, _toToken, value)
+                .compareTo(_amountOut) < 0; i++) {
+            value = value.add(BigInteger.ONE);
+        }
+        for (int i = 0; i < QUOTE_REFINE_STEPS && value.compareTo(BigInteger.ONE) > 0; i++) {
+            BigInteger lower = value.subtract(BigInteger.ONE);
+            if (simulateSendAmount(pool, curve, _fromToken, _toToken, lower).compareTo(_amountOut) < 0) {
+                break;
+            }
+            value = lower;
+        }
+
+        SwapResult result = computeExchange(pool, curve, _fromToken, _toToken, value);
+        Context.require(result.sendAmount.compareTo(_amountOut) >= 0, TAG + ": Unable to quote exact output");
+        return quoteDetails(value, result, pool, curve);
     }
 
-    private BigInteger priceOfAInB(Integer id, DictDB<Integer, Address> tokenA, DictDB<Integer, Address> tokenB) {
-        Address ATokenAddress = tokenA.get(id);
-        Address BTokenAddress = tokenB.get(id);
+    private static BigInteger simulateSendAmount(PoolState pool, Curve curve, Address fromToken, Address toToken,
+                                                 BigInteger value) {
+        return computeExchange(pool.copy(), curve, fromToken, toToken, value).sendAmount;
+    }
+
+    @External(readonly = true)
+    public Map<String, Object> quotePath(Address[] _path, BigInteger _amount) {
+        Context.require(_path.length >= 2 && _path.length <= MAX_SWAP_PATH_LENGTH + 1,
+                TAG + ": Swap path must contain between 1 and " + MAX_SWAP_PATH_LENGTH + " hops");
+        Context.require(_amount.signum() > 0, TAG + ": Invalid amount to quote");
+
+        // A path can cross the same pool more than once, later hops have to see the earlier trades
+        Map<Integer, PoolState> simulatedPools = new HashMap<>();
+        List<Map<String, Object>> hops = new ArrayList<>();
+        BigInteger amount = _amount;
+        for (int i = 1; i < _path.length; i++) {
+            Address fromToken = _path[i - 1];
+            Address toToken = _path[i];
+            int id = getQuotePoolId(fromToken, toToken);
+            PoolState simulated = simulatedPools.get(id);
+            if (simulated == null) {
+                simulated = getQuotePool(id);
+                simulatedPools.put(id, simulated);
+            }
+
+            Curve curve = getCurve(simulated);
+            SwapResult result = computeExchange(simulated, curve, fromToken, toToken, amount);
+            Context.require(result.sendAmount.signum() > 0, TAG + ": Invalid output amount in trade.");
+
+            Map<String, Object> hop = quoteDetails(amount, result, simulated, curve);
+            hop.put("id", BigInteger.valueOf(id));
+            hop.put("from_token", fromToken);
+            hop.put("to_token", toToken);
+            hops.add(hop);
+            amount = result.sendAmount;
+        }
+
+        return Map.of(
+                "amount_in", _amount,
+                "amount_out", amount,
+                "hops", hops
+        );
+    }
+
+    private int getQuotePoolId(Address fromToken, Address toToken) {
+        Integer id = poolId.at(fromToken).get(toToken);
+        Context.require(id != null, TAG + ": Pool does not exist");
+        requireTradablePool(id);
+        return id;
+    }
 
-        DictDB<Address, BigInteger> totalTokensInPool = poolTotal.at(id);
-        BigInteger ATokenTotal = totalTokensInPool.get(ATokenAddress);
-        BigInteger BTokenTotal = totalTokensInPool.get(BTokenAddress);
+    private static PoolState getQuotePool(int id) {
+        PoolState pool = getPoolState(id);
+        Context.require(pool.active, TAG + ": Pool is not active");
+        return pool;
+    }
 
-        return BTokenTotal.multiply(EXA).divide(ATokenTotal);
+    private static Map<String, Object> quoteDetails(BigInteger value, SwapResult result, PoolState pool,
+                                                    Curve curve) {
+        Map<String, Object> quote = new HashMap<>();
+        quote.put("amount_in", value);
+        quote.put("amount_out", result.sendAmount);
+        quote.put("lp_fees", result.lpFees);
+        quote.put("baln_fees", result.balnFees);
+        quote.put("ending_price", curve.getBasePrice(pool));
+        return quote;
     }
 
     @External(readonly = true)
@@ -316,15 +498,16 @@ public abstract class AbstractDex implements Dex {
             return (icxTotal.multiply(getSicxBnusdPrice())).divide(getSicxRate());
         }
 
-        Address poolQuoteToken = poolQuote.get(_id);
+        PoolState pool = getPoolState(_id);
+        Address poolQuoteToken = pool.quote;
         Address sicxAddress = getSicx();
         Address bnusdAddress = getBnusd();
 
         if (poolQuoteToken.equals(sicxAddress)) {
-            BigInteger sicxTotal = poolTotal.at(_id).get(sicxAddress).multiply(BigInteger.TWO);
+            BigInteger sicxTotal = pool.quoteTotal.multiply(BigInteger.TWO);
             return getSicxBnusdPrice().multiply(sicxTotal).divide(EXA);
         } else if (poolQuoteToken.equals(bnusdAddress)) {
-            return poolTotal.at(_id).get(bnusdAddress).multiply(BigInteger.TWO);
+            return pool.quoteTotal.multiply(BigInteger.TWO);
         }
 
         return BigInteger.ZERO;
@@ -342,11 +525,13 @@ public abstract class AbstractDex implements Dex {
 
     @External(readonly = true)
     public BigInteger getICXBalance(Address _address) {
-        BigInteger orderId = icxQueueOrderId.get(_address);
-        if (orderId == null) {
+        BigInteger shareTotal = icxQueueShareTotal.getOrDefault(BigInteger.ZERO);
+        if (shareTotal.signum() == 0) {
             return BigInteger.ZERO;
         }
-        return icxQueue.getNode(orderId).getSize();
+
+        BigInteger icxTotal = icxQueueTotal.getOrDefault(BigInteger.ZERO);
+        return getIcxQueueShares(_address).multiply(icxTotal).divide(shareTotal);
     }
 
     @External(readonly = true)
@@ -365,16 +550,16 @@ public abstract class AbstractDex implements Dex {
             poolStats.put("quote_decimals", 18);
             poolStats.put("min_quote", getRewardableAmount(null));
         } else {
-            Address baseToken = poolBase.get(_id.intValue());
-            Address quoteToken = poolQuote.get(_id.intValue());
+            PoolState pool = getPoolState(_id.intValue());
+            Address baseToken = pool.base;
+            Address quoteToken = pool.quote;
             String name = marketsToNames.get(_id.intValue());
-            DictDB<Address, BigInteger> totalTokensInPool = poolTotal.at(_id.intValue());
 
-            poolStats.put("base", totalTokensInPool.get(baseToken));
-            poolStats.put("quote", totalTokensInPool.get(quoteToken));
+            poolStats.put("base", pool.baseTotal);
+            poolStats.put("quote", pool.quoteTotal);
             poolStats.put("base_token", baseToken);
             poolStats.put("quote_token", quoteToken);
-            poolStats.put("total_supply", poolLpTotal.get(_id.intValue()));
+            poolStats.put("total_supply", pool.lpTotal);
             poolStats.put("price", getPrice(_id));
             poolStats.put("name", name);
             poolStats.put("base_decimals", tokenPrecisions.get(baseToken));
@@ -400,12 +585,45 @@ public abstract class AbstractDex implements Dex {
         return BigInteger.valueOf(activeAddresses.get(_id.intValue()).length());
     }
 
+    @External(readonly = true)
+    public Map<String, Object> getPoolHolders(BigInteger _id, BigInteger _cursor, BigInteger _limit) {
+        int id = _id.intValue();
+        isValidPoolId(id);
+        int limit = _limit.intValue();
+        Context.require(limit > 0 && limit <= MAX_POOL_HOLDERS_PAGE,
+                TAG + ": Limit must be between 1 and " + MAX_POOL_HOLDERS_PAGE);
+
+        EnumerableSetDB<Address> holders = activeAddresses.get(id);
+        int total = holders.length();
+        int cursor = _cursor.intValue();
+        List<Address> page = holders.range(cursor, cursor + limit);
+
+        DictDB<Address, BigInteger> poolBalances = DexDBVariables.balance.at(id);
+        List<Map<String, Object>> holderBalances = new ArrayList<>();
+        for (Address holder : page) {
+            BigInteger holderBalance = id == SICXICX_POOL_ID ? getICXBalance(holder) :
+                    poolBalances.getOrDefault(holder, BigInteger.ZERO);
+            holderBalances.add(Map.of(
+                    "address", holder,
+                    "balance", holderBalance
+            ));
+        }
+
+        // Holders are removed by swapping in the last entry, so a page can shift while an indexer walks the set
+        return Map.of(
+                "holders", holderBalances,
+                "next_cursor", BigInteger.valueOf(Math.min(cursor + page.size(), total)),
+                "total", BigInteger.valueOf(total)
+        );
+    }
+
     @External(readonly = true)
     public Map<String, BigInteger> getBalanceAndSupply(String _name, Address _owner) {
         if (_name.equals(SICXICX_MARKET_NAME)) {
+            // Rewards are paid on queue shares, which unlike ICX balances do not move when orders are filled
             Map<String, BigInteger> rewardsData = new HashMap<>();
-            rewardsData.put("_balance", balanceOf(_owner, BigInteger.valueOf(SICXICX_POOL_ID)));
-            rewardsData.put("_totalSupply", totalSupply(BigInteger.valueOf(SICXICX_POOL_ID)));
+            rewardsData.put("_balance", getIcxQueueShares(_owner));
+            rewardsData.put("_totalSupply", icxQueueShareTotal.getOrDefault(BigInteger.ZERO));
             return rewardsData;
         }
         BigInteger poolId = lookupPid(_name);
@@ -420,6 +638,35 @@ public abstract class AbstractDex implements Dex {
         return rewardsData;
     }
 
+    @External(readonly = true)
+    public Map<String, Map<String, BigInteger>> getBalanceAndSupplyBatch(String[] _names, Address _owner) {
+        Map<String, Map<String, BigInteger>> balances = new HashMap<>();
+        for (String name : _names) {
+            balances.put(name, getBalanceAndSupply(name, _owner));
+        }
+
+        return balances;
+    }
+
+    @SuppressWarnings("unchecked")
+    @External(readonly = true)
+    public Map<String, BigInteger> getBalancesAndSupply(String _name, Address[] _owners) {
+        if (_name.equals(SICXICX_MARKET_NAME)) {
+            Map<String, BigInteger> balances = new HashMap<>();
+            balances.put("_totalSupply", icxQueueShareTotal.getOrDefault(BigInteger.ZERO));
+            for (Address owner : _owners) {
+                balances.put(owner.toString(), getIcxQueueShares(owner));
+            }
+
+            return balances;
+        }
+        BigInteger poolId = lookupPid(_name);
+        Context.require(poolId != null, TAG + ": Unsupported data source name");
+
+        // Staked LP balances live in StakedLP, which answers for all owners in one call
+        return (Map<String, BigInteger>) Context.call(getStakedLp(), "getBalancesAndSupply", _name, _owners);
+    }
+
     @External(readonly = true)
     public BigInteger getTotalValue(String _name, BigInteger _snapshot_id) {
         return totalSupply(BigInteger.valueOf(namedMarkets.get(_name)));
@@ -428,7 +675,15 @@ public abstract class AbstractDex implements Dex {
     @External
     public void permit(BigInteger _id, boolean _permission) {
         onlyGovernance();
-        active.set(_id.intValue(), _permission);
+        int id = _id.intValue();
+        PoolState pool = getPoolState(id);
+        if (pool == null) {
+            active.set(id, _permission);
+            return;
+        }
+
+        pool.active = _permission;
+        setPoolState(id, pool);
     }
 
     @External
@@ -456,7 +711,12 @@ public abstract class AbstractDex implements Dex {
             return icxQueueTotal.getOrDefault(BigInteger.ZERO);
         }
 
-        return poolLpTotal.getOrDefault(_id.intValue(), BigInteger.ZERO);
+        PoolState pool = getPoolState(_id.intValue());
+        if (pool == null) {
+            return BigInteger.ZERO;
+        }
+
+        return pool.lpTotal;
     }
 
     @External
@@ -486,7 +746,53 @@ public abstract class AbstractDex implements Dex {
 
     void exchange(Address fromToken, Address toToken, Address sender,
                   Address receiver, BigInteger value, BigInteger minimumReceive) {
+        Map<Address, BigInteger> balnFees = new HashMap<>();
+        BigInteger sendAmount = applyExchange(fromToken, toToken, sender, receiver, value, minimumReceive, balnFees);
+
+        // Send the trader their funds
+        Context.call(toToken, "transfer", receiver, sendAmount);
+
+        // Send the platform fees to the fee handler SCORE
+        transferBalnFees(balnFees);
+    }
+
+    void exchangePath(Address fromToken, Address[] path, Address sender, Address receiver, BigInteger value,
+                      BigInteger minimumReceive) {
+        Context.require(path.length > 0, TAG + ": Empty swap path");
+        Context.require(path.length <= MAX_SWAP_PATH_LENGTH, TAG + ": Passed max swaps of " + MAX_SWAP_PATH_LENGTH);
+
+        // Every hop but the last trades against pool totals only, the intermediate tokens never leave the Dex.
+        Map<Address, BigInteger> balnFees = new HashMap<>();
+        Address dexAddress = Context.getAddress();
+        Address currentToken = fromToken;
+        BigInteger amount = value;
+        int lastHop = path.length - 1;
+        for (int i = 0; i < lastHop; i++) {
+            amount = applyExchange(currentToken, path[i], sender, dexAddress, amount, BigInteger.ZERO, balnFees);
+            currentToken = path[i];
+        }
+
+        Address toToken = path[lastHop];
+        amount = applyExchange(currentToken, toToken, sender, receiver, amount, minimumReceive, balnFees);
+
+        Context.call(toToken, "transfer", receiver, amount);
+        transferBalnFees(balnFees);
+    }
 
+    void transferBalnFees(Map<Address, BigInteger> balnFees) {
+        Address feeHandler = getFeehandler();
+        for (Map.Entry<Address, BigInteger> fee : balnFees.entrySet()) {
+            Context.call(fee.getKey(), "transfer", feeHandler, fee.getValue());
+        }
+    }
+
+    /**
+     * Trades {@code value} of fromToken against the pool totals and returns the amount of toToken removed from the
+     * pool. Nothing is transferred, the BALN fees of the trade are added to {@code balnFees} by quote token.
+     */
+    BigInteger applyExchange(Address fromToken, Address toToken, Address sender, Address receiver,
+                             BigInteger value, BigInteger minimumReceive,
+                             Map<Address, BigInteger> balnFees) {
         if (minimumReceive == null) {
             minimumReceive = BigInteger.ZERO;
         }
@@ -494,100 +800,118 @@ public abstract class AbstractDex implements Dex {
         int id = getPoolId(fromToken, toToken).intValue();
         isValidPoolId(id);
         Context.require(id != SICXICX_POOL_ID, TAG + ":  Not supported on this API, use the ICX swap API.");
-        Context.require(active.getOrDefault(id, false), TAG + ": Pool is not active");
-
-        BigInteger lpFees = value.multiply(poolLpFee.get()).divide(FEE_SCALE);
-        BigInteger balnFees = value.multiply(poolBalnFee.get()).divide(FEE_SCALE);
-        BigInteger initialBalnFees = balnFees;
-        BigInteger fees = lpFees.add(balnFees);
-
-        Address poolBaseToken = poolBase.get(id);
-        boolean isSell = fromToken.equals(poolBaseToken);
-        Address poolQuoteToken = isSell ? toToken : fromToken;
-
-        // We consider the trade in terms of toToken (token we are trading to), and fromToken (token we are trading
-        // away) in the pool. It must obey the xy=k constant product formula.
-
-        DictDB<Address, BigInteger> totalTokensInPool = poolTotal.at(id);
-        BigInteger oldFromToken = totalTokensInPool.get(fromToken);
-        BigInteger oldToToken = totalTokensInPool.get(toToken);
-
-        // We perturb the pool by the asset we are trading in less fees.
-        // Fees are credited to LPs at the end of the process.
-        BigInteger inputWithoutFees = value.subtract(fees);
-        BigInteger newFromToken = oldFromToken.add(inputWithoutFees);
+        PoolState pool = getPoolState(id);
+        Context.require(pool.active, TAG + ": Pool is not active");
 
-        // Compute the new fromToken according to the constant product formula
-        BigInteger newToToken = (oldFromToken.multiply(oldToToken)).divide(newFromToken);
-
-        // Send the trader the amount of toToken removed from the pool by the constant product formula
-        BigInteger sendAmount = oldToToken.subtract(newToToken);
+        // One curve for the whole trade, so a StableSwap pool solves its invariant once per pool state
+        Curve curve = getCurve(pool);
+        updatePriceAccumulator(id, pool, curve);
+        SwapResult result = computeExchange(pool, curve, fromToken, toToken, value);
+        BigInteger sendAmount = result.sendAmount;
 
         Context.require(sendAmount.compareTo(BigInteger.ZERO) > 0, TAG + ": Invalid output amount in trade.");
         // Revert the transaction if the below slippage, as specified in _minimum_receive
         Context.require(sendAmount.compareTo(minimumReceive) >= 0,
                 TAG + ": MinimumReceiveError: Receive amount " + sendAmount + " below supplied minimum");
 
-        // Apply fees to fromToken after computing constant product. lpFees are credited to the LPs, the rest are
-        // sent to BALN holders.
-        newFromToken = newFromToken.add(lpFees);
+        // Save updated pool totals
+        setPoolState(id, pool);
 
-        if (isSell) {
-            oldFromToken = newFromToken;
-            oldToToken = newToToken;
+        // Collect the platform fees for the fee handler SCORE
+        Address poolQuoteToken = pool.quote;
+        balnFees.put(poolQuoteToken, balnFees.getOrDefault(poolQuoteToken, BigInteger.ZERO)
+                .add(result.quoteBalnFees));
 
-            newFromToken = oldFromToken.add(balnFees);
-            newToToken = (oldFromToken.multiply(oldToToken)).divide(newFromToken);
+        // Broadcast pool ending price
+        boolean isSell = fromToken.equals(pool.base);
+        BigInteger effectiveFillPrice = (value.multiply(EXA)).divide(sendAmount);
+        BigInteger endingPrice = curve.getBasePrice(pool);
 
-            balnFees = oldToToken.subtract(newToToken);
+        if (!isSell) {
+            effectiveFillPrice = (sendAmount.multiply(EXA)).divide(value);
         }
 
-        // Save updated pool totals
-        totalTokensInPool.set(fromToken, newFromToken);
-        totalTokensInPool.set(toToken, newToToken);
+        Swap(BigInteger.valueOf(id), pool.base, fromToken, toToken, sender, receiver, value, sendAmount,
+                BigInteger.valueOf(Context.getBlockTimestamp()), result.lpFees, result.balnFees, pool.baseTotal,
+                pool.quoteTotal, endingPrice, effectiveFillPrice);
 
-        // Capture details for event logs
-        BigInteger totalBase = isSell ? newFromToken : newToToken;
-        BigInteger totalQuote = isSell ? newToToken : newFromToken;
+        return sendAmount;
+    }
 
-        // Send the trader their funds
-        Context.call(toToken, "transfer", receiver, sendAmount);
+    /**
+     * Applies a trade of {@code value} fromToken to the totals of {@code pool}. Only the given pool state is
+     * modified, persisting it is left to the caller.
+     */
+    static SwapResult computeExchange(PoolState pool, Curve curve, Address fromToken, Address toToken,
+                                      BigInteger value) {
+        BigInteger lpFees = value.multiply(pool.lpFee).divide(FEE_SCALE);
+        BigInteger balnFees = value.multiply(pool.balnFee).divide(FEE_SCALE);
+        BigInteger quoteBalnFees = balnFees;
+        BigInteger fees = lpFees.add(balnFees);
 
-        // Send the platform fees to the fee handler SCORE
-        Context.call(poolQuoteToken, "transfer", getFeehandler(), balnFees);
+        // We perturb the pool by the asset we are trading in less fees, and send the trader the amount of toToken
+        // the curve of the pool releases for it.
+        BigInteger inputWithoutFees = value.subtract(fees);
+        BigInteger sendAmount = curve.getAmountOut(pool, fromToken, inputWithoutFees);
+
+        // Apply fees to fromToken after the trade. lpFees are credited to the LPs, the rest are sent to BALN
+        // holders.
+        pool.setTotal(fromToken, pool.getTotal(fromToken).add(inputWithoutFees).add(lpFees));
+        pool.setTotal(toToken, pool.getTotal(toToken).subtract(sendAmount));
+
+        if (fromToken.equals(pool.base)) {
+            // BALN fees of a sell are paid out in the quote token, swap them through the pool as well
+            quoteBalnFees = curve.getAmountOut(pool, fromToken, balnFees);
+            pool.setTotal(fromToken, pool.getTotal(fromToken).add(balnFees));
+            pool.setTotal(toToken, pool.getTotal(toToken).subtract(quoteBalnFees));
+        }
 
-        // Broadcast pool ending price
-        BigInteger effectiveFillPrice = (value.multiply(EXA)).divide(sendAmount);
-        BigInteger endingPrice = totalQuote.multiply(EXA).divide(totalBase);
+        return new SwapResult(sendAmount, lpFees, balnFees, quoteBalnFees);
+    }
 
-        if (!isSell) {
-            effectiveFillPrice = (sendAmount.multiply(EXA)).divide(value);
+    static Curve getCurve(PoolState pool) {
+        if (pool.amplification.signum() == 0) {
+            return ConstantProductCurve.INSTANCE;
         }
 
-        Swap(BigInteger.valueOf(id), poolBaseToken, fromToken, toToken, sender, receiver, value, sendAmount,
-                BigInteger.valueOf(Context.getBlockTimestamp()), lpFees, initialBalnFees, totalBase, totalQuote,
-                endingPrice, effectiveFillPrice);
+        return new StableSwapCurve(pool.amplification, getStableSwapRate(pool.base), getStableSwapRate(pool.quote));
+    }
+
+    private static BigInteger getStableSwapRate(Address token) {
+        BigInteger unitValue = getUnitValue(token);
+        Context.require(unitValue.compareTo(EXA) <= 0,
+                TAG + ": StableSwap pools support at most " + STABLESWAP_DECIMALS + " decimals");
+        return EXA.divide(unitValue);
+    }
+
+    static void updatePriceAccumulator(int id, PoolState pool) {
+        updatePriceAccumulator(id, pool, getCurve(pool));
+    }
+
+    static void updatePriceAccumulator(int id, PoolState pool, Curve curve) {
+        CumulativePriceDB.update(id, curve.getBasePrice(pool), curve.getQuotePrice(pool));
     }
 
     void donate(Address fromToken, Address toToken, BigInteger value) {
         int id = getPoolId(fromToken, toToken).intValue();
         isValidPoolId(id);
         Context.require(id != SICXICX_POOL_ID, TAG + ":  Not supported on this API, use the ICX swap API.");
-        Context.require(active.getOrDefault(id, false), TAG + ": Pool is not active");
+        PoolState pool = getPoolState(id);
+        Context.require(pool.active, TAG + ": Pool is not active");
 
-        DictDB<Address, BigInteger> totalTokensInPool = poolTotal.at(id);
-        BigInteger oldFromToken = totalTokensInPool.get(fromToken);
+        updatePriceAccumulator(id, pool);
+        BigInteger oldFromToken = pool.getTotal(fromToken);
 
         BigInteger newFromToken = oldFromToken.add(value);
 
-        totalTokensInPool.set(fromToken, newFromToken);
+        pool.setTotal(fromToken, newFromToken);
+        setPoolState(id, pool);
     }
 
     void swapIcx(Address sender, BigInteger value) {
         BigInteger sicxIcxPrice = getSicxRate();
 
         BigInteger oldIcxTotal = icxQueueTotal.getOrDefault(BigInteger.ZERO);
-        List<RewardsDataEntry> oldData = new ArrayList<>();
 
         BigInteger balnFees = (value.multiply(icxBalnFee.get())).divide(FEE_SCALE);
         BigInteger conversionFees = value.multiply(icxConversionFee.get()).divide(FEE_SCALE);
@@ -595,47 +919,14 @@ public abstract class AbstractDex implements Dex {
         BigInteger orderIcxValue = (orderSize.multiply(sicxIcxPrice)).divide(EXA);
         BigInteger lpSicxSize = orderSize.add(conversionFees);
 
-        Context.require(orderIcxValue.compareTo(oldIcxTotal) <= 0,
+        Context.require(orderIcxValue.compareTo(oldIcxTotal.subtract(ICX_QUEUE_MIN_REMAINING)) <= 0,
                 TAG + ": InsufficientLiquidityError: Not enough ICX suppliers.");
 
-        boolean filled = false;
-        BigInteger orderRemainingIcx = orderIcxValue;
-        int iterations = 0;
-        while (!filled) {
-            iterations += 1;
-            if ((icxQueue.size().equals(BigInteger.ZERO)) || (iterations > ICX_QUEUE_FILL_DEPTH)) {
-                Context.revert(TAG + ": InsufficientLiquidityError: Unable to fill " + orderRemainingIcx + " ICX.");
-            }
-            NodeDB counterpartyOrder = icxQueue.getHeadNode();
-            Address counterpartyAddress = counterpartyOrder.getUser();
-            BigInteger counterpartyIcx = counterpartyOrder.getSize();
-
-            RewardsDataEntry rewardsEntry = new RewardsDataEntry();
-            rewardsEntry._user = counterpartyAddress;
-            rewardsEntry._balance = counterpartyIcx;
-
-            oldData.add(rewardsEntry);
-            BigInteger matchedIcx = counterpartyIcx.min(orderRemainingIcx);
-            orderRemainingIcx = orderRemainingIcx.subtract(matchedIcx);
-
-            boolean counterpartyFilled = matchedIcx.equals(counterpartyIcx);
-            if (counterpartyFilled) {
-                icxQueue.removeHead();
-                icxQueueOrderId.set(counterpartyAddress, null);
-                activeAddresses.get(SICXICX_POOL_ID).remove(counterpartyAddress);
-            } else {
-                BigInteger newCounterpartyValue = counterpartyIcx.subtract(matchedIcx);
-                counterpartyOrder.setSize(newCounterpartyValue);
-            }
-
-            BigInteger lpSicxEarnings = (lpSicxSize.multiply(matchedIcx)).divide(orderIcxValue);
-            BigInteger newSicxEarnings = getSicxEarnings(counterpartyAddress).add(lpSicxEarnings);
-            sicxEarnings.set(counterpartyAddress, newSicxEarnings);
-
-            if (orderRemainingIcx.compareTo(BigInteger.ZERO) == 0) {
-                filled = true;
-            }
-        }
+        // The order fills every share in the queue pro rata, so share balances and the rewards data built on them
+        // stay unchanged and only the ICX behind each share and the sICX earned per share move.
+        BigInteger shareTotal = icxQueueShareTotal.get();
+        BigInteger sicxPerShare = icxQueueSicxPerShare.getOrDefault(BigInteger.ZERO);
+        icxQueueSicxPerShare.set(sicxPerShare.add(lpSicxSize.multiply(EXA).divide(shareTotal)));
 
         BigInteger newIcxTotal = oldIcxTotal.subtract(orderIcxValue);
         icxQueueTotal.set(newIcxTotal);
@@ -645,44 +936,103 @@ public abstract class AbstractDex implements Dex {
                 orderIcxValue, BigInteger.valueOf(Context.getBlockTimestamp()), conversionFees, balnFees, newIcxTotal
                 , BigInteger.ZERO, sicxIcxPrice, effectiveFillPrice);
 
-        Context.call(getRewards(), "updateBatchRewardsData", SICXICX_MARKET_NAME, oldIcxTotal, oldData);
         Context.call(sicxAddress, "transfer", getFeehandler(), balnFees);
         Context.transfer(sender, orderIcxValue);
     }
 
+    BigInteger getIcxQueueShares(Address user) {
+        BigInteger shares = icxQueueShares.get(user);
+        if (shares != null) {
+            return shares;
+        }
+
+        BigInteger orderId = icxQueueOrderId.get(user);
+        if (orderId == null) {
+            return BigInteger.ZERO;
+        }
+
+        return icxQueue.getNode(orderId).getSize();
+    }
 
-    private BigInteger getUnitValue(Address tokenAddress) {
+    void setIcxQueueShares(Address user, BigInteger shares) {
+        BigInteger orderId = icxQueueOrderId.get(user);
+        if (orderId != null) {
+            icxQueue.remove(orderId);
+            icxQueueOrderId.set(user, null);
+        }
+
+        icxQueueShares.set(user, shares.signum() == 0 ? null : shares);
+    }
+
+    void settleSicxEarnings(Address user) {
+        BigInteger sicxPerShare = icxQueueSicxPerShare.getOrDefault(BigInteger.ZERO);
+        BigInteger pendingEarnings = pendingSicxEarnings(user, sicxPerShare);
+        if (pendingEarnings.signum() > 0) {
+            sicxEarnings.set(user, sicxEarnings.getOrDefault(user, BigInteger.ZERO).add(pendingEarnings));
+        }
+
+        if (!sicxPerShare.equals(icxQueueUserSicxPerShare.getOrDefault(user, BigInteger.ZERO))) {
+            icxQueueUserSicxPerShare.set(user, sicxPerShare);
+        }
+    }
+
+    private BigInteger pendingSicxEarnings(Address user, BigInteger sicxPerShare) {
+        BigInteger userSicxPerShare = icxQueueUserSicxPerShare.getOrDefault(user, BigInteger.ZERO);
+        return getIcxQueueShares(user).multiply(sicxPerShare.subtract(userSicxPerShare)).divide(EXA);
+    }
+
+    static BigInteger getUnitValue(Address tokenAddress) {
         if (tokenAddress == null) {
             return EXA;
-        } else {
-            return pow(BigInteger.TEN, tokenPrecisions.get(tokenAddress).intValue());
         }
+
+        BigInteger unitValue = tokenUnitValues.get(tokenAddress);
+        if (unitValue == null) {
+            return pow10(tokenPrecisions.get(tokenAddress).intValue());
+        }
+
+        return unitValue;
     }
 
-    BigInteger snapshotValueAt(BigInteger _snapshot_id,
-                               BranchDB<String, DictDB<BigInteger, BigInteger>> snapshot) {
+    static void setTokenPrecision(Address tokenAddress, BigInteger decimals) {
+        tokenPrecisions.set(tokenAddress, decimals);
+        tokenUnitValues.set(tokenAddress, pow10(decimals.intValue()));
+    }
+
+    static BigInteger snapshotValueAt(BigInteger _snapshot_id,
+                                      BranchDB<String, DictDB<BigInteger, BigInteger>> snapshot) {
         Context.require(_snapshot_id.compareTo(BigInteger.ZERO) >= 0,
                 TAG + ": Snapshot id is equal to or greater then Zero.");
-        BigInteger low = BigInteger.ZERO;
-        BigInteger high = snapshot.at(LENGTH).getOrDefault(BigInteger.ZERO, BigInteger.ZERO);
+        DictDB<BigInteger, BigInteger> ids = snapshot.at(IDS);
+        DictDB<BigInteger, BigInteger> values = snapshot.at(VALUES);
+        int length = snapshot.at(LENGTH).getOrDefault(BigInteger.ZERO, BigInteger.ZERO).intValue();
+
+        // The snapshots are no longer written, most lookups are for ids past the last entry
+        int low = 0;
+        int high = length;
+        if (length > 0) {
+            BigInteger lastId = ids.getOrDefault(BigInteger.valueOf(length - 1), BigInteger.ZERO);
+            if (lastId.compareTo(_snapshot_id) <= 0) {
+                low = length;
+            }
+        }
 
-        while (low.compareTo(high) < 0) {
-            BigInteger mid = (low.add(high)).divide(BigInteger.TWO);
-            if (snapshot.at(IDS).getOrDefault(mid, BigInteger.ZERO).compareTo(_snapshot_id) > 0) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ids.getOrDefault(BigInteger.valueOf(mid), BigInteger.ZERO).compareTo(_snapshot_id) > 0) {
                 high = mid;
             } else {
-                low = mid.add(BigInteger.ONE);
+                low = mid + 1;
             }
         }
 
-        if (snapshot.at(IDS).getOrDefault(BigInteger.ZERO, BigInteger.ZERO).equals(_snapshot_id)) {
-            return snapshot.at(VALUES).getOrDefault(BigInteger.ZERO, BigInteger.ZERO);
-        } else if (low.equals(BigInteger.ZERO)) {
+        if (ids.getOrDefault(BigInteger.ZERO, BigInteger.ZERO).equals(_snapshot_id)) {
+            return values.getOrDefault(BigInteger.ZERO, BigInteger.ZERO);
+        } else if (low == 0) {
             return BigInteger.ZERO;
         }
 
-        BigInteger matchedIndex = low.subtract(BigInteger.ONE);
-        return snapshot.at(VALUES).getOrDefault(matchedIndex, BigInteger.ZERO);
+        return values.getOrDefault(BigInteger.valueOf(low - 1), BigInteger.ZERO);
     }
 
     void _transfer(Address from, Address to, BigInteger value, Integer id, byte[] data) {
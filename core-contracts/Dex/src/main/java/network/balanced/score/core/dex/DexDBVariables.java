@@ -17,6 +17,7 @@
 package network.balanced.score.core.dex;
 
 import network.balanced.score.core.dex.db.LinkedListDB;
+import network.balanced.score.core.dex.db.PoolState;
 import network.balanced.score.core.dex.utils.LPMetadataDB;
 import network.balanced.score.lib.utils.IterableDictDB;
 import network.balanced.score.lib.utils.SetDB;
@@ -55,10 +56,17 @@ public class DexDBVariables {
     private static final String ICX_QUEUE = "icxQueue";
     private static final String ICX_QUEUE_ORDER_ID = "icxQueueOrderId";
     private static final String SICX_EARNINGS = "sicxEarnings";
+    private static final String ICX_QUEUE_SHARES = "icxQueueShares";
+    private static final String ICX_QUEUE_SHARE_TOTAL = "icxQueueShareTotal";
+    private static final String ICX_QUEUE_SICX_PER_SHARE = "icxQueueSicxPerShare";
+    private static final String ICX_QUEUE_USER_SICX_PER_SHARE = "icxQueueUserSicxPerShare";
     private static final String MARKETS_NAMES = "marketsToNames";
     private static final String TOKEN_PRECISIONS = "token_precisions";
+    private static final String TOKEN_UNIT_VALUES = "token_unit_values";
     private static final String CURRENT_TX = "current_tx";
     private static final String CONTINUOUS_REWARDS_DAY = "continuous_rewards_day";
+    private static final String POOL_STATE = "pool_state";
+    private static final String STABLESWAP_AMPLIFICATION = "stableswap_amplification";
     public static final String VERSION = "version";
 
 
@@ -129,6 +137,18 @@ public class DexDBVariables {
     final static DictDB<Address, BigInteger> sicxEarnings = Context.newDictDB(SICX_EARNINGS, BigInteger.class);
     final static VarDB<BigInteger> icxQueueTotal = Context.newVarDB(ICX_QUEUE_TOTAL, BigInteger.class);
 
+    // Orders in the sICX/ICX queue are shares of icxQueueTotal, every swap fills all of them pro rata.
+    // Legacy orders in icxQueue count as shares at their node size until the user next touches the queue.
+    // Map: user_address -> shares
+    final static DictDB<Address, BigInteger> icxQueueShares = Context.newDictDB(ICX_QUEUE_SHARES, BigInteger.class);
+    final static VarDB<BigInteger> icxQueueShareTotal = Context.newVarDB(ICX_QUEUE_SHARE_TOTAL, BigInteger.class);
+    // sICX earned per share since the share model was introduced, multiplied by EXA
+    final static VarDB<BigInteger> icxQueueSicxPerShare = Context.newVarDB(ICX_QUEUE_SICX_PER_SHARE,
+            BigInteger.class);
+    // Map: user_address -> icxQueueSicxPerShare when the user's earnings were last settled
+    final static DictDB<Address, BigInteger> icxQueueUserSicxPerShare =
+            Context.newDictDB(ICX_QUEUE_USER_SICX_PER_SHARE, BigInteger.class);
+
 
     final static IterableDictDB<String, Integer> namedMarkets = new IterableDictDB<>(NAMED_MARKETS, Integer.class,
             String.class, true);
@@ -136,6 +156,14 @@ public class DexDBVariables {
     final static DictDB<Integer, String> marketsToNames = Context.newDictDB(MARKETS_NAMES, String.class);
 
     final static DictDB<Address, BigInteger> tokenPrecisions = Context.newDictDB(TOKEN_PRECISIONS, BigInteger.class);
+    // 10^decimals of each token, written next to tokenPrecisions. Pool tokens seen before it existed are backfilled
+    // on update, other tokens when they join a new pool.
+    final static DictDB<Address, BigInteger> tokenUnitValues = Context.newDictDB(TOKEN_UNIT_VALUES, BigInteger.class);
+
+    // Amplification for pairs that will be created as StableSwap pools, copied into the pool state at creation
+    // Map: base token address -> quote token address -> amplification
+    final static BranchDB<Address, DictDB<Address, BigInteger>> stableSwapAmplification =
+            Context.newBranchDB(STABLESWAP_AMPLIFICATION, BigInteger.class);
 
     // VarDB used to track the current sent transaction. This helps bound iterations.
     final static VarDB<byte[]> currentTx = Context.newVarDB(CURRENT_TX, byte[].class);
@@ -144,4 +172,38 @@ public class DexDBVariables {
     final static VarDB<BigInteger> continuousRewardsDay = Context.newVarDB(CONTINUOUS_REWARDS_DAY, BigInteger.class);
 
     public static final VarDB<String> currentVersion = Context.newVarDB(VERSION, String.class);
+
+    // Packed base, quote, totals, active flag, LP total and fees of a pool. Supersedes poolBase, poolQuote,
+    // poolTotal, active and poolLpTotal once written, pools that were not touched since are read from those.
+    // The fees stay global, the packed copies are overridden with poolLpFee and poolBalnFee on every read.
+    // Map: pool_id -> PoolState
+    private final static DictDB<Integer, byte[]> poolState = Context.newDictDB(POOL_STATE, byte[].class);
+
+    static PoolState getPoolState(int id) {
+        byte[] state = poolState.get(id);
+        if (state != null) {
+            PoolState pool = PoolState.fromBytes(state);
+            pool.lpFee = poolLpFee.get();
+            pool.balnFee = poolBalnFee.get();
+            return pool;
+        }
+
+        Address base = poolBase.get(id);
+        if (base == null) {
+            return null;
+        }
+
+        Address quote = poolQuote.get(id);
+        PoolState pool = new PoolState(base, quote, poolLpFee.get(), poolBalnFee.get());
+        DictDB<Address, BigInteger> totalTokensInPool = poolTotal.at(id);
+        pool.baseTotal = totalTokensInPool.getOrDefault(base, BigInteger.ZERO);
+        pool.quoteTotal = totalTokensInPool.getOrDefault(quote, BigInteger.ZERO);
+        pool.active = active.getOrDefault(id, false);
+        pool.lpTotal = poolLpTotal.getOrDefault(id, BigInteger.ZERO);
+        return pool;
+    }
+
+    static void setPoolState(int id, PoolState pool) {
+        poolState.set(id, pool.toBytes());
+    }
 }
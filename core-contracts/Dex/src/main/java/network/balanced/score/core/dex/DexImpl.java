@@ -18,8 +18,9 @@ package network.balanced.score.core.dex;
 
 
 import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonArray;
 import com.eclipsesource.json.JsonObject;
-import network.balanced.score.core.dex.db.NodeDB;
+import network.balanced.score.core.dex.db.PoolState;
 import network.balanced.score.lib.structs.RewardsDataEntry;
 import network.balanced.score.lib.utils.Versions;
 import score.Address;
@@ -30,9 +31,11 @@ import score.annotation.External;
 import score.annotation.Optional;
 import score.annotation.Payable;
 import scorex.util.ArrayList;
+import scorex.util.HashMap;
 
 import java.math.BigInteger;
 import java.util.List;
+import java.util.Map;
 
 import static network.balanced.score.core.dex.utils.Check.isDexOn;
 import static network.balanced.score.core.dex.DexDBVariables.*;
@@ -69,30 +72,23 @@ public class DexImpl extends AbstractDex {
                 TAG + ": Minimum pool contribution is 10 ICX");
 
         Address user = Context.getCaller();
-        BigInteger oldOrderValue = BigInteger.ZERO;
-        BigInteger orderId = icxQueueOrderId.getOrDefault(user, BigInteger.ZERO);
-
-        // Upsert Order, so we can bump to the back of the queue
-        if (orderId.compareTo(BigInteger.ZERO) > 0) {
-            NodeDB node = icxQueue.getNode(orderId);
-            oldOrderValue = node.getSize();
-            orderValue = orderValue.add(oldOrderValue);
-            icxQueue.remove(orderId);
-        }
-
-        // Insert order to the back of the queue
-        BigInteger nextTailId = icxQueue.getTailId().add(BigInteger.ONE);
-        icxQueue.append(orderValue, user, nextTailId);
-        icxQueueOrderId.set(user, nextTailId);
+        settleSicxEarnings(user);
 
-        // Update total ICX queue size
+        BigInteger oldShares = getIcxQueueShares(user);
+        BigInteger oldShareTotal = icxQueueShareTotal.getOrDefault(BigInteger.ZERO);
         BigInteger oldIcxTotal = icxQueueTotal.getOrDefault(BigInteger.ZERO);
-        BigInteger currentIcxTotal = oldIcxTotal.add(orderValue).subtract(oldOrderValue);
-        icxQueueTotal.set(currentIcxTotal);
+        BigInteger newShares = orderValue;
+        if (oldShareTotal.signum() > 0) {
+            newShares = orderValue.multiply(oldShareTotal).divide(oldIcxTotal);
+        }
+
+        setIcxQueueShares(user, oldShares.add(newShares));
+        icxQueueShareTotal.set(oldShareTotal.add(newShares));
+        icxQueueTotal.set(oldIcxTotal.add(orderValue));
 
         activeAddresses.get(SICXICX_POOL_ID).add(user);
 
-        sendRewardsData(user, oldOrderValue, oldIcxTotal);
+        sendRewardsData(user, oldShares, oldShareTotal);
     }
 
     @External
@@ -101,31 +97,31 @@ public class DexImpl extends AbstractDex {
         checkStatus();
 
         Address user = Context.getCaller();
-        BigInteger orderId = icxQueueOrderId.getOrDefault(user, BigInteger.ZERO);
+        settleSicxEarnings(user);
 
-        require(orderId.compareTo(BigInteger.ZERO) > 0, TAG + ": No open order in sICX/ICX queue.");
+        BigInteger shares = getIcxQueueShares(user);
+        require(shares.compareTo(BigInteger.ZERO) > 0, TAG + ": No open order in sICX/ICX queue.");
 
-        NodeDB order = icxQueue.getNode(orderId);
-        BigInteger withdrawAmount = order.getSize();
+        BigInteger oldShareTotal = icxQueueShareTotal.get();
         BigInteger oldIcxTotal = icxQueueTotal.get();
-        BigInteger currentIcxTotal = oldIcxTotal.subtract(withdrawAmount);
+        BigInteger withdrawAmount = shares.multiply(oldIcxTotal).divide(oldShareTotal);
 
-        icxQueueTotal.set(currentIcxTotal);
-        icxQueue.remove(orderId);
-        icxQueueOrderId.set(user, null);
+        setIcxQueueShares(user, BigInteger.ZERO);
+        icxQueueShareTotal.set(oldShareTotal.subtract(shares));
+        icxQueueTotal.set(oldIcxTotal.subtract(withdrawAmount));
         activeAddresses.get(SICXICX_POOL_ID).remove(user);
 
-        sendRewardsData(user, withdrawAmount, oldIcxTotal);
+        sendRewardsData(user, shares, oldShareTotal);
         Context.transfer(user, withdrawAmount);
     }
 
-    private void sendRewardsData(Address user, BigInteger amount, BigInteger oldIcxTotal) {
+    private void sendRewardsData(Address user, BigInteger amount, BigInteger oldShareTotal) {
         List<RewardsDataEntry> rewardsList = new ArrayList<>();
         RewardsDataEntry rewardsEntry = new RewardsDataEntry();
         rewardsEntry._user = user;
         rewardsEntry._balance = amount;
         rewardsList.add(rewardsEntry);
-        Context.call(getRewards(), "updateBatchRewardsData", SICXICX_MARKET_NAME, oldIcxTotal, rewardsList);
+        Context.call(getRewards(), "updateBatchRewardsData", SICXICX_MARKET_NAME, oldShareTotal, rewardsList);
     }
 
     @External
@@ -147,19 +143,49 @@ public class DexImpl extends AbstractDex {
         // Call an internal method based on the "method" param sent in tokenFallBack
         switch (method) {
             case "_deposit": {
-                DictDB<Address, BigInteger> depositDetails = deposit.at(fromToken);
-                BigInteger userBalance = depositDetails.getOrDefault(_from, BigInteger.ZERO);
-                userBalance = userBalance.add(_value);
-                depositDetails.set(_from, userBalance);
-                Deposit(fromToken, _from, _value);
-
-                if (tokenPrecisions.get(fromToken) == null) {
-                    BigInteger decimalValue = (BigInteger) Context.call(fromToken, "decimals");
-                    tokenPrecisions.set(fromToken, decimalValue);
-                }
+                creditDeposit(fromToken, _from, _value);
                 break;
 
             }
+            case "_batchSwap": {
+                // The transferred tokens are deposited first, every leg then trades out of the deposits and
+                // credits its output back to them.
+                creditDeposit(fromToken, _from, _value);
+
+                JsonObject params = json.get("params").asObject();
+                require(params.contains("legs"), TAG + ": No legs specified in batch swap");
+                JsonArray legs = params.get("legs").asArray();
+                require(legs.size() > 0 && legs.size() <= MAX_BATCH_SWAP_LEGS,
+                        TAG + ": Batch swap must contain between 1 and " + MAX_BATCH_SWAP_LEGS + " legs");
+
+                Map<Address, BigInteger> balnFees = new HashMap<>();
+                for (int i = 0; i < legs.size(); i++) {
+                    JsonObject leg = legs.get(i).asObject();
+                    Address legFromToken = fromToken;
+                    if (leg.contains("fromToken")) {
+                        legFromToken = Address.fromString(leg.get("fromToken").asString());
+                    }
+                    require(leg.contains("toToken"), TAG + ": No toToken specified in swap");
+                    Address toToken = Address.fromString(leg.get("toToken").asString());
+                    BigInteger amount = convertToNumber(leg.get("amount"));
+                    require(amount != null && amount.signum() > 0, TAG + ": Must specify a positive amount");
+                    BigInteger minimumReceive = convertToNumber(leg.get("minimumReceive"), BigInteger.ZERO);
+                    require(minimumReceive.signum() >= 0,
+                            TAG + ": Must specify a positive number for minimum to receive");
+
+                    DictDB<Address, BigInteger> depositDetails = deposit.at(legFromToken);
+                    BigInteger depositAmount = depositDetails.getOrDefault(_from, BigInteger.ZERO);
+                    require(amount.compareTo(depositAmount) <= 0, TAG + ": Insufficient Balance");
+                    depositDetails.set(_from, depositAmount.subtract(amount));
+
+                    BigInteger received = applyExchange(legFromToken, toToken, _from, _from, amount, minimumReceive,
+                            balnFees);
+                    creditDeposit(toToken, _from, received);
+                }
+
+                transferBalnFees(balnFees);
+                break;
+            }
             case "_swap_icx": {
                 require(fromToken.equals(getSicx()),
                         TAG + ": InvalidAsset: _swap_icx can only be called with sICX");
@@ -196,6 +222,33 @@ public class DexImpl extends AbstractDex {
 
                 break;
             }
+            case "_swapPath": {
+                JsonObject params = json.get("params").asObject();
+                BigInteger minimumReceive = BigInteger.ZERO;
+                if (params.contains("minimumReceive")) {
+                    minimumReceive = convertToNumber(params.get("minimumReceive"));
+                    require(minimumReceive.signum() >= 0,
+                            TAG + ": Must specify a positive number for minimum to receive");
+                }
+
+                Address receiver;
+                if (params.contains("receiver")) {
+                    receiver = Address.fromString(params.get("receiver").asString());
+                } else {
+                    receiver = _from;
+                }
+
+                require(params.contains("path"), TAG + ": No path specified in swap");
+                JsonArray pathArray = params.get("path").asArray();
+                Address[] path = new Address[pathArray.size()];
+                for (int i = 0; i < pathArray.size(); i++) {
+                    path[i] = Address.fromString(pathArray.get(i).asString());
+                }
+
+                exchangePath(fromToken, path, _from, receiver, _value, minimumReceive);
+
+                break;
+            }
             case "_donate": {
                 require(_from.equals(Context.getOwner()), "Only owner is allowed to donate");
 
@@ -214,6 +267,19 @@ public class DexImpl extends AbstractDex {
         }
     }
 
+    private void creditDeposit(Address token, Address user, BigInteger value) {
+        DictDB<Address, BigInteger> depositDetails = deposit.at(token);
+        BigInteger userBalance = depositDetails.getOrDefault(user, BigInteger.ZERO);
+        userBalance = userBalance.add(value);
+        depositDetails.set(user, userBalance);
+        Deposit(token, user, value);
+
+        if (tokenPrecisions.get(token) == null) {
+            BigInteger decimalValue = (BigInteger) Context.call(token, "decimals");
+            setTokenPrecision(token, decimalValue);
+        }
+    }
+
     @External
     public void transfer(Address _to, BigInteger _value, BigInteger _id, @Optional byte[] _data) {
         isDexOn();
@@ -251,21 +317,22 @@ public class DexImpl extends AbstractDex {
         isDexOn();
         checkStatus();
         Address user = Context.getCaller();
-        Address baseToken = poolBase.get(_id.intValue());
-        require(baseToken != null, TAG + ": invalid pool id");
+        PoolState pool = getPoolState(_id.intValue());
+        require(pool != null, TAG + ": invalid pool id");
+        Address baseToken = pool.base;
         DictDB<Address, BigInteger> userLPBalance = balance.at(_id.intValue());
         BigInteger userBalance = userLPBalance.getOrDefault(user, BigInteger.ZERO);
 
-        require(active.getOrDefault(_id.intValue(), false), TAG + ": Pool is not active");
+        require(pool.active, TAG + ": Pool is not active");
         require(_value.compareTo(BigInteger.ZERO) > 0, TAG + " Cannot withdraw a negative or zero balance");
         require(_value.compareTo(userBalance) <= 0, TAG + ": Insufficient balance");
 
 
-        Address quoteToken = poolQuote.get(_id.intValue());
-        DictDB<Address, BigInteger> totalTokensInPool = poolTotal.at(_id.intValue());
-        BigInteger totalBase = totalTokensInPool.get(baseToken);
-        BigInteger totalQuote = totalTokensInPool.get(quoteToken);
-        BigInteger totalLPToken = poolLpTotal.get(_id.intValue());
+        Address quoteToken = pool.quote;
+        BigInteger totalBase = pool.baseTotal;
+        BigInteger totalQuote = pool.quoteTotal;
+        BigInteger totalLPToken = pool.lpTotal;
+        updatePriceAccumulator(_id.intValue(), pool);
 
         BigInteger userQuoteLeft = ((userBalance.subtract(_value)).multiply(totalQuote)).divide(totalLPToken);
 
@@ -285,10 +352,11 @@ public class DexImpl extends AbstractDex {
         require(newTotal.compareTo(MIN_LIQUIDITY) >= 0,
                 TAG + ": Cannot withdraw pool past minimum LP token amount");
 
-        totalTokensInPool.set(baseToken, newBase);
-        totalTokensInPool.set(quoteToken, newQuote);
+        pool.baseTotal = newBase;
+        pool.quoteTotal = newQuote;
+        pool.lpTotal = newTotal;
+        setPoolState(_id.intValue(), pool);
         userLPBalance.set(user, newUserBalance);
-        poolLpTotal.set(_id.intValue(), newTotal);
 
         Remove(_id, user, _value, baseToWithdraw, quoteToWithdraw);
         TransferSingle(user, user, MINT_ADDRESS, _id, _value);
@@ -343,7 +411,8 @@ public class DexImpl extends AbstractDex {
         BigInteger liquidity;
         BigInteger poolBaseAmount = BigInteger.ZERO;
         BigInteger poolQuoteAmount = BigInteger.ZERO;
-        BigInteger poolLpAmount = poolLpTotal.getOrDefault(id, BigInteger.ZERO);
+        BigInteger poolLpAmount = BigInteger.ZERO;
+        PoolState pool;
         BigInteger userLpAmount = balance.at(id).getOrDefault(user, BigInteger.ZERO);
 
         // We need to only supply new base and quote in the pool ratio.
@@ -363,18 +432,25 @@ public class DexImpl extends AbstractDex {
             id = nextPoolNonce;
             nonce.set(nextPoolNonce + 1);
 
-            active.set(id, true);
-            poolBase.set(id, _baseToken);
-            poolQuote.set(id, _quoteToken);
+            for (Address token : new Address[]{_baseToken, _quoteToken}) {
+                if (tokenUnitValues.get(token) == null) {
+                    setTokenPrecision(token, tokenPrecisions.get(token));
+                }
+            }
+
+            pool = new PoolState(_baseToken, _quoteToken, poolLpFee.get(), poolBalnFee.get());
+            pool.active = true;
+            pool.amplification = stableSwapAmplification.at(_baseToken).getOrDefault(_quoteToken, BigInteger.ZERO);
 
-            liquidity = (_baseValue.multiply(_quoteValue)).sqrt();
+            liquidity = getCurve(pool).getInitialLiquidity(_baseValue, _quoteValue);
             require(liquidity.compareTo(MIN_LIQUIDITY) >= 0,
                     TAG + ": Initial LP tokens must exceed " + MIN_LIQUIDITY);
             MarketAdded(BigInteger.valueOf(id), _baseToken, _quoteToken, _baseValue, _quoteValue);
         } else {
             // Pool already exists, supply in the permitted order.
-            Address poolBaseAddress = poolBase.get(id);
-            Address poolQuoteAddress = poolQuote.get(id);
+            pool = getPoolState(id);
+            Address poolBaseAddress = pool.base;
+            Address poolQuoteAddress = pool.quote;
 
             require((poolBaseAddress.equals(_baseToken)) && (poolQuoteAddress.equals(_quoteToken)),
                     TAG + ": Must supply " + _baseToken.toString() + " as base and " + _quoteToken.toString() +
@@ -384,9 +460,9 @@ public class DexImpl extends AbstractDex {
             // Min(ratio of quote from base, ratio of base from quote)
             // Any assets not used are refunded
 
-            DictDB<Address, BigInteger> totalTokensInPool = poolTotal.at(id);
-            poolBaseAmount = totalTokensInPool.get(_baseToken);
-            poolQuoteAmount = totalTokensInPool.get(_quoteToken);
+            poolBaseAmount = pool.baseTotal;
+            poolQuoteAmount = pool.quoteTotal;
+            poolLpAmount = pool.lpTotal;
 
 
             BigInteger baseFromQuote = _quoteValue.multiply(poolBaseAmount).divide(poolQuoteAmount);
@@ -407,13 +483,13 @@ public class DexImpl extends AbstractDex {
         }
 
         // Apply the funds to the pool
+        updatePriceAccumulator(id, pool);
 
         poolBaseAmount = poolBaseAmount.add(baseToCommit);
         poolQuoteAmount = poolQuoteAmount.add(quoteToCommit);
 
-        DictDB<Address, BigInteger> totalTokensInPool = poolTotal.at(id);
-        totalTokensInPool.set(_baseToken, poolBaseAmount);
-        totalTokensInPool.set(_quoteToken, poolQuoteAmount);
+        pool.baseTotal = poolBaseAmount;
+        pool.quoteTotal = poolQuoteAmount;
 
         // Deduct the user's deposit
         userDepositedBase = userDepositedBase.subtract(baseToCommit);
@@ -425,8 +501,9 @@ public class DexImpl extends AbstractDex {
         userLpAmount = userLpAmount.add(liquidity);
         poolLpAmount = poolLpAmount.add(liquidity);
 
+        pool.lpTotal = poolLpAmount;
+        setPoolState(id, pool);
         balance.at(id).set(user, userLpAmount);
-        poolLpTotal.set(id, poolLpAmount);
         Add(BigInteger.valueOf(id), user, liquidity, baseToCommit, quoteToCommit);
         TransferSingle(user, MINT_ADDRESS, user, BigInteger.valueOf(id), liquidity);
 
@@ -449,7 +526,8 @@ public class DexImpl extends AbstractDex {
             _value = BigInteger.ZERO;
         }
         Address sender = Context.getCaller();
-        BigInteger sicxEarning = getSicxEarnings(sender);
+        settleSicxEarnings(sender);
+        BigInteger sicxEarning = sicxEarnings.getOrDefault(sender, BigInteger.ZERO);
         if (_value.equals(BigInteger.ZERO)) {
             _value = sicxEarning;
         }
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.dex.curve;
+
+import network.balanced.score.core.dex.db.PoolState;
+import score.Address;
+
+import java.math.BigInteger;
+
+import static network.balanced.score.lib.utils.Constants.EXA;
+
+public class ConstantProductCurve implements Curve {
+
+    public static final ConstantProductCurve INSTANCE = new ConstantProductCurve();
+
+    private ConstantProductCurve() {
+    }
+
+    public BigInteger getAmountOut(PoolState pool, Address fromToken, BigInteger amountIn) {
+        BigInteger reserveIn = pool.getTotal(fromToken);
+        BigInteger reserveOut = pool.getTotal(pool.getOther(fromToken));
+        BigInteger newReserveOut = reserveIn.multiply(reserveOut).divide(reserveIn.add(amountIn));
+        return reserveOut.subtract(newReserveOut);
+    }
+
+    public BigInteger getAmountIn(PoolState pool, Address fromToken, BigInteger amountOut) {
+        BigInteger reserveIn = pool.getTotal(fromToken);
+        BigInteger reserveOut = pool.getTotal(pool.getOther(fromToken));
+        BigInteger k = reserveIn.multiply(reserveOut);
+        return ceilDivide(k, reserveOut.subtract(amountOut)).subtract(reserveIn);
+    }
+
+    public BigInteger getBasePrice(PoolState pool) {
+        if (pool.baseTotal.signum() == 0 || pool.quoteTotal.signum() == 0) {
+            return BigInteger.ZERO;
+        }
+
+        return pool.quoteTotal.multiply(EXA).divide(pool.baseTotal);
+    }
+
+    public BigInteger getQuotePrice(PoolState pool) {
+        if (pool.baseTotal.signum() == 0 || pool.quoteTotal.signum() == 0) {
+            return BigInteger.ZERO;
+        }
+
+        return pool.baseTotal.multiply(EXA).divide(pool.quoteTotal);
+    }
+
+    public BigInteger getInitialLiquidity(BigInteger baseValue, BigInteger quoteValue) {
+        return baseValue.multiply(quoteValue).sqrt();
+    }
+
+    public static BigInteger ceilDivide(BigInteger numerator, BigInteger denominator) {
+        BigInteger[] quotientAndRemainder = numerator.divideAndRemainder(denominator);
+        if (quotientAndRemainder[1].signum() > 0) {
+            return quotientAndRemainder[0].add(BigInteger.ONE);
+        }
+
+        return quotientAndRemainder[0];
+    }
+}
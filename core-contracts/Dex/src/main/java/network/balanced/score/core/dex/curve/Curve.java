@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.dex.curve;
+
+import network.balanced.score.core.dex.db.PoolState;
+import score.Address;
+
+import java.math.BigInteger;
+
+/**
+ * Pricing invariant of a pool. Amounts passed in are net of fees, fees are handled by the caller.
+ */
+public interface Curve {
+
+    // Amount of the other pool token released for amountIn of fromToken
+    BigInteger getAmountOut(PoolState pool, Address fromToken, BigInteger amountIn);
+
+    // Amount of fromToken needed to release amountOut of the other pool token
+    BigInteger getAmountIn(PoolState pool, Address fromToken, BigInteger amountOut);
+
+    // Marginal price of the base token in quote, scaled by EXA. Zero for an empty pool
+    BigInteger getBasePrice(PoolState pool);
+
+    // Marginal price of the quote token in base, scaled by EXA. Zero for an empty pool
+    BigInteger getQuotePrice(PoolState pool);
+
+    // LP tokens minted for the deposit that creates the pool
+    BigInteger getInitialLiquidity(BigInteger baseValue, BigInteger quoteValue);
+}
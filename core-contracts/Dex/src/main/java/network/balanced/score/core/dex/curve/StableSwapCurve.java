@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.dex.curve;
+
+import network.balanced.score.core.dex.db.PoolState;
+import score.Address;
+import score.Context;
+
+import java.math.BigInteger;
+
+import static network.balanced.score.core.dex.curve.ConstantProductCurve.ceilDivide;
+import static network.balanced.score.core.dex.utils.Const.MAX_CURVE_ITERATIONS;
+import static network.balanced.score.core.dex.utils.Const.TAG;
+import static network.balanced.score.lib.utils.Constants.EXA;
+
+/**
+ * Two token StableSwap invariant, A * 4 * (x + y) + D = A * 4 * D + D^3 / (4 * x * y). Balances are scaled to 18
+ * decimals before the invariant is evaluated, so that pegged tokens with different precisions trade at par.
+ * <p>
+ * An instance keeps the invariant of the last balances it solved for, callers that price and trade against the same
+ * pool state should share one instance.
+ */
+public class StableSwapCurve implements Curve {
+
+    private static final BigInteger FOUR = BigInteger.valueOf(4);
+
+    // Amplification times n^n, with n = 2 tokens
+    private final BigInteger ann;
+    private final BigInteger baseRate;
+    private final BigInteger quoteRate;
+
+    // Scaled base and quote balances of the last solved invariant
+    private BigInteger solvedBase;
+    private BigInteger solvedQuote;
+    private BigInteger solvedD;
+
+    public StableSwapCurve(BigInteger amplification, BigInteger baseRate, BigInteger quoteRate) {
+        this.ann = amplification.multiply(FOUR);
+        this.baseRate = baseRate;
+        this.quoteRate = quoteRate;
+    }
+
+    public BigInteger getAmountOut(PoolState pool, Address fromToken, BigInteger amountIn) {
+        BigInteger rateIn = getRate(pool, fromToken);
+        BigInteger rateOut = getRate(pool, pool.getOther(fromToken));
+        BigInteger x = pool.getTotal(fromToken).multiply(rateIn);
+        BigInteger y = pool.getTotal(pool.getOther(fromToken)).multiply(rateOut);
+
+        BigInteger newY = getY(x.add(amountIn.multiply(rateIn)), getD(pool));
+        // Round against the trader
+        BigInteger amountOut = y.subtract(newY).subtract(BigInteger.ONE).divide(rateOut);
+        return amountOut.max(BigInteger.ZERO);
+    }
+
+    public BigInteger getAmountIn(PoolState pool, Address fromToken, BigInteger amountOut) {
+        BigInteger rateIn = getRate(pool, fromToken);
+        BigInteger rateOut = getRate(pool, pool.getOther(fromToken));
+        BigInteger x = pool.getTotal(fromToken).multiply(rateIn);
+        BigInteger y = pool.getTotal(pool.getOther(fromToken)).multiply(rateOut);
+
+        BigInteger newX = getY(y.subtract(amountOut.multiply(rateOut)), getD(pool));
+        return ceilDivide(newX.subtract(x).add(BigInteger.ONE), rateIn);
+    }
+
+    public BigInteger getBasePrice(PoolState pool) {
+        return price(pool.baseTotal.multiply(baseRate), pool.quoteTotal.multiply(quoteRate), baseRate, quoteRate,
+                pool);
+    }
+
+    public BigInteger getQuotePrice(PoolState pool) {
+        return price(pool.quoteTotal.multiply(quoteRate), pool.baseTotal.multiply(baseRate), quoteRate, baseRate,
+                pool);
+    }
+
+    public BigInteger getInitialLiquidity(BigInteger baseValue, BigInteger quoteValue) {
+        return computeD(baseValue.multiply(baseRate), quoteValue.multiply(quoteRate));
+    }
+
+    private BigInteger getRate(PoolState pool, Address token) {
+        return token.equals(pool.base) ? baseRate : quoteRate;
+    }
+
+    private BigInteger getD(PoolState pool) {
+        BigInteger base = pool.baseTotal.multiply(baseRate);
+        BigInteger quote = pool.quoteTotal.multiply(quoteRate);
+        if (solvedD == null || !base.equals(solvedBase) || !quote.equals(solvedQuote)) {
+            solvedD = computeD(base, quote);
+            solvedBase = base;
+            solvedQuote = quote;
+        }
+
+        return solvedD;
+    }
+
+    /**
+     * Marginal price of x in y from the partial derivatives of the invariant, converted back to raw token units.
+     */
+    private BigInteger price(BigInteger x, BigInteger y, BigInteger rateX, BigInteger rateY, PoolState pool) {
+        if (x.signum() == 0 || y.signum() == 0) {
+            return BigInteger.ZERO;
+        }
+
+        BigInteger d = getD(pool);
+        BigInteger dP = d.multiply(d).divide(x.multiply(BigInteger.TWO)).multiply(d).divide(y.multiply(BigInteger.TWO));
+        BigInteger numerator = y.multiply(ann.multiply(x).add(dP)).multiply(rateX);
+        BigInteger denominator = x.multiply(ann.multiply(y).add(dP)).multiply(rateY);
+        return numerator.multiply(EXA).divide(denominator);
+    }
+
+    BigInteger computeD(BigInteger x, BigInteger y) {
+        BigInteger sum = x.add(y);
+        if (sum.signum() == 0) {
+            return BigInteger.ZERO;
+        }
+
+        BigInteger d = sum;
+        for (int i = 0; i < MAX_CURVE_ITERATIONS; i++) {
+            BigInteger dP = d.multiply(d).divide(x.multiply(BigInteger.TWO)).multiply(d)
+                    .divide(y.multiply(BigInteger.TWO));
+            BigInteger previous = d;
+            BigInteger numerator = ann.multiply(sum).add(dP.multiply(BigInteger.TWO)).multiply(d);
+            BigInteger denominator = ann.subtract(BigInteger.ONE).multiply(d).add(dP.multiply(BigInteger.valueOf(3)));
+            d = numerator.divide(denominator);
+            if (d.subtract(previous).abs().compareTo(BigInteger.ONE) <= 0) {
+                return d;
+            }
+        }
+
+        Context.revert(TAG + ": StableSwap invariant did not converge");
+        return d;
+    }
+
+    /**
+     * Balance of the other token that keeps the invariant at {@code d} when this token's balance is {@code x}.
+     */
+    BigInteger getY(BigInteger x, BigInteger d) {
+        Context.require(x.signum() > 0, TAG + ": Insufficient pool liquidity");
+        BigInteger c = d.multiply(d).divide(x.multiply(BigInteger.TWO)).multiply(d)
+                .divide(ann.multiply(BigInteger.TWO));
+        BigInteger b = x.add(d.divide(ann));
+
+        BigInteger y = d;
+        for (int i = 0; i < MAX_CURVE_ITERATIONS; i++) {
+            BigInteger previous = y;
+            y = y.multiply(y).add(c).divide(y.multiply(BigInteger.TWO).add(b).subtract(d));
+            if (y.subtract(previous).abs().compareTo(BigInteger.ONE) <= 0) {
+                return y;
+            }
+        }
+
+        Context.revert(TAG + ": StableSwap invariant did not converge");
+        return y;
+    }
+}
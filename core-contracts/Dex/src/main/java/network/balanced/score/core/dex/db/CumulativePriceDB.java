@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.dex.db;
+
+import score.BranchDB;
+import score.Context;
+import score.DictDB;
+import scorex.util.HashMap;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+import static network.balanced.score.core.dex.utils.Const.*;
+
+/**
+ * Uniswap v2 style price accumulators for the trading pools. The latest accumulator is rewritten whenever
+ * the pool reserves are about to change, and a copy is kept in a ring of {@code TWAP_OBSERVATION_SLOTS}
+ * observations at most once every {@code TWAP_OBSERVATION_PERIOD} so time weighted prices can be read back.
+ */
+public class CumulativePriceDB {
+
+    private static final DictDB<Integer, byte[]> latest = Context.newDictDB("cumulative_price", byte[].class);
+    private static final BranchDB<Integer, DictDB<Integer, byte[]>> observations = Context.newBranchDB(
+            "price_observations", byte[].class);
+    private static final DictDB<Integer, Integer> observationCount = Context.newDictDB("price_observation_count",
+            Integer.class);
+
+    /**
+     * Accumulates the marginal prices implied by the current reserves up to this block. Must be called before the
+     * reserves of the pool are modified.
+     */
+    public static void update(int id, BigInteger basePrice, BigInteger quotePrice) {
+        long now = Context.getBlockTimestamp();
+        PriceObservation current = getLatest(id);
+        if (current == null) {
+            current = new PriceObservation(now, BigInteger.ZERO, BigInteger.ZERO);
+            latest.set(id, current.toBytes());
+            observe(id, current);
+            return;
+        }
+
+        if (current.timestamp == now) {
+            return;
+        }
+
+        current = accumulate(current, now, basePrice, quotePrice);
+        latest.set(id, current.toBytes());
+
+        int count = observationCount.getOrDefault(id, 0);
+        PriceObservation lastObservation = getObservation(id, count - 1);
+        if (now - lastObservation.timestamp >= TWAP_OBSERVATION_PERIOD) {
+            observe(id, current);
+        }
+    }
+
+    public static Map<String, Object> getCumulativePrice(int id, BigInteger basePrice, BigInteger quotePrice) {
+        PriceObservation current = getCurrent(id, basePrice, quotePrice);
+        Map<String, Object> cumulativePrice = new HashMap<>();
+        cumulativePrice.put("base_price_cumulative", current.baseCumulative);
+        cumulativePrice.put("quote_price_cumulative", current.quoteCumulative);
+        cumulativePrice.put("timestamp", current.timestamp);
+        return cumulativePrice;
+    }
+
+    /**
+     * Returns the time weighted prices since the most recent observation at least {@code window} microseconds old.
+     * The covered period can therefore exceed the window by up to one observation period.
+     */
+    public static Map<String, Object> getTWAP(int id, BigInteger basePrice, BigInteger quotePrice, long window) {
+        Context.require(window > 0, TAG + ": TWAP window must be positive");
+        PriceObservation current = getCurrent(id, basePrice, quotePrice);
+        PriceObservation start = findObservation(id, current.timestamp - window);
+        Context.require(start != null, TAG + ": Not enough price history for the requested window");
+
+        long elapsed = current.timestamp - start.timestamp;
+        BigInteger period = BigInteger.valueOf(elapsed);
+        Map<String, Object> twap = new HashMap<>();
+        twap.put("base_price", current.baseCumulative.subtract(start.baseCumulative).divide(period));
+        twap.put("quote_price", current.quoteCumulative.subtract(start.quoteCumulative).divide(period));
+        twap.put("start", start.timestamp);
+        twap.put("end", current.timestamp);
+        return twap;
+    }
+
+    private static PriceObservation getCurrent(int id, BigInteger basePrice, BigInteger quotePrice) {
+        PriceObservation current = getLatest(id);
+        Context.require(current != null, TAG + ": No price history for pool " + id);
+        long now = Context.getBlockTimestamp();
+        if (current.timestamp == now) {
+            return current;
+        }
+
+        return accumulate(current, now, basePrice, quotePrice);
+    }
+
+    private static PriceObservation accumulate(PriceObservation last, long now, BigInteger basePrice,
+                                               BigInteger quotePrice) {
+        if (basePrice.signum() <= 0 || quotePrice.signum() <= 0) {
+            return new PriceObservation(now, last.baseCumulative, last.quoteCumulative);
+        }
+
+        BigInteger elapsed = BigInteger.valueOf(now - last.timestamp);
+        return new PriceObservation(now, last.baseCumulative.add(basePrice.multiply(elapsed)),
+                last.quoteCumulative.add(quotePrice.multiply(elapsed)));
+    }
+
+    private static PriceObservation findObservation(int id, long timestamp) {
+        int count = observationCount.getOrDefault(id, 0);
+        int low = Math.max(0, count - TWAP_OBSERVATION_SLOTS);
+        int high = count - 1;
+        if (high < low || getObservation(id, low).timestamp > timestamp) {
+            return null;
+        }
+
+        // Latest observation with a timestamp at or before the requested one
+        while (low < high) {
+            int mid = (low + high + 1) / 2;
+            if (getObservation(id, mid).timestamp <= timestamp) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return getObservation(id, low);
+    }
+
+    private static void observe(int id, PriceObservation observation) {
+        int count = observationCount.getOrDefault(id, 0);
+        observations.at(id).set(count % TWAP_OBSERVATION_SLOTS, observation.toBytes());
+        observationCount.set(id, count + 1);
+    }
+
+    private static PriceObservation getObservation(int id, int index) {
+        return PriceObservation.fromBytes(observations.at(id).get(index % TWAP_OBSERVATION_SLOTS));
+    }
+
+    private static PriceObservation getLatest(int id) {
+        byte[] bytes = latest.get(id);
+        if (bytes == null) {
+            return null;
+        }
+
+        return PriceObservation.fromBytes(bytes);
+    }
+}
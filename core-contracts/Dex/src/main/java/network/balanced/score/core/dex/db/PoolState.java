@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.dex.db;
+
+import score.Address;
+import score.ByteArrayObjectWriter;
+import score.Context;
+import score.ObjectReader;
+import score.ObjectWriter;
+
+import java.math.BigInteger;
+
+public class PoolState {
+
+    public Address base;
+    public Address quote;
+    public BigInteger baseTotal;
+    public BigInteger quoteTotal;
+    public boolean active;
+    public BigInteger lpTotal;
+    // Fee tier of the pool, both fees are divided by `FEE_SCALE` in const
+    public BigInteger lpFee;
+    public BigInteger balnFee;
+    // StableSwap amplification of the pool, zero for a constant product pool
+    public BigInteger amplification;
+
+    public PoolState(Address base, Address quote, BigInteger lpFee, BigInteger balnFee) {
+        this.base = base;
+        this.quote = quote;
+        this.baseTotal = BigInteger.ZERO;
+        this.quoteTotal = BigInteger.ZERO;
+        this.active = false;
+        this.lpTotal = BigInteger.ZERO;
+        this.lpFee = lpFee;
+        this.balnFee = balnFee;
+        this.amplification = BigInteger.ZERO;
+    }
+
+    public BigInteger getTotal(Address token) {
+        if (token.equals(base)) {
+            return baseTotal;
+        } else if (token.equals(quote)) {
+            return quoteTotal;
+        }
+
+        return BigInteger.ZERO;
+    }
+
+    public Address getOther(Address token) {
+        return token.equals(base) ? quote : base;
+    }
+
+    public void setTotal(Address token, BigInteger value) {
+        if (token.equals(base)) {
+            baseTotal = value;
+        } else {
+            Context.require(token.equals(quote), "Token " + token + " is not part of the pool");
+            quoteTotal = value;
+        }
+    }
+
+    // Detached copy for simulating trades without touching, or re-reading, the stored pool
+    public PoolState copy() {
+        PoolState copy = new PoolState(base, quote, lpFee, balnFee);
+        copy.baseTotal = baseTotal;
+        copy.quoteTotal = quoteTotal;
+        copy.active = active;
+        copy.lpTotal = lpTotal;
+        copy.amplification = amplification;
+        return copy;
+    }
+
+    public static void writeObject(ObjectWriter writer, PoolState obj) {
+        obj.writeObject(writer);
+    }
+
+    public static PoolState readObject(ObjectReader reader) {
+        reader.beginList();
+        PoolState obj = new PoolState(reader.readAddress(), reader.readAddress(), BigInteger.ZERO, BigInteger.ZERO);
+        obj.baseTotal = reader.readBigInteger();
+        obj.quoteTotal = reader.readBigInteger();
+        obj.active = reader.readBoolean();
+        obj.lpTotal = reader.readBigInteger();
+        obj.lpFee = reader.readBigInteger();
+        obj.balnFee = reader.readBigInteger();
+        if (reader.hasNext()) {
+            obj.amplification = reader.readBigInteger();
+        }
+        reader.end();
+        return obj;
+    }
+
+    public void writeObject(ObjectWriter writer) {
+        writer.beginList(9);
+        writer.write(this.base);
+        writer.write(this.quote);
+        writer.write(this.baseTotal);
+        writer.write(this.quoteTotal);
+        writer.write(this.active);
+        writer.write(this.lpTotal);
+        writer.write(this.lpFee);
+        writer.write(this.balnFee);
+        writer.write(this.amplification);
+        writer.end();
+    }
+
+    public static PoolState fromBytes(byte[] bytes) {
+        ObjectReader reader = Context.newByteArrayObjectReader("RLPn", bytes);
+        return PoolState.readObject(reader);
+    }
+
+    public byte[] toBytes() {
+        ByteArrayObjectWriter writer = Context.newByteArrayObjectWriter("RLPn");
+        PoolState.writeObject(writer, this);
+        return writer.toByteArray();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.dex.db;
+
+import score.ByteArrayObjectWriter;
+import score.Context;
+import score.ObjectReader;
+import score.ObjectWriter;
+
+import java.math.BigInteger;
+
+public class PriceObservation {
+
+    public long timestamp;
+    // Sum of base price in quote multiplied by the microseconds it was active
+    public BigInteger baseCumulative;
+    // Sum of quote price in base multiplied by the microseconds it was active
+    public BigInteger quoteCumulative;
+
+    public PriceObservation(long timestamp, BigInteger baseCumulative, BigInteger quoteCumulative) {
+        this.timestamp = timestamp;
+        this.baseCumulative = baseCumulative;
+        this.quoteCumulative = quoteCumulative;
+    }
+
+    public static void writeObject(ObjectWriter writer, PriceObservation obj) {
+        obj.writeObject(writer);
+    }
+
+    public static PriceObservation readObject(ObjectReader reader) {
+        reader.beginList();
+        long timestamp = reader.readLong();
+        BigInteger baseCumulative = reader.readBigInteger();
+        BigInteger quoteCumulative = reader.readBigInteger();
+        reader.end();
+        return new PriceObservation(timestamp, baseCumulative, quoteCumulative);
+    }
+
+    public void writeObject(ObjectWriter writer) {
+        writer.beginList(3);
+        writer.write(this.timestamp);
+        writer.write(this.baseCumulative);
+        writer.write(this.quoteCumulative);
+        writer.end();
+    }
+
+    public static PriceObservation fromBytes(byte[] bytes) {
+        ObjectReader reader = Context.newByteArrayObjectReader("RLPn", bytes);
+        return PriceObservation.readObject(reader);
+    }
+
+    public byte[] toBytes() {
+        ByteArrayObjectWriter writer = Context.newByteArrayObjectWriter("RLPn");
+        PriceObservation.writeObject(writer, this);
+        return writer.toByteArray();
+    }
+}
@@ -31,8 +31,21 @@ public class Const {
     public static final int SICXICX_POOL_ID = 1;
     public static final BigInteger MIN_LIQUIDITY = BigInteger.valueOf(1_000);
     public static final BigInteger FEE_SCALE = BigInteger.valueOf(10_000);
+    // ICX an sICX/ICX swap has to leave in the queue, so the ICX behind each queue share cannot be driven to dust
+    public static final BigInteger ICX_QUEUE_MIN_REMAINING = BigInteger.TEN.pow(19);
     public static final int FIRST_NON_BALANCED_POOL = 6;
-    public static final Integer ICX_QUEUE_FILL_DEPTH = 50;
+    public static final int MAX_SWAP_PATH_LENGTH = 4;
+    public static final int MAX_BATCH_SWAP_LEGS = 10;
+    public static final int QUOTE_REFINE_STEPS = 2;
+    public static final int MAX_POOL_HOLDERS_PAGE = 100;
+    // Newton iterations allowed to the StableSwap invariant before reverting
+    public static final int MAX_CURVE_ITERATIONS = 64;
+    public static final BigInteger MAX_AMPLIFICATION = BigInteger.valueOf(10_000);
+    // StableSwap pools compare balances scaled to this precision
+    public static final int STABLESWAP_DECIMALS = 18;
+    // Ten minutes between stored price observations, 144 of them cover a day
+    public static final long TWAP_OBSERVATION_PERIOD = 10 * 60 * 1_000_000L;
+    public static final int TWAP_OBSERVATION_SLOTS = 144;
 
     public static final int USDS_BNUSD_ID = 10;
     public static final int IUSDT_BNUSD_ID = 15;
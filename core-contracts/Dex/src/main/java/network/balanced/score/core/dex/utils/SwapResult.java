@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.dex.utils;
+
+import java.math.BigInteger;
+
+public class SwapResult {
+
+    // Amount of toToken taken out of the pool for the trader
+    public final BigInteger sendAmount;
+    // Fees charged on the input, in fromToken
+    public final BigInteger lpFees;
+    public final BigInteger balnFees;
+    // BALN fees owed to the fee handler, in the pool quote token
+    public final BigInteger quoteBalnFees;
+
+    public SwapResult(BigInteger sendAmount, BigInteger lpFees, BigInteger balnFees, BigInteger quoteBalnFees) {
+        this.sendAmount = sendAmount;
+        this.lpFees = lpFees;
+        this.balnFees = balnFees;
+        this.quoteBalnFees = quoteBalnFees;
+    }
+}
@@ -16,6 +16,7 @@
 
 package network.balanced.score.core.dex;
 
+import com.eclipsesource.json.JsonArray;
 import com.eclipsesource.json.JsonObject;
 import com.iconloop.score.test.Account;
 import network.balanced.score.core.dex.utils.Const;
@@ -30,14 +31,18 @@ import score.Context;
 
 import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static network.balanced.score.core.dex.utils.Const.FEE_SCALE;
 import static network.balanced.score.core.dex.utils.Const.SICXICX_POOL_ID;
 import static network.balanced.score.lib.utils.Constants.EXA;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 
 
 public class DexTestCore extends DexTestBase {
@@ -449,6 +454,276 @@ public class DexTestCore extends DexTestBase {
                 eq(feehandlerScore.getAddress()), eq(swappedBalnFee)));
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    void swap_usesUpdatedPoolFees() {
+        Account account = sm.createAccount();
+        contextMock.when(() -> Context.call(any(Address.class), eq("transfer"), any(Address.class),
+                any(BigInteger.class))).thenReturn(null);
+
+        BigInteger balnValue = BigInteger.valueOf(300L).multiply(EXA);
+        BigInteger bnusdValue = BigInteger.valueOf(100L).multiply(EXA);
+        supplyLiquidity(ownerAccount, balnScore, bnusdScore, balnValue, bnusdValue, false);
+        BigInteger poolId = (BigInteger) dexScore.call("getPoolId", balnScore.getAddress(), bnusdScore.getAddress());
+
+        // Fee changes apply to pools that already exist
+        dexScore.invoke(governanceScore, "setPoolLpFee", BigInteger.ZERO);
+        dexScore.invoke(governanceScore, "setPoolBalnFee", BigInteger.ZERO);
+
+        BigInteger value = BigInteger.valueOf(30L).multiply(EXA);
+        BigInteger newBase = balnValue.add(value);
+        BigInteger newQuote = balnValue.multiply(bnusdValue).divide(newBase);
+
+        JsonObject jsonData = new JsonObject()
+                .add("method", "_swap")
+                .add("params", new JsonObject().add("toToken", bnusdScore.getAddress().toString()));
+        dexScore.invoke(balnScore, "tokenFallback", account.getAddress(), value, jsonData.toString().getBytes());
+
+        Map<String, Object> poolStats = (Map<String, Object>) dexScore.call("getPoolStats", poolId);
+        assertEquals(newBase, poolStats.get("base"));
+        assertEquals(newQuote, poolStats.get("quote"));
+        contextMock.verify(() -> Context.call(eq(bnusdScore.getAddress()), eq("transfer"), eq(account.getAddress()),
+                eq(bnusdValue.subtract(newQuote))));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void tokenFallback_swapPath() {
+        Account account = sm.createAccount();
+        contextMock.when(() -> Context.call(any(Address.class), eq("transfer"), any(Address.class),
+                any(BigInteger.class))).thenReturn(null);
+
+        BigInteger balnValue = BigInteger.valueOf(300L).multiply(EXA);
+        BigInteger bnusdValue = BigInteger.valueOf(100L).multiply(EXA);
+        BigInteger sicxValue = BigInteger.valueOf(400L).multiply(EXA);
+        supplyLiquidity(ownerAccount, balnScore, bnusdScore, balnValue, bnusdValue, false);
+        supplyLiquidity(ownerAccount, sicxScore, bnusdScore, sicxValue, bnusdValue, false);
+        BigInteger balnPoolId = (BigInteger) dexScore.call("getPoolId", balnScore.getAddress(),
+                bnusdScore.getAddress());
+        BigInteger sicxPoolId = (BigInteger) dexScore.call("getPoolId", sicxScore.getAddress(),
+                bnusdScore.getAddress());
+
+        Map<String, BigInteger> fees = (Map<String, BigInteger>) dexScore.call("getFees");
+        BigInteger lpFee = fees.get("pool_lp_fee");
+        BigInteger balnFee = fees.get("pool_baln_fee");
+
+        // First hop sells BALN for bnUSD, the BALN fee is swapped to bnUSD inside the pool
+        BigInteger value = BigInteger.valueOf(30L).multiply(EXA);
+        BigInteger firstLpFee = value.multiply(lpFee).divide(FEE_SCALE);
+        BigInteger firstBalnFee = value.multiply(balnFee).divide(FEE_SCALE);
+        BigInteger balnAfterTrade = balnValue.add(value.subtract(firstLpFee).subtract(firstBalnFee));
+        BigInteger bnusdAfterTrade = balnValue.multiply(bnusdValue).divide(balnAfterTrade);
+        BigInteger intermediateAmount = bnusdValue.subtract(bnusdAfterTrade);
+        balnAfterTrade = balnAfterTrade.add(firstLpFee);
+        BigInteger balnAfterFee = balnAfterTrade.add(firstBalnFee);
+        BigInteger bnusdAfterFee = balnAfterTrade.multiply(bnusdAfterTrade).divide(balnAfterFee);
+        BigInteger firstSwappedFee = bnusdAfterTrade.subtract(bnusdAfterFee);
+
+        // Second hop buys sICX with the bnUSD that never left the Dex
+        BigInteger secondLpFee = intermediateAmount.multiply(lpFee).divide(FEE_SCALE);
+        BigInteger secondBalnFee = intermediateAmount.multiply(balnFee).divide(FEE_SCALE);
+        BigInteger bnusdInSicxPool = bnusdValue.add(intermediateAmount.subtract(secondLpFee).subtract(secondBalnFee));
+        BigInteger sicxAfterTrade = bnusdValue.multiply(sicxValue).divide(bnusdInSicxPool);
+        BigInteger sendAmount = sicxValue.subtract(sicxAfterTrade);
+        bnusdInSicxPool = bnusdInSicxPool.add(secondLpFee);
+
+        JsonArray path = new JsonArray()
+                .add(bnusdScore.getAddress().toString())
+                .add(sicxScore.getAddress().toString());
+        JsonObject params = new JsonObject()
+                .add("path", path)
+                .add("minimumReceive", sendAmount.toString());
+        JsonObject jsonData = new JsonObject()
+                .add("method", "_swapPath")
+                .add("params", params);
+        dexScore.invoke(balnScore, "tokenFallback", account.getAddress(), value, jsonData.toString().getBytes());
+
+        Map<String, Object> balnPoolStats = (Map<String, Object>) dexScore.call("getPoolStats", balnPoolId);
+        Map<String, Object> sicxPoolStats = (Map<String, Object>) dexScore.call("getPoolStats", sicxPoolId);
+        assertEquals(balnAfterFee, balnPoolStats.get("base"));
+        assertEquals(bnusdAfterFee, balnPoolStats.get("quote"));
+        assertEquals(sicxAfterTrade, sicxPoolStats.get("base"));
+        assertEquals(bnusdInSicxPool, sicxPoolStats.get("quote"));
+
+        contextMock.verify(() -> Context.call(eq(sicxScore.getAddress()), eq("transfer"), eq(account.getAddress()),
+                eq(sendAmount)));
+        contextMock.verify(() -> Context.call(eq(bnusdScore.getAddress()), eq("transfer"),
+                eq(feehandlerScore.getAddress()), eq(firstSwappedFee.add(secondBalnFee))));
+        contextMock.verify(() -> Context.call(eq(bnusdScore.getAddress()), eq("transfer"), eq(account.getAddress()),
+                any(BigInteger.class)), never());
+
+        JsonObject belowMinimum = new JsonObject()
+                .add("method", "_swapPath")
+                .add("params", new JsonObject()
+                        .add("path", path)
+                        .add("minimumReceive", sendAmount.multiply(BigInteger.TWO).toString()));
+        Executable belowMinimumReceive = () -> dexScore.invoke(balnScore, "tokenFallback", account.getAddress(),
+                value, belowMinimum.toString().getBytes());
+        expectErrorMessage(belowMinimumReceive, "MinimumReceiveError");
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void quote_matchesSwap() {
+        Account account = sm.createAccount();
+        contextMock.when(() -> Context.call(any(Address.class), eq("transfer"), any(Address.class),
+                any(BigInteger.class))).thenReturn(null);
+
+        BigInteger balnValue = BigInteger.valueOf(300L).multiply(EXA);
+        BigInteger bnusdValue = BigInteger.valueOf(100L).multiply(EXA);
+        BigInteger sicxValue = BigInteger.valueOf(400L).multiply(EXA);
+        supplyLiquidity(ownerAccount, balnScore, bnusdScore, balnValue, bnusdValue, false);
+        supplyLiquidity(ownerAccount, sicxScore, bnusdScore, sicxValue, bnusdValue, false);
+
+        BigInteger value = BigInteger.valueOf(30L).multiply(EXA);
+        Map<String, Object> firstHop = (Map<String, Object>) dexScore.call("quoteExactIn", balnScore.getAddress(),
+                bnusdScore.getAddress(), value);
+        BigInteger intermediateAmount = (BigInteger) firstHop.get("amount_out");
+        Map<String, Object> secondHop = (Map<String, Object>) dexScore.call("quoteExactIn", bnusdScore.getAddress(),
+                sicxScore.getAddress(), intermediateAmount);
+        BigInteger sendAmount = (BigInteger) secondHop.get("amount_out");
+
+        Address[] path = new Address[]{balnScore.getAddress(), bnusdScore.getAddress(), sicxScore.getAddress()};
+        Map<String, Object> pathQuote = (Map<String, Object>) dexScore.call("quotePath", path, value);
+        assertEquals(sendAmount, pathQuote.get("amount_out"));
+        assertEquals(2, ((List<Object>) pathQuote.get("hops")).size());
+
+        // Buying back exactly the quoted output never needs more than the original input
+        Map<String, Object> exactOut = (Map<String, Object>) dexScore.call("quoteExactOut", balnScore.getAddress(),
+                bnusdScore.getAddress(), intermediateAmount);
+        BigInteger requiredInput = (BigInteger) exactOut.get("amount_in");
+        assertTrue(requiredInput.compareTo(value) <= 0);
+        assertTrue(((BigInteger) exactOut.get("amount_out")).compareTo(intermediateAmount) >= 0);
+        Map<String, Object> belowRequired = (Map<String, Object>) dexScore.call("quoteExactIn",
+                balnScore.getAddress(), bnusdScore.getAddress(), requiredInput.subtract(BigInteger.ONE));
+        assertTrue(((BigInteger) belowRequired.get("amount_out")).compareTo(intermediateAmount) < 0);
+
+        JsonObject jsonData = new JsonObject()
+                .add("method", "_swapPath")
+                .add("params", new JsonObject()
+                        .add("path", new JsonArray()
+                                .add(bnusdScore.getAddress().toString())
+                                .add(sicxScore.getAddress().toString())));
+        dexScore.invoke(balnScore, "tokenFallback", account.getAddress(), value, jsonData.toString().getBytes());
+        contextMock.verify(() -> Context.call(eq(sicxScore.getAddress()), eq("transfer"), eq(account.getAddress()),
+                eq(sendAmount)));
+
+        Executable quoteOutOfRange = () -> dexScore.call("quoteExactOut", balnScore.getAddress(),
+                bnusdScore.getAddress(), BigInteger.valueOf(1000L).multiply(EXA));
+        expectErrorMessage(quoteOutOfRange, "Invalid amount to quote");
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void stableSwapPool_swap() {
+        Account account = sm.createAccount();
+        contextMock.when(() -> Context.call(any(Address.class), eq("transfer"), any(Address.class),
+                any(BigInteger.class))).thenReturn(null);
+
+        BigInteger amplification = BigInteger.valueOf(100L);
+        BigInteger reserve = BigInteger.valueOf(1000L).multiply(EXA);
+        dexScore.invoke(governanceScore, "setStableSwapPair", balnScore.getAddress(), bnusdScore.getAddress(),
+                amplification);
+        supplyLiquidity(ownerAccount, balnScore, bnusdScore, reserve, reserve, false);
+        supplyLiquidity(ownerAccount, sicxScore, bnusdScore, reserve, reserve, false);
+        BigInteger stablePoolId = (BigInteger) dexScore.call("getPoolId", balnScore.getAddress(),
+                bnusdScore.getAddress());
+        BigInteger constantProductPoolId = (BigInteger) dexScore.call("getPoolId", sicxScore.getAddress(),
+                bnusdScore.getAddress());
+        assertEquals(amplification, dexScore.call("getPoolAmplification", stablePoolId));
+        assertEquals(BigInteger.ZERO, dexScore.call("getPoolAmplification", constantProductPoolId));
+        assertEquals(EXA, dexScore.call("getBasePriceInQuote", stablePoolId));
+
+        // The amplified curve gives more depth around the peg than the constant product pool of the same size
+        BigInteger value = BigInteger.valueOf(100L).multiply(EXA);
+        Map<String, Object> stableQuote = (Map<String, Object>) dexScore.call("quoteExactIn", balnScore.getAddress(),
+                bnusdScore.getAddress(), value);
+        Map<String, Object> constantProductQuote = (Map<String, Object>) dexScore.call("quoteExactIn",
+                sicxScore.getAddress(), bnusdScore.getAddress(), value);
+        BigInteger stableOut = (BigInteger) stableQuote.get("amount_out");
+        BigInteger fees = (BigInteger) stableQuote.get("lp_fees");
+        fees = fees.add((BigInteger) stableQuote.get("baln_fees"));
+        assertTrue(stableOut.compareTo((BigInteger) constantProductQuote.get("amount_out")) > 0);
+        assertTrue(stableOut.compareTo(value.subtract(fees)) < 0);
+
+        Map<String, Object> exactOut = (Map<String, Object>) dexScore.call("quoteExactOut", balnScore.getAddress(),
+                bnusdScore.getAddress(), stableOut);
+        assertTrue(((BigInteger) exactOut.get("amount_in")).compareTo(value) <= 0);
+
+        JsonObject jsonData = new JsonObject()
+                .add("method", "_swap")
+                .add("params", new JsonObject().add("toToken", bnusdScore.getAddress().toString()));
+        dexScore.invoke(balnScore, "tokenFallback", account.getAddress(), value, jsonData.toString().getBytes());
+        contextMock.verify(() -> Context.call(eq(bnusdScore.getAddress()), eq("transfer"), eq(account.getAddress()),
+                eq(stableOut)));
+
+        Executable changeExistingPool = () -> dexScore.invoke(governanceScore, "setStableSwapPair",
+                sicxScore.getAddress(), bnusdScore.getAddress(), amplification);
+        expectErrorMessage(changeExistingPool, "The curve of an existing pool cannot be changed");
+    }
+
+    @Test
+    void stableSwapPool_eitherOrientation() {
+        BigInteger amplification = BigInteger.valueOf(100L);
+        BigInteger reserve = BigInteger.valueOf(1000L).multiply(EXA);
+        dexScore.invoke(governanceScore, "setStableSwapPair", bnusdScore.getAddress(), balnScore.getAddress(),
+                amplification);
+        supplyLiquidity(ownerAccount, balnScore, bnusdScore, reserve, reserve, false);
+
+        BigInteger poolId = (BigInteger) dexScore.call("getPoolId", balnScore.getAddress(), bnusdScore.getAddress());
+        assertEquals(amplification, dexScore.call("getPoolAmplification", poolId));
+    }
+
+    @Test
+    void tokenFallback_batchSwap() {
+        Account account = sm.createAccount();
+        contextMock.when(() -> Context.call(any(Address.class), eq("transfer"), any(Address.class),
+                any(BigInteger.class))).thenReturn(null);
+
+        BigInteger balnValue = BigInteger.valueOf(300L).multiply(EXA);
+        BigInteger bnusdValue = BigInteger.valueOf(100L).multiply(EXA);
+        BigInteger sicxValue = BigInteger.valueOf(400L).multiply(EXA);
+        supplyLiquidity(ownerAccount, balnScore, bnusdScore, balnValue, bnusdValue, false);
+        supplyLiquidity(ownerAccount, sicxScore, bnusdScore, sicxValue, bnusdValue, false);
+
+        BigInteger value = BigInteger.valueOf(30L).multiply(EXA);
+        BigInteger firstLeg = BigInteger.valueOf(20L).multiply(EXA);
+        BigInteger secondLeg = BigInteger.valueOf(2L).multiply(EXA);
+        JsonArray legs = new JsonArray()
+                .add(new JsonObject()
+                        .add("toToken", bnusdScore.getAddress().toString())
+                        .add("amount", firstLeg.toString()))
+                .add(new JsonObject()
+                        .add("fromToken", bnusdScore.getAddress().toString())
+                        .add("toToken", sicxScore.getAddress().toString())
+                        .add("amount", secondLeg.toString()));
+        JsonObject jsonData = new JsonObject()
+                .add("method", "_batchSwap")
+                .add("params", new JsonObject().add("legs", legs));
+        dexScore.invoke(balnScore, "tokenFallback", account.getAddress(), value, jsonData.toString().getBytes());
+
+        assertEquals(value.subtract(firstLeg), dexScore.call("getDeposit", balnScore.getAddress(),
+                account.getAddress()));
+        BigInteger bnusdDeposit = (BigInteger) dexScore.call("getDeposit", bnusdScore.getAddress(),
+                account.getAddress());
+        BigInteger sicxDeposit = (BigInteger) dexScore.call("getDeposit", sicxScore.getAddress(),
+                account.getAddress());
+        assertEquals(1, bnusdDeposit.compareTo(BigInteger.ZERO));
+        assertEquals(1, sicxDeposit.compareTo(BigInteger.ZERO));
+        contextMock.verify(() -> Context.call(any(Address.class), eq("transfer"), eq(account.getAddress()),
+                any(BigInteger.class)), never());
+
+        JsonObject overdrawn = new JsonObject()
+                .add("method", "_batchSwap")
+                .add("params", new JsonObject().add("legs", new JsonArray().add(new JsonObject()
+                        .add("fromToken", sicxScore.getAddress().toString())
+                        .add("toToken", bnusdScore.getAddress().toString())
+                        .add("amount", sicxDeposit.add(BigInteger.ONE).toString()))));
+        Executable insufficientDeposit = () -> dexScore.invoke(balnScore, "tokenFallback", account.getAddress(),
+                value, overdrawn.toString().getBytes());
+        expectErrorMessage(insufficientDeposit, "Insufficient Balance");
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     void tokenFallback_donate() {
@@ -541,6 +816,92 @@ public class DexTestCore extends DexTestBase {
 
     }
 
+    @Test
+    void swapIcx_fillsAllOrdersProRata() {
+        contextMock.when(() -> Context.call(eq(stakingScore.getAddress()), eq("getTodayRate"))).thenReturn(EXA);
+        contextMock.when(() -> Context.call(any(Address.class), eq("transfer"), any(Address.class),
+                any(BigInteger.class))).thenReturn(null);
+        contextMock.when(() -> Context.transfer(any(Address.class), any(BigInteger.class))).then(invocationOnMock -> null);
+
+        // More orders than a single swap could previously walk through
+        BigInteger orderValue = BigInteger.valueOf(10L).multiply(EXA);
+        int numberOfOrders = 60;
+        Account[] suppliers = new Account[numberOfOrders];
+        for (int i = 0; i < numberOfOrders; i++) {
+            suppliers[i] = sm.createAccount();
+            supplyIcxLiquidity(suppliers[i], orderValue);
+        }
+        Account largeSupplier = sm.createAccount();
+        supplyIcxLiquidity(largeSupplier, orderValue.multiply(BigInteger.valueOf(numberOfOrders)));
+
+        BigInteger swapValue = BigInteger.valueOf(1000L).multiply(EXA);
+        JsonObject jsonData = new JsonObject();
+        jsonData.add("method", "_swap_icx");
+        dexScore.invoke(sicxScore, "tokenFallback", ownerAccount.getAddress(), swapValue,
+                jsonData.toString().getBytes());
+
+        // Half of the queue belongs to the large supplier, the small orders share the other half equally
+        BigInteger lpSicx = swapValue.multiply(BigInteger.valueOf(997L)).divide(BigInteger.valueOf(1000L));
+        BigInteger filledIcx = swapValue.multiply(BigInteger.valueOf(99L)).divide(BigInteger.valueOf(100L));
+        BigInteger queueTotal = orderValue.multiply(BigInteger.valueOf(2L * numberOfOrders));
+        BigInteger smallOrderShare = BigInteger.valueOf(2L * numberOfOrders);
+        BigInteger sicxPerShare = lpSicx.multiply(EXA).divide(queueTotal);
+        BigInteger largeShares = queueTotal.divide(BigInteger.TWO);
+        assertEquals(largeShares.multiply(sicxPerShare).divide(EXA), dexScore.call("getSicxEarnings",
+                largeSupplier.getAddress()));
+        assertEquals(queueTotal.subtract(filledIcx).divide(BigInteger.TWO), dexScore.call("getICXBalance",
+                largeSupplier.getAddress()));
+        for (Account supplier : suppliers) {
+            assertEquals(orderValue.multiply(sicxPerShare).divide(EXA), dexScore.call("getSicxEarnings",
+                    supplier.getAddress()));
+            assertEquals(queueTotal.subtract(filledIcx).divide(smallOrderShare), dexScore.call("getICXBalance",
+                    supplier.getAddress()));
+        }
+
+        // Share balances reported to rewards are not changed by the fill
+        contextMock.verify(() -> Context.call(eq(rewardsScore.getAddress()), eq("updateBatchRewardsData"),
+                any(String.class), any(BigInteger.class), any()), times(numberOfOrders + 1));
+    }
+
+    @Test
+    void swapIcx_leavesMinimumInQueue() {
+        contextMock.when(() -> Context.call(eq(stakingScore.getAddress()), eq("getTodayRate"))).thenReturn(EXA);
+        contextMock.when(() -> Context.call(any(Address.class), eq("transfer"), any(Address.class),
+                any(BigInteger.class))).thenReturn(null);
+        contextMock.when(() -> Context.transfer(any(Address.class), any(BigInteger.class))).then(invocationOnMock -> null);
+
+        Account supplier = sm.createAccount();
+        BigInteger orderValue = BigInteger.valueOf(100L).multiply(EXA);
+        supplyIcxLiquidity(supplier, orderValue);
+
+        JsonObject jsonData = new JsonObject();
+        jsonData.add("method", "_swap_icx");
+        byte[] data = jsonData.toString().getBytes();
+        String expectedErrorMessage = "Reverted(0): Balanced DEX: InsufficientLiquidityError: Not enough ICX suppliers.";
+
+        // Filling 99 ICX would leave less than the minimum behind
+        Executable drainQueue = () -> dexScore.invoke(sicxScore, "tokenFallback", ownerAccount.getAddress(),
+                orderValue, data);
+        expectErrorMessage(drainQueue, expectedErrorMessage);
+
+        // Filling 89.991 ICX leaves 10.009 ICX behind
+        BigInteger swapValue = new BigInteger("90900000000000000000");
+        dexScore.invoke(sicxScore, "tokenFallback", ownerAccount.getAddress(), swapValue, data);
+        BigInteger remaining = new BigInteger("10009000000000000000");
+        assertEquals(remaining, dexScore.call("getICXBalance", supplier.getAddress()));
+
+        Executable fillBelowMinimum = () -> dexScore.invoke(sicxScore, "tokenFallback", ownerAccount.getAddress(),
+                EXA, data);
+        expectErrorMessage(fillBelowMinimum, expectedErrorMessage);
+
+        // A new order is still minted shares at a sane rate and earns its share of the next fill
+        Account newSupplier = sm.createAccount();
+        supplyIcxLiquidity(newSupplier, orderValue);
+        assertEquals(orderValue.subtract(BigInteger.ONE), dexScore.call("getICXBalance", newSupplier.getAddress()));
+        dexScore.invoke(sicxScore, "tokenFallback", ownerAccount.getAddress(), swapValue, data);
+        assertTrue(((BigInteger) dexScore.call("getSicxEarnings", newSupplier.getAddress())).signum() > 0);
+    }
+
     @Test
     void onIRC31Received() {
         // Arrange.
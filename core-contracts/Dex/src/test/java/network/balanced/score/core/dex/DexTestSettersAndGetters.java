@@ -20,6 +20,7 @@ import com.iconloop.score.test.Account;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
 import score.Address;
 import score.Context;
 
@@ -28,10 +29,13 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
+import static network.balanced.score.core.dex.utils.Const.TWAP_OBSERVATION_PERIOD;
 import static network.balanced.score.lib.utils.Constants.EXA;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 
 
 public class DexTestSettersAndGetters extends DexTestBase {
@@ -112,6 +116,41 @@ public class DexTestSettersAndGetters extends DexTestBase {
         assertEquals(expectedData, returnedData);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void getBalancesAndSupply_normalPool() {
+        // Arrange - variables.
+        String poolName = "bnUSD/BALN";
+        BigInteger poolId = BigInteger.TWO;
+        Account otherAccount = sm.createAccount();
+        Address[] owners = new Address[]{ownerAccount.getAddress(), otherAccount.getAddress()};
+        Map<String, BigInteger> expectedData = Map.of(
+                ownerAccount.getAddress().toString(), BigInteger.valueOf(100),
+                otherAccount.getAddress().toString(), BigInteger.valueOf(50),
+                "_totalSupply", BigInteger.valueOf(200)
+        );
+
+        // Arrange - Setup dex contract.
+        dexScore.invoke(governanceScore, "setMarketName", poolId, poolName);
+
+        // Arrange - Mock the bulk lookup on the stakedLP contract.
+        contextMock.when(() -> Context.call(eq(stakedLPScore.getAddress()), eq("getBalancesAndSupply"), eq(poolName),
+                any(Address[].class))).thenReturn(expectedData);
+
+        // Act.
+        Map<String, BigInteger> returnedData = (Map<String, BigInteger>) dexScore.call("getBalancesAndSupply",
+                poolName, (Object) owners);
+
+        // Assert.
+        assertEquals(expectedData, returnedData);
+        contextMock.verify(() -> Context.call(eq(stakedLPScore.getAddress()), eq("getBalancesAndSupply"),
+                eq(poolName), any(Address[].class)));
+        contextMock.verify(() -> Context.call(eq(stakedLPScore.getAddress()), eq("balanceOf"), any(Address.class),
+                any(BigInteger.class)), never());
+        contextMock.verify(() -> Context.call(eq(stakedLPScore.getAddress()), eq("totalStaked"),
+                any(BigInteger.class)), never());
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     void getBalanceAndSupply_sicxIcxPool() {
@@ -407,6 +446,41 @@ public class DexTestSettersAndGetters extends DexTestBase {
         assertEquals(expectedPrice, price);
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    void getCumulativePriceAndTWAP() {
+        // Arrange.
+        BigInteger bnusdValue = BigInteger.valueOf(195).multiply(EXA);
+        BigInteger balnValue = BigInteger.valueOf(350).multiply(EXA);
+        BigInteger basePrice = computePrice(balnValue, bnusdValue);
+        BigInteger quotePrice = computePrice(bnusdValue, balnValue);
+        BigInteger poolId = BigInteger.TWO;
+        supplyLiquidity(ownerAccount, bnusdScore, balnScore, bnusdValue, balnValue, false);
+
+        // Act.
+        Map<String, Object> start = (Map<String, Object>) dexScore.call("getCumulativePrice", poolId);
+        // One day of two second blocks
+        sm.getBlock().increase(43200);
+        Map<String, Object> end = (Map<String, Object>) dexScore.call("getCumulativePrice", poolId);
+
+        // Assert.
+        BigInteger elapsed = BigInteger.valueOf((long) end.get("timestamp") - (long) start.get("timestamp"));
+        BigInteger baseCumulative = ((BigInteger) end.get("base_price_cumulative"))
+                .subtract((BigInteger) start.get("base_price_cumulative"));
+        BigInteger quoteCumulative = ((BigInteger) end.get("quote_price_cumulative"))
+                .subtract((BigInteger) start.get("quote_price_cumulative"));
+        assertEquals(basePrice.multiply(elapsed), baseCumulative);
+        assertEquals(quotePrice.multiply(elapsed), quoteCumulative);
+
+        BigInteger window = BigInteger.valueOf(TWAP_OBSERVATION_PERIOD);
+        Map<String, Object> twap = (Map<String, Object>) dexScore.call("getTWAP", poolId, window);
+        assertEquals(basePrice, twap.get("base_price"));
+        assertEquals(quotePrice, twap.get("quote_price"));
+
+        Executable beforePoolCreation = () -> dexScore.call("getTWAP", poolId, window.multiply(BigInteger.valueOf(1000)));
+        expectErrorMessage(beforePoolCreation, "Not enough price history for the requested window");
+    }
+
     @Test
     void getBalnPrice() {
         // Arrange.
@@ -596,6 +670,41 @@ public class DexTestSettersAndGetters extends DexTestBase {
         assertEquals(BigInteger.TWO, totalDexAddresses);
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    void getPoolHolders() {
+        // Arrange.
+        BigInteger bnusdValue = BigInteger.valueOf(195).multiply(EXA);
+        BigInteger balnValue = BigInteger.valueOf(350).multiply(EXA);
+        BigInteger poolId = BigInteger.TWO;
+
+        // Act.
+        supplyLiquidity(governanceScore, bnusdScore, balnScore, bnusdValue, balnValue, false);
+        supplyLiquidity(ownerAccount, bnusdScore, balnScore, bnusdValue, balnValue, false);
+
+        // Assert.
+        Map<String, Object> firstPage = (Map<String, Object>) dexScore.call("getPoolHolders", poolId,
+                BigInteger.ZERO, BigInteger.ONE);
+        List<Map<String, Object>> holders = (List<Map<String, Object>>) firstPage.get("holders");
+        assertEquals(1, holders.size());
+        assertEquals(governanceScore.getAddress(), holders.get(0).get("address"));
+        assertEquals(dexScore.call("balanceOf", governanceScore.getAddress(), poolId), holders.get(0).get("balance"));
+        assertEquals(BigInteger.ONE, firstPage.get("next_cursor"));
+        assertEquals(BigInteger.TWO, firstPage.get("total"));
+
+        Map<String, Object> secondPage = (Map<String, Object>) dexScore.call("getPoolHolders", poolId,
+                firstPage.get("next_cursor"), BigInteger.TEN);
+        holders = (List<Map<String, Object>>) secondPage.get("holders");
+        assertEquals(1, holders.size());
+        assertEquals(ownerAccount.getAddress(), holders.get(0).get("address"));
+        assertEquals(dexScore.call("balanceOf", ownerAccount.getAddress(), poolId), holders.get(0).get("balance"));
+        assertEquals(BigInteger.TWO, secondPage.get("next_cursor"));
+
+        Executable limitTooHigh = () -> dexScore.call("getPoolHolders", poolId, BigInteger.ZERO,
+                BigInteger.valueOf(1000));
+        expectErrorMessage(limitTooHigh, "Limit must be between 1 and");
+    }
+
     @Test
     void permit_OnlyGovernance() {
         // Arrange.
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package network.balanced.score.core.dex;
+
+import com.iconloop.score.test.Account;
+import com.iconloop.score.test.Score;
+import com.iconloop.score.test.ServiceManager;
+import com.iconloop.score.test.TestBase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import score.BranchDB;
+import score.Context;
+import score.DictDB;
+
+import java.math.BigInteger;
+
+import static network.balanced.score.core.dex.utils.Const.IDS;
+import static network.balanced.score.core.dex.utils.Const.LENGTH;
+import static network.balanced.score.core.dex.utils.Const.VALUES;
+import static network.balanced.score.lib.test.UnitTest.expectErrorMessage;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SnapshotValueAtTest extends TestBase {
+
+    private static final ServiceManager sm = getServiceManager();
+    private static final Account owner = sm.createAccount();
+
+    private static Score dummyScore;
+
+    public static class DummyScore {
+
+        BranchDB<String, DictDB<BigInteger, BigInteger>> snapshot = Context.newBranchDB("snapshot",
+                BigInteger.class);
+        BranchDB<String, DictDB<BigInteger, BigInteger>> emptySnapshot = Context.newBranchDB("empty_snapshot",
+                BigInteger.class);
+
+        public DummyScore() {
+
+        }
+
+        public void append(BigInteger id, BigInteger value) {
+            BigInteger length = snapshot.at(LENGTH).getOrDefault(BigInteger.ZERO, BigInteger.ZERO);
+            snapshot.at(IDS).set(length, id);
+            snapshot.at(VALUES).set(length, value);
+            snapshot.at(LENGTH).set(BigInteger.ZERO, length.add(BigInteger.ONE));
+        }
+
+        public BigInteger valueAt(BigInteger id) {
+            return AbstractDex.snapshotValueAt(id, snapshot);
+        }
+
+        public BigInteger emptyValueAt(BigInteger id) {
+            return AbstractDex.snapshotValueAt(id, emptySnapshot);
+        }
+    }
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        dummyScore = sm.deploy(owner, DummyScore.class);
+        dummyScore.invoke(owner, "append", BigInteger.valueOf(5), BigInteger.valueOf(100));
+        dummyScore.invoke(owner, "append", BigInteger.valueOf(10), BigInteger.valueOf(200));
+        dummyScore.invoke(owner, "append", BigInteger.valueOf(20), BigInteger.valueOf(300));
+    }
+
+    @Test
+    public void beforeFirstEntry() {
+        assertEquals(BigInteger.ZERO, dummyScore.call("valueAt", BigInteger.ZERO));
+        assertEquals(BigInteger.ZERO, dummyScore.call("valueAt", BigInteger.valueOf(4)));
+    }
+
+    @Test
+    public void exactMatch() {
+        assertEquals(BigInteger.valueOf(100), dummyScore.call("valueAt", BigInteger.valueOf(5)));
+        assertEquals(BigInteger.valueOf(200), dummyScore.call("valueAt", BigInteger.valueOf(10)));
+        assertEquals(BigInteger.valueOf(300), dummyScore.call("valueAt", BigInteger.valueOf(20)));
+    }
+
+    @Test
+    public void betweenEntries() {
+        assertEquals(BigInteger.valueOf(100), dummyScore.call("valueAt", BigInteger.valueOf(6)));
+        assertEquals(BigInteger.valueOf(100), dummyScore.call("valueAt", BigInteger.valueOf(9)));
+        assertEquals(BigInteger.valueOf(200), dummyScore.call("valueAt", BigInteger.valueOf(15)));
+        assertEquals(BigInteger.valueOf(200), dummyScore.call("valueAt", BigInteger.valueOf(19)));
+    }
+
+    @Test
+    public void pastLastEntry() {
+        assertEquals(BigInteger.valueOf(300), dummyScore.call("valueAt", BigInteger.valueOf(21)));
+        assertEquals(BigInteger.valueOf(300), dummyScore.call("valueAt", BigInteger.valueOf(1_000_000)));
+    }
+
+    @Test
+    public void emptySnapshot() {
+        assertEquals(BigInteger.ZERO, dummyScore.call("emptyValueAt", BigInteger.valueOf(5)));
+    }
+
+    @Test
+    public void negativeId() {
+        Executable negativeId = () -> dummyScore.call("valueAt", BigInteger.valueOf(-1));
+        expectErrorMessage(negativeId, "Balanced DEX: Snapshot id is equal to or greater then Zero.");
+    }
+}
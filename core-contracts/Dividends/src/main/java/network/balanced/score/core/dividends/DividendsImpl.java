@@ -41,7 +41,7 @@ import static network.balanced.score.lib.utils.BalancedAddressManager.*;
 import static network.balanced.score.lib.utils.Check.*;
 import static network.balanced.score.lib.utils.Constants.EXA;
 import static network.balanced.score.lib.utils.Constants.MICRO_SECONDS_IN_A_DAY;
-import static network.balanced.score.lib.utils.Math.pow;
+import static network.balanced.score.lib.utils.Math.pow10;
 
 public class DividendsImpl implements Dividends {
 
@@ -792,8 +792,8 @@ public class DividendsImpl implements Dividends {
     private void addInitialCategories() {
         completeDividendsCategories.add(DAO_FUND);
         completeDividendsCategories.add(BALN_HOLDERS);
-        dividendsPercentage.set(DAO_FUND, BigInteger.valueOf(4).multiply(pow(BigInteger.TEN, 17)));
-        dividendsPercentage.set(BALN_HOLDERS, BigInteger.valueOf(6).multiply(pow(BigInteger.TEN, 17)));
+        dividendsPercentage.set(DAO_FUND, BigInteger.valueOf(4).multiply(pow10(17)));
+        dividendsPercentage.set(BALN_HOLDERS, BigInteger.valueOf(6).multiply(pow10(17)));
     }
 
     private String dividendsMapToJson(Map<String, BigInteger> map) {
@@ -25,7 +25,7 @@ import java.util.List;
 import java.util.Map;
 
 import static java.util.Map.entry;
-import static network.balanced.score.lib.utils.Math.pow;
+import static network.balanced.score.lib.utils.Math.pow10;
 
 public class GovernanceConstants extends Constants {
     public static final String TAG = Names.GOVERNANCE;
@@ -33,7 +33,7 @@ public class GovernanceConstants extends Constants {
 
     public static final BigInteger MAJORITY = new BigInteger("666666666666666667", 10);
     public static final BigInteger DAY_ZERO = BigInteger.valueOf(18647);
-    public static final BigInteger DAY_START = BigInteger.valueOf(61200).multiply(pow(BigInteger.TEN, 6));// 17:00 UTC
+    public static final BigInteger DAY_START = BigInteger.valueOf(61200).multiply(pow10(6));// 17:00 UTC
     public static final BigInteger BALNBNUSD_ID = BigInteger.valueOf(3);
     public static final BigInteger BALNSICX_ID = BigInteger.valueOf(4);
 
@@ -136,11 +136,11 @@ public class GovernanceConstants extends Constants {
 
     // # First day rewards recipients split
     public static DistributionPercentage[] RECIPIENTS = new DistributionPercentage[]{
-            createDistributionPercentage("Loans", BigInteger.valueOf(25).multiply(pow(BigInteger.TEN, 16))),
-            createDistributionPercentage("sICX/ICX", BigInteger.TEN.multiply(pow(BigInteger.TEN, 16))),
-            createDistributionPercentage("Worker Tokens", BigInteger.valueOf(20).multiply(pow(BigInteger.TEN, 16))),
-            createDistributionPercentage("Reserve Fund", BigInteger.valueOf(5).multiply(pow(BigInteger.TEN, 16))),
-            createDistributionPercentage("DAOfund", BigInteger.valueOf(40).multiply(pow(BigInteger.TEN, 16)))
+            createDistributionPercentage("Loans", BigInteger.valueOf(25).multiply(pow10(16))),
+            createDistributionPercentage("sICX/ICX", BigInteger.TEN.multiply(pow10(16))),
+            createDistributionPercentage("Worker Tokens", BigInteger.valueOf(20).multiply(pow10(16))),
+            createDistributionPercentage("Reserve Fund", BigInteger.valueOf(5).multiply(pow10(16))),
+            createDistributionPercentage("DAOfund", BigInteger.valueOf(40).multiply(pow10(16)))
     };
 
     // #-------------------------------------------------------------------------------
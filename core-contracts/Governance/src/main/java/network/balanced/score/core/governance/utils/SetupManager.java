@@ -28,7 +28,7 @@ import java.util.Map;
 
 import static network.balanced.score.core.governance.GovernanceImpl.*;
 import static network.balanced.score.core.governance.utils.GovernanceConstants.*;
-import static network.balanced.score.lib.utils.Math.pow;
+import static network.balanced.score.lib.utils.Math.pow10;
 
 public class SetupManager {
 
@@ -117,12 +117,12 @@ public class SetupManager {
         _addLPDataSource(name, pid);
 
         DistributionPercentage[] recipients = new DistributionPercentage[]{
-                createDistributionPercentage("Loans", BigInteger.valueOf(25).multiply(pow(BigInteger.TEN, 16))),
-                createDistributionPercentage("sICX/ICX", BigInteger.TEN.multiply(pow(BigInteger.TEN, 16))),
-                createDistributionPercentage("Worker Tokens", BigInteger.valueOf(20).multiply(pow(BigInteger.TEN, 16))),
-                createDistributionPercentage("Reserve Fund", BigInteger.valueOf(5).multiply(pow(BigInteger.TEN, 16))),
-                createDistributionPercentage("DAOfund", BigInteger.valueOf(225).multiply(pow(BigInteger.TEN, 15))),
-                createDistributionPercentage("sICX/bnUSD", BigInteger.valueOf(175).multiply(pow(BigInteger.TEN, 15)))
+                createDistributionPercentage("Loans", BigInteger.valueOf(25).multiply(pow10(16))),
+                createDistributionPercentage("sICX/ICX", BigInteger.TEN.multiply(pow10(16))),
+                createDistributionPercentage("Worker Tokens", BigInteger.valueOf(20).multiply(pow10(16))),
+                createDistributionPercentage("Reserve Fund", BigInteger.valueOf(5).multiply(pow10(16))),
+                createDistributionPercentage("DAOfund", BigInteger.valueOf(225).multiply(pow10(15))),
+                createDistributionPercentage("sICX/bnUSD", BigInteger.valueOf(175).multiply(pow10(15)))
         };
 
         call(ContractManager.getAddress(Names.REWARDS), "updateBalTokenDistPercentage", (Object) recipients);
@@ -152,13 +152,13 @@ public class SetupManager {
         _addLPDataSource(name, pid);
 
         DistributionPercentage[] recipients = new DistributionPercentage[]{
-                createDistributionPercentage("Loans", BigInteger.valueOf(25).multiply(pow(BigInteger.TEN, 16))),
-                createDistributionPercentage("sICX/ICX", BigInteger.TEN.multiply(pow(BigInteger.TEN, 16))),
-                createDistributionPercentage("Worker Tokens", BigInteger.valueOf(20).multiply(pow(BigInteger.TEN, 16))),
-                createDistributionPercentage("Reserve Fund", BigInteger.valueOf(5).multiply(pow(BigInteger.TEN, 16))),
-                createDistributionPercentage("DAOfund", BigInteger.valueOf(5).multiply(pow(BigInteger.TEN, 16))),
-                createDistributionPercentage("sICX/bnUSD", BigInteger.valueOf(175).multiply(pow(BigInteger.TEN, 15))),
-                createDistributionPercentage("BALN/bnUSD", BigInteger.valueOf(175).multiply(pow(BigInteger.TEN, 15)))
+                createDistributionPercentage("Loans", BigInteger.valueOf(25).multiply(pow10(16))),
+                createDistributionPercentage("sICX/ICX", BigInteger.TEN.multiply(pow10(16))),
+                createDistributionPercentage("Worker Tokens", BigInteger.valueOf(20).multiply(pow10(16))),
+                createDistributionPercentage("Reserve Fund", BigInteger.valueOf(5).multiply(pow10(16))),
+                createDistributionPercentage("DAOfund", BigInteger.valueOf(5).multiply(pow10(16))),
+                createDistributionPercentage("sICX/bnUSD", BigInteger.valueOf(175).multiply(pow10(15))),
+                createDistributionPercentage("BALN/bnUSD", BigInteger.valueOf(175).multiply(pow10(15)))
         };
 
         call(rewardsAddress, "updateBalTokenDistPercentage", (Object) recipients);
@@ -186,14 +186,14 @@ public class SetupManager {
         _addLPDataSource(name, pid);
 
         DistributionPercentage[] recipients = new DistributionPercentage[]{
-                createDistributionPercentage("Loans", BigInteger.valueOf(20).multiply(pow(BigInteger.TEN, 16))),
-                createDistributionPercentage("sICX/ICX", BigInteger.TEN.multiply(pow(BigInteger.TEN, 16))),
-                createDistributionPercentage("Worker Tokens", BigInteger.valueOf(20).multiply(pow(BigInteger.TEN, 16))),
-                createDistributionPercentage("Reserve Fund", BigInteger.valueOf(5).multiply(pow(BigInteger.TEN, 16))),
-                createDistributionPercentage("DAOfund", BigInteger.valueOf(5).multiply(pow(BigInteger.TEN, 16))),
-                createDistributionPercentage("sICX/bnUSD", BigInteger.valueOf(15).multiply(pow(BigInteger.TEN, 16))),
-                createDistributionPercentage("BALN/bnUSD", BigInteger.valueOf(15).multiply(pow(BigInteger.TEN, 16))),
-                createDistributionPercentage("BALN/sICX", BigInteger.valueOf(10).multiply(pow(BigInteger.TEN, 16)))
+                createDistributionPercentage("Loans", BigInteger.valueOf(20).multiply(pow10(16))),
+                createDistributionPercentage("sICX/ICX", BigInteger.TEN.multiply(pow10(16))),
+                createDistributionPercentage("Worker Tokens", BigInteger.valueOf(20).multiply(pow10(16))),
+                createDistributionPercentage("Reserve Fund", BigInteger.valueOf(5).multiply(pow10(16))),
+                createDistributionPercentage("DAOfund", BigInteger.valueOf(5).multiply(pow10(16))),
+                createDistributionPercentage("sICX/bnUSD", BigInteger.valueOf(15).multiply(pow10(16))),
+                createDistributionPercentage("BALN/bnUSD", BigInteger.valueOf(15).multiply(pow10(16))),
+                createDistributionPercentage("BALN/sICX", BigInteger.valueOf(10).multiply(pow10(16)))
         };
 
         call(ContractManager.getAddress(Names.REWARDS), "updateBalTokenDistPercentage", (Object) recipients);
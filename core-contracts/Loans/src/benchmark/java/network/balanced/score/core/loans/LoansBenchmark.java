@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2023-2023 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.loans;
+
+import com.eclipsesource.json.JsonObject;
+import com.iconloop.score.test.Account;
+import network.balanced.score.lib.interfaces.tokens.IRC2Mintable;
+import network.balanced.score.lib.interfaces.tokens.IRC2MintableScoreInterface;
+import network.balanced.score.lib.test.benchmark.CostRecorder;
+import network.balanced.score.lib.test.mock.MockContract;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static network.balanced.score.core.loans.utils.LoansConstants.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Populates Loans with a number of positions spread over a number of collaterals and reports the storage reads and
+ * writes, contract calls and wall time of the hot paths as JSON lines. Sizes are read from the
+ * {@code benchmark.positions} and {@code benchmark.collaterals} system properties as comma separated lists.
+ */
+class LoansBenchmark extends LoansTestBase {
+    private static final BigInteger COLLATERAL = BigInteger.valueOf(1000).multiply(EXA);
+    private static final BigInteger LOAN = BigInteger.valueOf(100).multiply(EXA);
+
+    private CostRecorder recorder;
+    private final List<MockContract<? extends IRC2Mintable>> collaterals = new ArrayList<>();
+    private final List<Account> borrowers = new ArrayList<>();
+
+    static Stream<Arguments> sizes() {
+        List<Arguments> sizes = new ArrayList<>();
+        for (String positions : System.getProperty("benchmark.positions", "10,100").split(",")) {
+            for (String collateralCount : System.getProperty("benchmark.collaterals", "2").split(",")) {
+                sizes.add(Arguments.of(Integer.parseInt(positions.trim()), Integer.parseInt(collateralCount.trim())));
+            }
+        }
+
+        return sizes.stream();
+    }
+
+    @AfterEach
+    void closeRecorder() {
+        recorder.close();
+    }
+
+    @ParameterizedTest
+    @MethodSource("sizes")
+    void hotPaths(int positions, int collateralCount) throws Exception {
+        recorder = new CostRecorder(contextMock);
+        setup();
+        recorder.trackContracts(mockBalanced);
+        recorder.trackContract(ieth);
+        addCollaterals(collateralCount);
+        populate(positions, Math.max(1, collateralCount));
+
+        Map<String, Object> parameters = Map.of("contract", "Loans", "positions", positions, "collaterals",
+                collateralCount);
+
+        Account depositor = sm.createAccount();
+        mockStakeICX(COLLATERAL);
+        report(parameters, recorder.measureTransaction("depositAndBorrow", () ->
+                sm.call(depositor, COLLATERAL, loans.getAddress(), "depositAndBorrow", "bnUSD", LOAN,
+                        depositor.getAddress(), BigInteger.ZERO)));
+
+        Account repayer = borrowers.get(0);
+        BigInteger repaid = LOAN.divide(BigInteger.TWO);
+        when(bnusd.mock.balanceOf(repayer.getAddress())).thenReturn(repaid);
+        report(parameters, recorder.measureTransaction("returnAsset", () ->
+                loans.invoke(repayer, "returnAsset", "bnUSD", repaid, "sICX")));
+
+        Account redeemer = sm.createAccount();
+        // Walks about half of the sICX positions, so the cost grows with N while small lists do not run out of
+        // positions
+        BigInteger maxRetirePercent = (BigInteger) loans.call("getMaxRetirePercent");
+        int sICXPositions = (positions + collateralCount - 1) / Math.max(1, collateralCount);
+        BigInteger redeemed = LOAN.multiply(BigInteger.valueOf(sICXPositions)).multiply(maxRetirePercent)
+                .divide(POINTS).divide(BigInteger.TWO);
+        when(bnusd.mock.balanceOf(redeemer.getAddress())).thenReturn(redeemed);
+        report(parameters, recorder.measureTransaction("redeemCollateral", () ->
+                loans.invoke(redeemer, "redeemCollateral", sicx.getAddress(), redeemed)));
+
+        Account seller = borrowers.get(0);
+        BigInteger collateralToSell = BigInteger.TEN.multiply(EXA);
+        mockSicxBnusdPrice(EXA);
+        mockSwap(sicx, bnusd, collateralToSell, collateralToSell);
+        report(parameters, recorder.measureTransaction("sellCollateral", () ->
+                loans.invoke(seller, "sellCollateral", collateralToSell, "sICX", collateralToSell)));
+
+        Account liquidated = sm.createAccount();
+        takeLoanSICX(liquidated, COLLATERAL, LOAN.multiply(BigInteger.TWO));
+        mockOraclePrice("sICX", EXA.divide(BigInteger.valueOf(4)));
+        Account liquidator = sm.createAccount();
+        report(parameters, recorder.measureTransaction("liquidate", () ->
+                loans.invoke(liquidator, "liquidate", liquidated.getAddress(), "sICX")));
+        mockOraclePrice("sICX", EXA);
+
+        report(parameters, recorder.measureCall("getAccountPositions", () ->
+                loans.call("getAccountPositions", repayer.getAddress())));
+
+        int pageSize = Math.min(20, positions);
+        report(parameters, recorder.measureCall("getBorrowers", () ->
+                loans.call("getBorrowers", sicx.getAddress(), pageSize, 0)));
+    }
+
+    private void addCollaterals(int collateralCount) throws Exception {
+        collaterals.add(sicx);
+        collaterals.add(ieth);
+
+        for (int i = collaterals.size(); i < collateralCount; i++) {
+            String symbol = "COL" + i;
+            MockContract<? extends IRC2Mintable> token = new MockContract<>(IRC2MintableScoreInterface.class, sm,
+                    admin);
+            when(token.mock.symbol()).thenReturn(symbol);
+            when(token.mock.decimals()).thenReturn(BigInteger.valueOf(18));
+            loans.invoke(governance.account, "addAsset", token.getAddress(), true, true);
+            loans.invoke(governance.account, "setLockingRatio", symbol, LOCKING_RATIO);
+            loans.invoke(governance.account, "setLiquidationRatio", symbol, LIQUIDATION_RATIO);
+            recorder.trackContract(token);
+            collaterals.add(token);
+        }
+    }
+
+    private void populate(int positions, int collateralCount) {
+        JsonObject data = new JsonObject()
+                .add("_asset", "bnUSD")
+                .add("_amount", LOAN.toString());
+        byte[] params = data.toString().getBytes();
+
+        for (int i = 0; i < positions; i++) {
+            Account account = sm.createAccount();
+            MockContract<? extends IRC2Mintable> collateral = collaterals.get(i % collateralCount);
+            loans.invoke(collateral.account, "tokenFallback", account.getAddress(), COLLATERAL, params);
+            borrowers.add(account);
+        }
+    }
+
+    private void report(Map<String, Object> parameters, CostRecorder.Cost cost) {
+        recorder.report(cost, parameters);
+    }
+}
@@ -20,10 +20,14 @@ import com.eclipsesource.json.Json;
 import com.eclipsesource.json.JsonObject;
 import com.eclipsesource.json.JsonValue;
 import network.balanced.score.core.loans.collateral.CollateralDB;
+import network.balanced.score.core.loans.collateral.CollateralStatsDB;
 import network.balanced.score.core.loans.debt.DebtDB;
+import network.balanced.score.core.loans.linkedlist.LinkedListDB;
+import network.balanced.score.core.loans.linkedlist.RedemptionCursor;
+import network.balanced.score.core.loans.liquidation.LiquidationIndexDB;
 import network.balanced.score.core.loans.positions.Position;
 import network.balanced.score.core.loans.positions.PositionsDB;
-import network.balanced.score.core.loans.utils.PositionBatch;
+import network.balanced.score.core.loans.utils.CallContext;
 import network.balanced.score.core.loans.utils.TokenUtils;
 import network.balanced.score.lib.interfaces.Loans;
 import network.balanced.score.lib.structs.PrepDelegations;
@@ -36,9 +40,11 @@ import score.annotation.EventLog;
 import score.annotation.External;
 import score.annotation.Optional;
 import score.annotation.Payable;
+import scorex.util.ArrayList;
 import scorex.util.HashMap;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -53,7 +59,6 @@ import static network.balanced.score.lib.utils.Check.onlyGovernance;
 import static network.balanced.score.lib.utils.Check.optionalDefault;
 import static network.balanced.score.lib.utils.Check.checkStatus;
 import static network.balanced.score.lib.utils.Math.convertToNumber;
-import static network.balanced.score.lib.utils.Math.pow;
 
 public class LoansImpl implements Loans {
 
@@ -82,6 +87,8 @@ public class LoansImpl implements Loans {
         }
 
         CollateralDB.migrateAddressMap();
+        CollateralDB.migrateDecimals();
+        CollateralStatsDB.migrate();
         if (redemptionDaoFee.get() == null) {
             redemptionFee.set(REDEMPTION_FEE);
             redemptionDaoFee.set(REDEMPTION_DAO_FEE);
@@ -190,6 +197,11 @@ public class LoansImpl implements Loans {
         return Map.of(BNUSD_SYMBOL, DebtDB.debtData());
     }
 
+    @External(readonly = true)
+    public Map<String, Map<String, Object>> getCollateralStats() {
+        return CollateralStatsDB.getCollateralStats();
+    }
+
     @External(readonly = true)
     public int assetCount() {
         return 1;
@@ -229,13 +241,61 @@ public class LoansImpl implements Loans {
         return DebtDB.getBorrowers(symbol).getTailId();
     }
 
+    @External(readonly = true)
+    public List<Map<String, Object>> getLiquidationCandidates(Address collateralAddress, BigInteger price,
+                                                              int limit) {
+        String symbol = CollateralDB.getSymbol(collateralAddress);
+        BigInteger liquidationRatio = getLiquidationRatio(symbol);
+        Context.require(liquidationRatio != null && liquidationRatio.compareTo(BigInteger.ZERO) > 0,
+                "Liquidation ratio for " + symbol + " is not set");
+        Context.require(price.signum() >= 0, TAG + ": Price can't be negative");
+
+        return LiquidationIndexDB.getCandidates(symbol, price, TokenUtils.getUnitValue(symbol), liquidationRatio,
+                Math.min(limit, MAX_LIQUIDATION_CANDIDATES));
+    }
+
+    @External
+    public void updateLiquidationIndex(Address collateralAddress, int nrOfPositions, @Optional int startId) {
+        checkStatus();
+        loansOn();
+        boolean opened = CallContext.open();
+        try {
+            String symbol = CollateralDB.getSymbol(collateralAddress);
+            LinkedListDB borrowers = DebtDB.getBorrowers(symbol);
+            if (borrowers.size() == 0) {
+                return;
+            }
+
+            Context.require(startId == 0 || borrowers.contains(startId), TAG + ": Position " + startId + " has no " +
+                    symbol + " debt.");
+
+            int tail = borrowers.getTailId();
+            int id = startId == 0 ? borrowers.getHeadId() : startId;
+            int positionsToUpdate = Math.min(nrOfPositions, borrowers.size());
+            for (int i = 0; i < positionsToUpdate; i++) {
+                Position position = PositionsDB.uncheckedGet(id);
+                LiquidationIndexDB.update(symbol, id, position.getDebt(symbol), position.getCollateral(symbol));
+                if (id == tail) {
+                    break;
+                }
+
+                id = borrowers.getNextId(id);
+            }
+        } catch (Exception e) {
+            CallContext.close(opened);
+            throw e;
+        } finally {
+            completeCall(opened);
+        }
+    }
+
     // only adds collateral, name is kept for backwards compatibility
     @External
     public void addAsset(Address _token_address, boolean _active, boolean _collateral) {
         onlyGovernance();
         if (_collateral) {
             String symbol = TokenUtils.symbol(_token_address);
-            CollateralDB.addCollateral(_token_address, symbol);
+            CollateralDB.addCollateral(_token_address, symbol, TokenUtils.decimals(_token_address));
             AssetAdded(_token_address, symbol, _collateral);
         }
     }
@@ -262,6 +322,31 @@ public class LoansImpl implements Loans {
         );
     }
 
+    @External(readonly = true)
+    public Map<String, Map<String, BigInteger>> getBalanceAndSupplyBatch(String[] _names, Address _owner) {
+        Map<String, Map<String, BigInteger>> balances = new HashMap<>();
+        for (String name : _names) {
+            balances.put(name, getBalanceAndSupply(name, _owner));
+        }
+
+        return balances;
+    }
+
+    @External(readonly = true)
+    public Map<String, BigInteger> getBalancesAndSupply(String _name, Address[] _owners) {
+        Context.require(_name.equals("Loans"), TAG + ": Unsupported data source name");
+
+        Map<String, BigInteger> balances = new HashMap<>();
+        balances.put("_totalSupply", DebtDB.getTotalDebt());
+        for (Address owner : _owners) {
+            int id = PositionsDB.getAddressIds(owner);
+            BigInteger balance = id < 1 ? BigInteger.ZERO : PositionsDB.get(id).getTotalDebt();
+            balances.put(owner.toString(), balance);
+        }
+
+        return balances;
+    }
+
     @External(readonly = true)
     public BigInteger getBnusdValue(String _name) {
         return DebtDB.getTotalDebt();
@@ -271,32 +356,48 @@ public class LoansImpl implements Loans {
     public void tokenFallback(Address _from, BigInteger _value, byte[] _data) {
         checkStatus();
         loansOn();
+        boolean opened = CallContext.open();
+        try {
+            Context.require(_value.signum() > 0, TAG + ": Token value should be a positive number");
+
+            Address token = Context.getCaller();
+            if (token.equals(expectedToken.get())) {
+                amountReceived.set(_value);
+                expectedToken.set(null);
+                return;
+            }
 
-        Context.require(_value.signum() > 0, TAG + ": Token value should be a positive number");
-
-        Address token = Context.getCaller();
-        if (token.equals(expectedToken.get())) {
-            amountReceived.set(_value);
-            expectedToken.set(null);
-            return;
-        }
+            if (_from.equals(getReserve())) {
+                return;
+            }
 
-        if (_from.equals(getReserve())) {
-            return;
-        }
+            String collateralSymbol = CollateralDB.getSymbol(token);
+            if (_from.equals(EOA_ZERO)) {
+                // Only the sICX minted by Staking in depositAndBorrow, credited from the stakeICX return value
+                byte[] stakingTx = stakingTxHash.get();
+                boolean staking = stakingTx != null && Arrays.equals(stakingTx, Context.getTransactionHash());
+                Context.require(staking && collateralSymbol.equals(SICX_SYMBOL), TAG + ": Unexpected " +
+                        collateralSymbol + " mint.");
+                return;
+            }
 
-        String collateralSymbol = CollateralDB.getSymbol(token);
-        String unpackedData = new String(_data);
-        Context.require(!unpackedData.equals(""), TAG + ": Token Fallback: Data can't be empty");
+            String unpackedData = new String(_data);
+            Context.require(!unpackedData.equals(""), TAG + ": Token Fallback: Data can't be empty");
 
-        JsonObject json = Json.parse(unpackedData).asObject();
+            JsonObject json = Json.parse(unpackedData).asObject();
 
-        JsonValue amount = json.get("_amount");
-        BigInteger requestedAmount = amount == null ? null : convertToNumber(amount);
+            JsonValue amount = json.get("_amount");
+            BigInteger requestedAmount = amount == null ? null : convertToNumber(amount);
 
-        depositCollateral(collateralSymbol, _value, _from);
-        if (BigInteger.ZERO.compareTo(requestedAmount) < 0) {
-            originateLoan(collateralSymbol, requestedAmount, _from);
+            depositCollateral(collateralSymbol, _value, _from);
+            if (BigInteger.ZERO.compareTo(requestedAmount) < 0) {
+                originateLoan(collateralSymbol, requestedAmount, _from);
+            }
+        } catch (Exception e) {
+            CallContext.close(opened);
+            throw e;
+        } finally {
+            completeCall(opened);
         }
     }
 
@@ -304,10 +405,18 @@ public class LoansImpl implements Loans {
     public void borrow(String _collateralToBorrowAgainst, String _assetToBorrow, BigInteger _amountToBorrow) {
         checkStatus();
         loansOn();
-        Context.require(_amountToBorrow.compareTo(BigInteger.ZERO) > 0, TAG + ": _amountToBorrow needs to be larger " +
-                "than 0");
-        Context.require(_assetToBorrow.equals(BNUSD_SYMBOL));
-        originateLoan(_collateralToBorrowAgainst, _amountToBorrow, Context.getCaller());
+        boolean opened = CallContext.open();
+        try {
+            Context.require(_amountToBorrow.compareTo(BigInteger.ZERO) > 0, TAG + ": _amountToBorrow needs to be " +
+                    "larger than 0");
+            Context.require(_assetToBorrow.equals(BNUSD_SYMBOL));
+            originateLoan(_collateralToBorrowAgainst, _amountToBorrow, Context.getCaller());
+        } catch (Exception e) {
+            CallContext.close(opened);
+            throw e;
+        } finally {
+            completeCall(opened);
+        }
     }
 
     @External
@@ -316,133 +425,205 @@ public class LoansImpl implements Loans {
                                  @Optional BigInteger _value) {
         checkStatus();
         loansOn();
-        BigInteger deposit = Context.getValue();
-        Address depositor = Context.getCaller();
+        boolean opened = CallContext.open();
+        try {
+            BigInteger deposit = Context.getValue();
+            Address depositor = Context.getCaller();
+
+            if (!deposit.equals(BigInteger.ZERO)) {
+                Position position = PositionsDB.getPosition(depositor);
+                BigInteger sicxDeposited = stakeICX(deposit);
+                position.setCollateral(SICX_SYMBOL, position.getCollateral(SICX_SYMBOL).add(sicxDeposited));
+                CollateralReceived(depositor, SICX_SYMBOL, sicxDeposited);
+            }
 
-        if (!deposit.equals(BigInteger.ZERO)) {
-            Position position = PositionsDB.getPosition(depositor);
-            BigInteger sicxDeposited = stakeICX(deposit);
-            position.setCollateral(SICX_SYMBOL, position.getCollateral(SICX_SYMBOL).add(sicxDeposited));
-            CollateralReceived(depositor, SICX_SYMBOL, sicxDeposited);
-        }
+            if (_asset == null || !_asset.equals(BNUSD_SYMBOL) || _amount == null
+                    || _amount.compareTo(BigInteger.ZERO) <= 0) {
+                return;
+            }
 
-        if (_asset == null || !_asset.equals(BNUSD_SYMBOL) || _amount == null
-                || _amount.compareTo(BigInteger.ZERO) <= 0) {
-            return;
+            originateLoan(SICX_SYMBOL, _amount, depositor);
+        } catch (Exception e) {
+            CallContext.close(opened);
+            throw e;
+        } finally {
+            completeCall(opened);
         }
-
-        originateLoan(SICX_SYMBOL, _amount, depositor);
     }
 
     @External
     public void retireBadDebt(String _symbol, BigInteger _value) {
         checkStatus();
         loansOn();
-        Context.require(_value.compareTo(BigInteger.ZERO) > 0, TAG + ": Amount retired must be greater than zero.");
-        Address from = Context.getCaller();
-
-        Context.require(TokenUtils.balanceOf(getBnusd(), from).compareTo(_value) >= 0, TAG + ": Insufficient balance.");
-
-        BigInteger totalBadDebt = BigInteger.ZERO;
-        BigInteger remainingValue = _value;
-        for (String collateralSymbol : CollateralDB.getCollateral().keySet()) {
-            BigInteger badDebt = DebtDB.getBadDebt(collateralSymbol);
-            if (badDebt.equals(BigInteger.ZERO)) {
-                continue;
+        boolean opened = CallContext.open();
+        try {
+            Context.require(_value.compareTo(BigInteger.ZERO) > 0, TAG + ": Amount retired must be greater than zero.");
+            Address from = Context.getCaller();
+
+            Context.require(TokenUtils.balanceOf(getBnusd(), from).compareTo(_value) >= 0,
+                    TAG + ": Insufficient balance.");
+
+            BigInteger totalBadDebt = BigInteger.ZERO;
+            BigInteger remainingValue = _value;
+            for (String collateralSymbol : CollateralDB.getCollateral().keySet()) {
+                BigInteger badDebt = DebtDB.getBadDebt(collateralSymbol);
+                if (badDebt.equals(BigInteger.ZERO)) {
+                    continue;
+                }
+
+                BigInteger badDebtAmount = badDebt.min(remainingValue);
+                TokenUtils.burnAssetFrom(from, badDebtAmount);
+                BigInteger collateralToRedeem = badDebtRedeem(from, collateralSymbol, badDebtAmount);
+                transferCollateral(collateralSymbol, from, collateralToRedeem, "Bad Debt redeemed.", new byte[0]);
+
+                remainingValue = remainingValue.subtract(badDebtAmount);
+                totalBadDebt = totalBadDebt.add(badDebtAmount);
+                if (remainingValue.equals(BigInteger.ZERO)) {
+                    break;
+                }
             }
 
-            BigInteger badDebtAmount = badDebt.min(remainingValue);
-            TokenUtils.burnAssetFrom(from, badDebtAmount);
-            BigInteger collateralToRedeem = badDebtRedeem(from, collateralSymbol, badDebtAmount);
-            transferCollateral(collateralSymbol, from, collateralToRedeem, "Bad Debt redeemed.", new byte[0]);
+            Context.require(totalBadDebt.compareTo(BigInteger.ZERO) > 0, TAG + ": No bad debt for " + BNUSD_SYMBOL);
+            Context.require(_value.compareTo(totalBadDebt) >= 0, TAG + "Cannot retire more debt than value");
 
-            remainingValue = remainingValue.subtract(badDebtAmount);
-            totalBadDebt = totalBadDebt.add(badDebtAmount);
-            if (remainingValue.equals(BigInteger.ZERO)) {
-                break;
-            }
+            BadDebtRetired(from, BNUSD_SYMBOL, totalBadDebt);
+        } catch (Exception e) {
+            CallContext.close(opened);
+            throw e;
+        } finally {
+            completeCall(opened);
         }
-
-        Context.require(totalBadDebt.compareTo(BigInteger.ZERO) > 0, TAG + ": No bad debt for " + BNUSD_SYMBOL);
-        Context.require(_value.compareTo(totalBadDebt) >= 0, TAG + "Cannot retire more debt than value");
-
-        BadDebtRetired(from, BNUSD_SYMBOL, totalBadDebt);
     }
 
     @External
     public void retireBadDebtForCollateral(String _symbol, BigInteger _value, String _collateralSymbol) {
         checkStatus();
         loansOn();
-        Context.require(_value.compareTo(BigInteger.ZERO) > 0, TAG + ": Amount retired must be greater than zero.");
+        boolean opened = CallContext.open();
+        try {
+            Context.require(_value.compareTo(BigInteger.ZERO) > 0, TAG + ": Amount retired must be greater than zero.");
 
-        Address from = Context.getCaller();
+            Address from = Context.getCaller();
 
-        Context.require(TokenUtils.balanceOf(getBnusd(), from).compareTo(_value) >= 0, TAG + ": Insufficient balance.");
+            Context.require(TokenUtils.balanceOf(getBnusd(), from).compareTo(_value) >= 0,
+                    TAG + ": Insufficient balance.");
 
-        BigInteger badDebt = DebtDB.getBadDebt(_collateralSymbol);
-        Context.require(badDebt.compareTo(BigInteger.ZERO) > 0, TAG + ": No bad debt for " + BNUSD_SYMBOL);
+            BigInteger badDebt = DebtDB.getBadDebt(_collateralSymbol);
+            Context.require(badDebt.compareTo(BigInteger.ZERO) > 0, TAG + ": No bad debt for " + BNUSD_SYMBOL);
 
-        BigInteger badDebtRedeemed = badDebt.min(_value);
-        Context.require(badDebtRedeemed.compareTo(BigInteger.ZERO) >= 0, TAG + ": Amount retired must be greater than" +
-                " zero.");
-        TokenUtils.burnAssetFrom(from, badDebtRedeemed);
+            BigInteger badDebtRedeemed = badDebt.min(_value);
+            Context.require(badDebtRedeemed.compareTo(BigInteger.ZERO) >= 0, TAG + ": Amount retired must be greater " +
+                    "than zero.");
+            TokenUtils.burnAssetFrom(from, badDebtRedeemed);
 
-        BigInteger collateralToRedeem = badDebtRedeem(from, _collateralSymbol, badDebtRedeemed);
+            BigInteger collateralToRedeem = badDebtRedeem(from, _collateralSymbol, badDebtRedeemed);
 
-        transferCollateral(_collateralSymbol, from, collateralToRedeem, "Bad Debt redeemed.", new byte[0]);
-        BadDebtRetired(from, _symbol, badDebtRedeemed);
+            transferCollateral(_collateralSymbol, from, collateralToRedeem, "Bad Debt redeemed.", new byte[0]);
+            BadDebtRetired(from, _symbol, badDebtRedeemed);
+        } catch (Exception e) {
+            CallContext.close(opened);
+            throw e;
+        } finally {
+            completeCall(opened);
+        }
     }
 
     @External
     public void returnAsset(String _symbol, BigInteger _value, @Optional String _collateralSymbol) {
         checkStatus();
         loansOn();
-        Context.require(_symbol.equals(BNUSD_SYMBOL));
-        String collateralSymbol = optionalDefault(_collateralSymbol, SICX_SYMBOL);
-        Context.require(_value.compareTo(BigInteger.ZERO) > 0, TAG + ": Amount retired must be greater than zero.");
+        boolean opened = CallContext.open();
+        try {
+            Context.require(_symbol.equals(BNUSD_SYMBOL));
+            String collateralSymbol = optionalDefault(_collateralSymbol, SICX_SYMBOL);
+            Context.require(_value.compareTo(BigInteger.ZERO) > 0, TAG + ": Amount retired must be greater than zero.");
+
+            Address from = Context.getCaller();
+
+            Context.require(TokenUtils.balanceOf(getBnusd(), from).compareTo(_value) >= 0,
+                    TAG + ": Insufficient balance.");
+            Context.require(PositionsDB.hasPosition(from), TAG + ": No debt repaid because, " + from + " does not " +
+                    "have a position in Balanced");
+
+            BigInteger oldSupply = DebtDB.getTotalDebt();
+            Position position = PositionsDB.getPosition(from);
+            BigInteger oldUserDebt = position.getTotalDebt();
+            BigInteger borrowed = position.getDebt(collateralSymbol);
+            Context.require(_value.compareTo(borrowed) <= 0, TAG + ": Repaid amount is greater than the amount in " +
+                    "the position of " + from);
+
+            BigInteger remaining = borrowed.subtract(_value);
+            BigInteger repaid;
+            if (remaining.compareTo(BigInteger.ZERO) > 0) {
+                position.setDebt(collateralSymbol, remaining);
+                repaid = _value;
+            } else {
+                position.setDebt(collateralSymbol, null);
+                repaid = borrowed;
+            }
 
-        Address from = Context.getCaller();
+            TokenUtils.burnAssetFrom(from, repaid);
 
-        Context.require(TokenUtils.balanceOf(getBnusd(), from).compareTo(_value) >= 0, TAG + ": Insufficient balance.");
-        Context.require(PositionsDB.hasPosition(from), TAG + ": No debt repaid because, " + from + " does not have a " +
-                "position in Balanced");
+            updateRewardsData(oldSupply, from, oldUserDebt);
 
-        BigInteger oldSupply = DebtDB.getTotalDebt();
-        Position position = PositionsDB.getPosition(from);
-        BigInteger oldUserDebt = position.getTotalDebt();
-        BigInteger borrowed = position.getDebt(collateralSymbol);
-        Context.require(_value.compareTo(borrowed) <= 0, TAG + ": Repaid amount is greater than the amount in the " +
-                "position of " + from);
-
-        BigInteger remaining = borrowed.subtract(_value);
-        BigInteger repaid;
-        if (remaining.compareTo(BigInteger.ZERO) > 0) {
-            position.setDebt(collateralSymbol, remaining);
-            repaid = _value;
-        } else {
-            position.setDebt(collateralSymbol, null);
-            repaid = borrowed;
+            String logMessage = "Loan of " + repaid + " " + BNUSD_SYMBOL + " repaid to Balanced.";
+            LoanRepaid(from, BNUSD_SYMBOL, repaid, logMessage);
+        } catch (Exception e) {
+            CallContext.close(opened);
+            throw e;
+        } finally {
+            completeCall(opened);
         }
-
-        TokenUtils.burnAssetFrom(from, repaid);
-
-        Context.call(getRewards(), "updateRewardsData", "Loans", oldSupply, from, oldUserDebt);
-
-        String logMessage = "Loan of " + repaid + " " + BNUSD_SYMBOL + " repaid to Balanced.";
-        LoanRepaid(from, BNUSD_SYMBOL, repaid, logMessage);
     }
 
     @External
     public void redeemCollateral(Address _collateralAddress, BigInteger _amount) {
         checkStatus();
         loansOn();
+        boolean opened = CallContext.open();
+        try {
+            redeem(_collateralAddress, _amount, 0);
+        } catch (Exception e) {
+            CallContext.close(opened);
+            throw e;
+        } finally {
+            completeCall(opened);
+        }
+    }
+
+    @External
+    public BigInteger redeemCollateralPartial(Address _collateralAddress, BigInteger _amount,
+                                              @Optional int _maxPositions) {
+        checkStatus();
+        loansOn();
+        boolean opened = CallContext.open();
+        try {
+            int maxPositions = _maxPositions == 0 ? redeemBatch.get() : _maxPositions;
+            Context.require(maxPositions > 0, TAG + ": Max positions must be greater than zero.");
+
+            return _amount.subtract(redeem(_collateralAddress, _amount, maxPositions));
+        } catch (Exception e) {
+            CallContext.close(opened);
+            throw e;
+        } finally {
+            completeCall(opened);
+        }
+    }
+
+    /**
+     * Redeems up to {@code _amount} bnUSD against the positions at the redemption cursor. With a zero
+     * {@code maxPositions} the full amount has to be filled, otherwise at most {@code maxPositions} positions are
+     * visited and only the filled part of the amount is burned.
+     *
+     * @return The amount of bnUSD burned from the caller
+     */
+    private BigInteger redeem(Address _collateralAddress, BigInteger _amount, int maxPositions) {
+        Context.require(_amount.compareTo(BigInteger.ZERO) > 0, TAG + ": Amount redeemed must be greater than zero.");
         Address caller = Context.getCaller();
         String collateralSymbol = CollateralDB.getSymbol(_collateralAddress);
         BigInteger daofundFee = redemptionDaoFee.getOrDefault(BigInteger.ZERO).multiply(_amount).divide(POINTS);
-
-        TokenUtils.burnAssetFrom(caller, _amount);
-        TokenUtils.mintAssetTo(getDaofund(), daofundFee);
-        BigInteger debtToBeRepaid = _amount.subtract(daofundFee);
+        BigInteger amountToBeRepaid = _amount.subtract(daofundFee);
+        BigInteger debtToBeRepaid = amountToBeRepaid;
 
         BigInteger MAX_REDEMPTION = maxRetirePercent.get();
         BigInteger REDEMPTION_FEE = redemptionFee.get();
@@ -450,17 +631,24 @@ public class LoansImpl implements Loans {
         BigInteger oldTotalDebt = DebtDB.getTotalDebt();
         BigInteger collateralRateInUSD = TokenUtils.getPriceInUSD(collateralSymbol);
 
-        PositionBatch batch = DebtDB.getBorrowers(collateralSymbol).readDataBatch(debtNeeded);
-        Map<Integer, BigInteger> positionsMap = batch.positions;
+        RedemptionCursor cursor = DebtDB.getBorrowers(collateralSymbol).readRedemptionCursor();
+        boolean partial = maxPositions > 0;
         StringBuilder changeLog = new StringBuilder("{");
-        RewardsDataEntry[] rewardsBatchList = new RewardsDataEntry[batch.size];
-        int dataEntryIndex = 0;
+        List<RewardsDataEntry> rewardsData = new ArrayList<>();
+        BigInteger batchDebt = BigInteger.ZERO;
         BigInteger totalCollateralSold = BigInteger.ZERO;
-        for (Map.Entry<Integer, BigInteger> entry : positionsMap.entrySet()) {
-            int id = entry.getKey();
+        while (batchDebt.compareTo(debtNeeded) < 0) {
+            if (partial && (rewardsData.size() == maxPositions || !cursor.hasNext()
+                    || debtToBeRepaid.signum() == 0)) {
+                break;
+            }
+
+            cursor.next();
+            int id = cursor.getId();
             Position position = PositionsDB.uncheckedGet(id);
-            BigInteger userDebt = entry.getValue();
+            BigInteger userDebt = cursor.getValue();
             BigInteger userCollateral = position.getCollateral(collateralSymbol);
+            batchDebt = batchDebt.add(userDebt);
 
             BigInteger amountRepaid = userDebt.multiply(MAX_REDEMPTION).divide(POINTS);
             if (amountRepaid.compareTo(debtToBeRepaid) > 0) {
@@ -475,8 +663,7 @@ public class LoansImpl implements Loans {
             RewardsDataEntry userEntry = new RewardsDataEntry();
             userEntry._user = position.getAddress();
             userEntry._balance = position.getTotalDebt();
-            rewardsBatchList[dataEntryIndex] = userEntry;
-            dataEntryIndex = dataEntryIndex + 1;
+            rewardsData.add(userEntry);
 
             position.setDebt(collateralSymbol, userDebt.subtract(amountRepaid));
             position.setCollateral(collateralSymbol, userCollateral.subtract(collateralSold));
@@ -487,10 +674,33 @@ public class LoansImpl implements Loans {
                     "'c': " + collateralSold.negate() + "}, ");
         }
 
-        Context.call(getRewards(), "updateBatchRewardsData", "Loans", oldTotalDebt, rewardsBatchList);
+        BigInteger amountRedeemed = _amount;
+        if (partial && debtToBeRepaid.signum() > 0) {
+            BigInteger debtRepaid = amountToBeRepaid.subtract(debtToBeRepaid);
+            if (debtRepaid.signum() == 0) {
+                cursor.save();
+                return BigInteger.ZERO;
+            }
+
+            amountRedeemed = _amount.multiply(debtRepaid).divide(amountToBeRepaid);
+            daofundFee = amountRedeemed.subtract(debtRepaid);
+        }
+
+        TokenUtils.burnAssetFrom(caller, amountRedeemed);
+        TokenUtils.mintAssetTo(getDaofund(), daofundFee);
+
+        cursor.save();
+        RewardsDataEntry[] rewardsBatchList = new RewardsDataEntry[rewardsData.size()];
+        for (int i = 0; i < rewardsData.size(); i++) {
+            rewardsBatchList[i] = rewardsData.get(i);
+        }
+
+        updateBatchRewardsData(oldTotalDebt, rewardsBatchList);
         transferCollateral(collateralSymbol, caller, totalCollateralSold, "bnUSD redeemed for collateral", new byte[0]);
         changeLog.delete(changeLog.length() - 2, changeLog.length()).append("}");
-        Rebalance(Context.getCaller(), "bnUSD", changeLog.toString(), _amount);
+        Rebalance(caller, "bnUSD", changeLog.toString(), amountRedeemed);
+
+        return amountRedeemed;
     }
 
     @External(readonly = true)
@@ -512,24 +722,40 @@ public class LoansImpl implements Loans {
     public void withdrawAndUnstake(BigInteger _value) {
         checkStatus();
         loansOn();
-        Address from = Context.getCaller();
-        removeCollateral(from, _value, SICX_SYMBOL);
-
-        JsonObject data = new JsonObject();
-        data.set("method", "unstake");
-        data.set("user", from.toString());
-        transferCollateral(SICX_SYMBOL, getStaking(), _value, "SICX Collateral withdrawn and unstaked",
-                data.toString().getBytes());
+        boolean opened = CallContext.open();
+        try {
+            Address from = Context.getCaller();
+            removeCollateral(from, _value, SICX_SYMBOL);
+
+            JsonObject data = new JsonObject();
+            data.set("method", "unstake");
+            data.set("user", from.toString());
+            transferCollateral(SICX_SYMBOL, getStaking(), _value, "SICX Collateral withdrawn and unstaked",
+                    data.toString().getBytes());
+        } catch (Exception e) {
+            CallContext.close(opened);
+            throw e;
+        } finally {
+            completeCall(opened);
+        }
     }
 
     @External
     public void withdrawCollateral(BigInteger _value, @Optional String _collateralSymbol) {
         checkStatus();
         loansOn();
-        String collateralSymbol = optionalDefault(_collateralSymbol, SICX_SYMBOL);
-        Address from = Context.getCaller();
-        removeCollateral(from, _value, collateralSymbol);
-        transferCollateral(collateralSymbol, from, _value, "Collateral withdrawn.", new byte[0]);
+        boolean opened = CallContext.open();
+        try {
+            String collateralSymbol = optionalDefault(_collateralSymbol, SICX_SYMBOL);
+            Address from = Context.getCaller();
+            removeCollateral(from, _value, collateralSymbol);
+            transferCollateral(collateralSymbol, from, _value, "Collateral withdrawn.", new byte[0]);
+        } catch (Exception e) {
+            CallContext.close(opened);
+            throw e;
+        } finally {
+            completeCall(opened);
+        }
     }
 
     @External
@@ -537,54 +763,141 @@ public class LoansImpl implements Loans {
                                BigInteger minimumDebtRepaid) {
         checkStatus();
         loansOn();
-        Address from = Context.getCaller();
-        sellUserCollateral(from, collateralAmountToSell, collateralSymbol, minimumDebtRepaid);
+        boolean opened = CallContext.open();
+        try {
+            Address from = Context.getCaller();
+            sellUserCollateral(from, collateralAmountToSell, collateralSymbol, minimumDebtRepaid);
+        } catch (Exception e) {
+            CallContext.close(opened);
+            throw e;
+        } finally {
+            completeCall(opened);
+        }
     }
 
     @External
     public void liquidate(Address _owner, @Optional String _collateralSymbol) {
         checkStatus();
         loansOn();
-        String collateralSymbol = optionalDefault(_collateralSymbol, SICX_SYMBOL);
-        Context.require(PositionsDB.hasPosition(_owner), TAG + ": This address does not have a position on Balanced.");
-        Position position = PositionsDB.getPosition(_owner);
-        Standings standing = position.getStanding(collateralSymbol).standing;
+        boolean opened = CallContext.open();
+        try {
+            String collateralSymbol = optionalDefault(_collateralSymbol, SICX_SYMBOL);
+            Context.require(PositionsDB.hasPosition(_owner), TAG + ": This address does not have a position on " +
+                    "Balanced.");
+            Position position = PositionsDB.getPosition(_owner);
+            Standings standing = position.getStanding(collateralSymbol).standing;
+
+            if (standing != Standings.LIQUIDATE) {
+                return;
+            }
+
+            BigInteger collateral = position.getCollateral(collateralSymbol);
+            BigInteger reward = collateral.multiply(liquidationReward.get()).divide(POINTS);
+            BigInteger forPool = collateral.subtract(reward);
+            BigInteger totalDebt = position.getDebt(collateralSymbol);
+            BigInteger oldTotalDebt = DebtDB.getTotalDebt();
+            BigInteger debt = position.getDebt(collateralSymbol);
+            BigInteger oldUserDebt = position.getTotalDebt();
+
+            if (debt.compareTo(BigInteger.ZERO) > 0) {
+                BigInteger badDebt = DebtDB.getBadDebt(collateralSymbol);
+                DebtDB.setBadDebt(collateralSymbol, badDebt.add(debt));
+                BigInteger share = forPool.multiply(debt).divide(totalDebt);
+                totalDebt = totalDebt.subtract(debt);
+                forPool = forPool.subtract(share);
+                DebtDB.setLiquidationPool(collateralSymbol, DebtDB.getLiquidationPool(collateralSymbol).add(share));
+                position.setDebt(collateralSymbol, null);
+            }
+
+            position.setCollateral(collateralSymbol, null);
+            if (debt.compareTo(BigInteger.ZERO) > 0) {
+                updateRewardsData(oldTotalDebt, _owner, oldUserDebt);
+            }
 
-        if (standing != Standings.LIQUIDATE) {
-            return;
+            transferCollateral(collateralSymbol, Context.getCaller(), reward, "Liquidation reward of", new byte[0]);
+
+            String logMessage = collateral + " liquidated from " + _owner;
+            Liquidate(_owner, collateral, logMessage);
+        } catch (Exception e) {
+            CallContext.close(opened);
+            throw e;
+        } finally {
+            completeCall(opened);
         }
+    }
 
-        BigInteger collateral = position.getCollateral(collateralSymbol);
-        BigInteger reward = collateral.multiply(liquidationReward.get()).divide(POINTS);
-        BigInteger forPool = collateral.subtract(reward);
-        BigInteger totalDebt = position.getDebt(collateralSymbol);
-        BigInteger oldTotalDebt = DebtDB.getTotalDebt();
-        BigInteger debt = position.getDebt(collateralSymbol);
-        BigInteger oldUserDebt = position.getTotalDebt();
+    @External
+    public void liquidateBatch(Address[] _owners, @Optional String _collateralSymbol) {
+        checkStatus();
+        loansOn();
+        boolean opened = CallContext.open();
+        try {
+            String collateralSymbol = optionalDefault(_collateralSymbol, SICX_SYMBOL);
+            Context.require(_owners.length > 0, TAG + ": No positions to liquidate.");
 
-        if (debt.compareTo(BigInteger.ZERO) > 0) {
+            BigInteger rewardRate = liquidationReward.get();
+            BigInteger oldTotalDebt = DebtDB.getTotalDebt();
             BigInteger badDebt = DebtDB.getBadDebt(collateralSymbol);
-            DebtDB.setBadDebt(collateralSymbol, badDebt.add(debt));
-            BigInteger share = forPool.multiply(debt).divide(totalDebt);
-            totalDebt = totalDebt.subtract(debt);
-            forPool = forPool.subtract(share);
-            DebtDB.setLiquidationPool(collateralSymbol, DebtDB.getLiquidationPool(collateralSymbol).add(share));
-            position.setDebt(collateralSymbol, null);
-            Context.call(getRewards(), "updateRewardsData", "Loans", oldTotalDebt, _owner, oldUserDebt);
-        }
+            BigInteger liquidationPool = DebtDB.getLiquidationPool(collateralSymbol);
+            BigInteger totalReward = BigInteger.ZERO;
+
+            List<RewardsDataEntry> rewardsData = new ArrayList<>();
+            for (Address owner : _owners) {
+                if (!PositionsDB.hasPosition(owner)) {
+                    continue;
+                }
+
+                Position position = PositionsDB.getPosition(owner);
+                if (position.getStanding(collateralSymbol).standing != Standings.LIQUIDATE) {
+                    continue;
+                }
+
+                BigInteger collateral = position.getCollateral(collateralSymbol);
+                BigInteger reward = collateral.multiply(rewardRate).divide(POINTS);
+                BigInteger debt = position.getDebt(collateralSymbol);
+
+                RewardsDataEntry userEntry = new RewardsDataEntry();
+                userEntry._user = owner;
+                userEntry._balance = position.getTotalDebt();
+                rewardsData.add(userEntry);
+
+                badDebt = badDebt.add(debt);
+                liquidationPool = liquidationPool.add(collateral.subtract(reward));
+                totalReward = totalReward.add(reward);
+
+                position.setDebt(collateralSymbol, null);
+                position.setCollateral(collateralSymbol, null);
+
+                String logMessage = collateral + " liquidated from " + owner;
+                Liquidate(owner, collateral, logMessage);
+            }
 
-        position.setCollateral(collateralSymbol, null);
-        transferCollateral(collateralSymbol, Context.getCaller(), reward, "Liquidation reward of", new byte[0]);
+            int liquidatedCount = rewardsData.size();
+            if (liquidatedCount == 0) {
+                return;
+            }
 
-        String logMessage = collateral + " liquidated from " + _owner;
-        Liquidate(_owner, collateral, logMessage);
-    }
+            DebtDB.setBadDebt(collateralSymbol, badDebt);
+            DebtDB.setLiquidationPool(collateralSymbol, liquidationPool);
 
-    private BigInteger badDebtRedeem(Address from, String collateralSymbol, BigInteger badDebtAmount) {
+            RewardsDataEntry[] rewardsBatchList = new RewardsDataEntry[liquidatedCount];
+            for (int i = 0; i < liquidatedCount; i++) {
+                rewardsBatchList[i] = rewardsData.get(i);
+            }
 
-        Address collateralAddress = CollateralDB.getAddress(collateralSymbol);
+            updateBatchRewardsData(oldTotalDebt, rewardsBatchList);
+            transferCollateral(collateralSymbol, Context.getCaller(), totalReward, "Liquidation reward of",
+                    new byte[0]);
+        } catch (Exception e) {
+            CallContext.close(opened);
+            throw e;
+        } finally {
+            completeCall(opened);
+        }
+    }
 
-        BigInteger collateralDecimals = pow(BigInteger.TEN, TokenUtils.decimals(collateralAddress).intValue());
+    private BigInteger badDebtRedeem(Address from, String collateralSymbol, BigInteger badDebtAmount) {
+        BigInteger collateralDecimals = TokenUtils.getUnitValue(collateralSymbol);
         BigInteger collateralPriceInUSD = TokenUtils.getPriceInUSD(collateralSymbol);
         BigInteger inPool = DebtDB.getLiquidationPool(collateralSymbol);
         BigInteger badDebt = DebtDB.getBadDebt(collateralSymbol).subtract(badDebtAmount);
@@ -609,6 +922,7 @@ public class LoansImpl implements Loans {
         DebtDB.setLiquidationPool(collateralSymbol, null);
         BigInteger remainingCollateral = badDebtCollateral.subtract(inPool);
         BigInteger remainingValue = remainingCollateral.multiply(collateralPriceInUSD).divide(collateralDecimals);
+        flushAll();
         Context.call(getReserve(), "redeem", from, remainingValue, collateralSymbol);
 
         return inPool;
@@ -677,7 +991,7 @@ public class LoansImpl implements Loans {
 
         TokenUtils.burnAssetFrom(Context.getAddress(), bnUSDReceived);
 
-        Context.call(getRewards(), "updateRewardsData", "Loans", oldSupply, from, oldUserDebt);
+        updateRewardsData(oldSupply, from, oldUserDebt);
 
         String logMessage = "Loan of " + bnUSDReceived + " " + BNUSD_SYMBOL + " sold for" + collateralToSell + " " +
                 collateralSymbol + " to Balanced.";
@@ -695,8 +1009,7 @@ public class LoansImpl implements Loans {
         BigInteger debt = position.getDebt(collateralSymbol);
         BigInteger remainingCollateral = position.getCollateral(collateralSymbol).subtract(value);
 
-        Address collateralAddress = CollateralDB.getAddress(collateralSymbol);
-        BigInteger collateralDecimals = pow(BigInteger.TEN, TokenUtils.decimals(collateralAddress).intValue());
+        BigInteger collateralDecimals = TokenUtils.getUnitValue(collateralSymbol);
 
         BigInteger remainingCollateralInUSD =
                 remainingCollateral.multiply(TokenUtils.getPriceInUSD(collateralSymbol)).divide(collateralDecimals);
@@ -745,7 +1058,7 @@ public class LoansImpl implements Loans {
 
         BigInteger oldUserDebt = position.getTotalDebt();
         position.setDebt(collateralSymbol, holdings.add(newDebt));
-        Context.call(getRewards(), "updateRewardsData", "Loans", oldTotalDebt, from, oldUserDebt);
+        updateRewardsData(oldTotalDebt, from, oldUserDebt);
 
         TokenUtils.mintAssetTo(from, amount);
         String logMessage = "Loan of " + amount + " " + BNUSD_SYMBOL + " from Balanced.";
@@ -754,12 +1067,44 @@ public class LoansImpl implements Loans {
         FeePaid(BNUSD_SYMBOL, fee, "origination");
     }
 
+    private void updateRewardsData(BigInteger oldTotalDebt, Address user, BigInteger oldUserDebt) {
+        flushAll();
+        Context.call(getRewards(), "updateRewardsData", "Loans", oldTotalDebt, user, oldUserDebt);
+    }
+
+    private void updateBatchRewardsData(BigInteger oldTotalDebt, RewardsDataEntry[] rewardsBatchList) {
+        flushAll();
+        Context.call(getRewards(), "updateBatchRewardsData", "Loans", oldTotalDebt, rewardsBatchList);
+    }
+
     private void transferCollateral(String tokenSymbol, Address to, BigInteger amount, String msg, byte[] data) {
+        flushAll();
         Context.call(CollateralDB.getAddress(tokenSymbol), "transfer", to, amount, data);
         String logMessage = msg + " " + amount.toString() + " " + tokenSymbol + " sent to " + to;
         TokenTransfer(to, amount, logMessage);
     }
 
+    /**
+     * Writes the positions, debt totals and collateral stats changed so far to storage. Runs at the end of every
+     * external call that changes them and before every outgoing call that can call back into Loans or read its totals.
+     */
+    private static void flushAll() {
+        PositionsDB.flush();
+        DebtDB.flush();
+        CollateralStatsDB.flush();
+    }
+
+    /**
+     * Flushes and closes the call context opened by an external call once it has returned. A reverted call closes its
+     * context before this runs, so none of its pending writes reach storage.
+     */
+    private static void completeCall(boolean opened) {
+        if (opened && CallContext.get() != null) {
+            flushAll();
+            CallContext.close(true);
+        }
+    }
+
     public static Object call(Address targetAddress, String method, Object... params) {
         return Context.call(targetAddress, method, params);
     }
@@ -769,12 +1114,17 @@ public class LoansImpl implements Loans {
             return BigInteger.ZERO;
         }
 
-        expectedToken.set(CollateralDB.getAddress(SICX_SYMBOL));
-        Context.call(amount, getStaking(), "stakeICX", Context.getAddress(), new byte[0]);
+        flushAll();
+        BigInteger received;
+        stakingTxHash.set(Context.getTransactionHash());
+        try {
+            received = Context.call(BigInteger.class, amount, getStaking(), "stakeICX", Context.getAddress(),
+                    new byte[0]);
+        } finally {
+            stakingTxHash.set(null);
+        }
 
-        BigInteger received = amountReceived.getOrDefault(BigInteger.ZERO);
-        Context.require(!received.equals(BigInteger.ZERO), TAG + ": Expected sICX not received.");
-        amountReceived.set(null);
+        Context.require(received != null && received.signum() > 0, TAG + ": Expected sICX not received.");
 
         return received;
     }
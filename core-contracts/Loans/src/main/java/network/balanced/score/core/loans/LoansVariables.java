@@ -46,6 +46,7 @@ public class LoansVariables {
 
     private static final String EXPECTED_TOKEN = "expectedToken";
     private static final String AMOUNT_RECEIVED = "amountReceived";
+    private static final String STAKING_TX_HASH = "staking_tx_hash";
     private static final String VERSION = "version";
 
     public static final VarDB<Boolean> loansOn = Context.newVarDB(LOANS_ON, Boolean.class);
@@ -70,6 +71,8 @@ public class LoansVariables {
 
     static final VarDB<Address> expectedToken = Context.newVarDB(EXPECTED_TOKEN, Address.class);
     static final VarDB<BigInteger> amountReceived = Context.newVarDB(AMOUNT_RECEIVED, BigInteger.class);
+    // Hash of the transaction in which stakeICX is waiting for Staking to mint sICX, cleared once it returns
+    static final VarDB<byte[]> stakingTxHash = Context.newVarDB(STAKING_TX_HASH, byte[].class);
 
     public static final VarDB<String> currentVersion = Context.newVarDB(VERSION, String.class);
 }
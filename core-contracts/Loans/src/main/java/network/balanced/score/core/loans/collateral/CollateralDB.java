@@ -27,7 +27,6 @@ import java.math.BigInteger;
 import java.util.Map;
 
 import static network.balanced.score.lib.utils.ArrayDBUtils.arrayDbContains;
-import static network.balanced.score.lib.utils.Math.pow;
 
 
 public class CollateralDB {
@@ -37,6 +36,8 @@ public class CollateralDB {
     public static ArrayDB<String> collateralList = Context.newArrayDB("collateral", String.class);
     public static final DictDB<String, String> symbolMap = Context.newDictDB("symbol|address", String.class);
     public static final DictDB<String, String> addressMap = Context.newDictDB("address|symbol", String.class);
+    public static final DictDB<String, BigInteger> decimals = Context.newDictDB("collateral_decimals",
+            BigInteger.class);
 
     public static void migrateAddressMap() {
         int collateralCount = collateralList.size();
@@ -47,6 +48,16 @@ public class CollateralDB {
         }
     }
 
+    public static void migrateDecimals() {
+        int collateralCount = collateralList.size();
+        for (int i = 0; i < collateralCount; i++) {
+            String symbol = collateralList.get(i);
+            if (decimals.get(symbol) == null) {
+                decimals.set(symbol, TokenUtils.decimals(getAddress(symbol)));
+            }
+        }
+    }
+
     public static int size() {
         return collateralAddresses.size();
     }
@@ -62,7 +73,16 @@ public class CollateralDB {
         return symbol;
     }
 
-    public static void addCollateral(Address address, String symbol) {
+    public static BigInteger getDecimals(String symbol) {
+        BigInteger collateralDecimals = decimals.get(symbol);
+        if (collateralDecimals == null) {
+            return TokenUtils.decimals(getAddress(symbol));
+        }
+
+        return collateralDecimals;
+    }
+
+    public static void addCollateral(Address address, String symbol, BigInteger collateralDecimals) {
         String collateralToAdd = address.toString();
         Context.require(!arrayDbContains(collateralAddresses, address), TAG + ": " + collateralToAdd + " already " +
                 "exists in the database.");
@@ -71,8 +91,10 @@ public class CollateralDB {
 
         symbolMap.set(symbol, collateralToAdd);
         addressMap.set(collateralToAdd, symbol);
+        decimals.set(symbol, collateralDecimals);
 
         collateralList.add(symbol);
+        CollateralStatsDB.initialize(symbol);
     }
 
     public static Map<String, String> getCollateral() {
@@ -92,7 +114,7 @@ public class CollateralDB {
         for (int i = 0; i < collateralCount; i++) {
             String symbol = collateralList.get(i);
             Address collateralAddress = getAddress(symbol);
-            BigInteger collateralDecimals = pow(BigInteger.TEN, TokenUtils.decimals(collateralAddress).intValue());
+            BigInteger collateralDecimals = TokenUtils.getUnitValue(symbol);
 
             BigInteger value =
                     TokenUtils.balanceOf(collateralAddress, Context.getAddress()).multiply(TokenUtils.getPriceInUSD(symbol)).divide(collateralDecimals);
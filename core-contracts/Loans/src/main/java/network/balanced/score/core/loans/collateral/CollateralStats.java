@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2023-2023 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.loans.collateral;
+
+import score.ByteArrayObjectWriter;
+import score.Context;
+import score.ObjectReader;
+import score.ObjectWriter;
+import scorex.util.HashMap;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+public class CollateralStats {
+
+    public int borrowers;
+    public BigInteger totalDebt;
+    public BigInteger badDebt;
+    public BigInteger liquidationPool;
+    public BigInteger totalCollateral;
+    public BigInteger lastPrice;
+    public long lastPriceBlock;
+
+    public CollateralStats() {
+        this.borrowers = 0;
+        this.totalDebt = BigInteger.ZERO;
+        this.badDebt = BigInteger.ZERO;
+        this.liquidationPool = BigInteger.ZERO;
+        this.totalCollateral = BigInteger.ZERO;
+        this.lastPrice = BigInteger.ZERO;
+        this.lastPriceBlock = 0;
+    }
+
+    public static void writeObject(ObjectWriter writer, CollateralStats obj) {
+        obj.writeObject(writer);
+    }
+
+    public static CollateralStats readObject(ObjectReader reader) {
+        CollateralStats obj = new CollateralStats();
+        reader.beginList();
+        obj.borrowers = reader.readInt();
+        obj.totalDebt = reader.readBigInteger();
+        obj.badDebt = reader.readBigInteger();
+        obj.liquidationPool = reader.readBigInteger();
+        obj.totalCollateral = reader.readBigInteger();
+        obj.lastPrice = reader.readBigInteger();
+        obj.lastPriceBlock = reader.readLong();
+        reader.end();
+        return obj;
+    }
+
+    public void writeObject(ObjectWriter writer) {
+        writer.beginList(7);
+        writer.write(this.borrowers);
+        writer.write(this.totalDebt);
+        writer.write(this.badDebt);
+        writer.write(this.liquidationPool);
+        writer.write(this.totalCollateral);
+        writer.write(this.lastPrice);
+        writer.write(this.lastPriceBlock);
+        writer.end();
+    }
+
+    public static CollateralStats fromBytes(byte[] bytes) {
+        ObjectReader reader = Context.newByteArrayObjectReader("RLPn", bytes);
+        return CollateralStats.readObject(reader);
+    }
+
+    public byte[] toBytes() {
+        ByteArrayObjectWriter writer = Context.newByteArrayObjectWriter("RLPn");
+        CollateralStats.writeObject(writer, this);
+        return writer.toByteArray();
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("borrowers", borrowers);
+        stats.put("total_debt", totalDebt);
+        stats.put("bad_debt", badDebt);
+        stats.put("liquidation_pool", liquidationPool);
+        stats.put("total_collateral", totalCollateral);
+        stats.put("last_price", lastPrice);
+        stats.put("last_price_block", lastPriceBlock);
+        return stats;
+    }
+}
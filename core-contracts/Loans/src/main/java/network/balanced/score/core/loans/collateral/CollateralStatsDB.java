@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2023-2023 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.loans.collateral;
+
+import network.balanced.score.core.loans.debt.DebtDB;
+import network.balanced.score.core.loans.utils.CallContext;
+import network.balanced.score.core.loans.utils.TokenUtils;
+import score.Context;
+import score.DictDB;
+import scorex.util.ArrayList;
+import scorex.util.HashMap;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregate figures per collateral kept in a single packed record, so that dashboards can read all of them without
+ * walking the borrower lists. Every setter is applied in the write path that changes the underlying value, within a
+ * call the changes are collected in memory and each record is written once by {@link #flush()}.
+ */
+public class CollateralStatsDB {
+    private static final DictDB<String, byte[]> stats = Context.newDictDB("collateral_stats", byte[].class);
+
+    /**
+     * Records loaded by the running call, calls without a {@link CallContext} read and write storage directly.
+     */
+    public static class Cache {
+        private final Map<String, CollateralStats> stats = new HashMap<>();
+        private final List<String> dirtyStats = new ArrayList<>();
+    }
+
+    private static Cache getCache() {
+        CallContext context = CallContext.get();
+        return context == null ? null : context.collateralStats;
+    }
+
+    public static void migrate() {
+        int collateralCount = CollateralDB.collateralList.size();
+        for (int i = 0; i < collateralCount; i++) {
+            String symbol = CollateralDB.collateralList.get(i);
+            if (stats.get(symbol) != null) {
+                continue;
+            }
+
+            CollateralStats collateralStats = new CollateralStats();
+            collateralStats.borrowers = DebtDB.getBorrowers(symbol).size();
+            collateralStats.totalDebt = DebtDB.getCollateralDebt(symbol);
+            collateralStats.badDebt = DebtDB.getBadDebt(symbol);
+            collateralStats.liquidationPool = DebtDB.getLiquidationPool(symbol);
+
+            // Position collateral is everything Loans holds except the liquidation pool
+            BigInteger balance = TokenUtils.balanceOf(CollateralDB.getAddress(symbol), Context.getAddress());
+            collateralStats.totalCollateral = balance.subtract(collateralStats.liquidationPool).max(BigInteger.ZERO);
+            set(symbol, collateralStats);
+        }
+
+        flush();
+    }
+
+    public static void initialize(String symbol) {
+        set(symbol, new CollateralStats());
+        flush();
+    }
+
+    public static CollateralStats get(String symbol) {
+        Cache cache = getCache();
+        if (cache == null) {
+            return read(symbol);
+        }
+
+        if (!cache.stats.containsKey(symbol)) {
+            cache.stats.put(symbol, read(symbol));
+        }
+
+        return cache.stats.get(symbol);
+    }
+
+    private static CollateralStats read(String symbol) {
+        byte[] data = stats.get(symbol);
+        if (data == null) {
+            return null;
+        }
+
+        return CollateralStats.fromBytes(data);
+    }
+
+    private static void set(String symbol, CollateralStats collateralStats) {
+        Cache cache = getCache();
+        if (cache == null) {
+            stats.set(symbol, collateralStats.toBytes());
+            return;
+        }
+
+        cache.stats.put(symbol, collateralStats);
+        if (!cache.dirtyStats.contains(symbol)) {
+            cache.dirtyStats.add(symbol);
+        }
+    }
+
+    /**
+     * Writes every record changed by the running call to storage, together with the last price fetched for its
+     * collateral by that call.
+     */
+    public static void flush() {
+        Cache cache = getCache();
+        if (cache == null) {
+            return;
+        }
+
+        for (String symbol : cache.dirtyStats) {
+            CollateralStats collateralStats = cache.stats.get(symbol);
+            BigInteger price = TokenUtils.getCachedPriceInUSD(symbol);
+            if (price != null) {
+                collateralStats.lastPrice = price;
+                collateralStats.lastPriceBlock = Context.getBlockHeight();
+            }
+
+            stats.set(symbol, collateralStats.toBytes());
+        }
+
+        cache.dirtyStats.clear();
+    }
+
+    public static void updatePosition(String symbol, Integer borrowers, BigInteger collateralChange) {
+        CollateralStats collateralStats = get(symbol);
+        if (collateralStats == null) {
+            return;
+        }
+
+        if (borrowers != null) {
+            collateralStats.borrowers = borrowers;
+        }
+
+        collateralStats.totalCollateral = collateralStats.totalCollateral.add(collateralChange);
+        set(symbol, collateralStats);
+    }
+
+    public static void setTotalDebt(String symbol, BigInteger totalDebt) {
+        CollateralStats collateralStats = get(symbol);
+        if (collateralStats == null || collateralStats.totalDebt.equals(totalDebt)) {
+            return;
+        }
+
+        collateralStats.totalDebt = totalDebt;
+        set(symbol, collateralStats);
+    }
+
+    public static void setBadDebt(String symbol, BigInteger badDebt) {
+        CollateralStats collateralStats = get(symbol);
+        if (collateralStats == null) {
+            return;
+        }
+
+        collateralStats.badDebt = badDebt == null ? BigInteger.ZERO : badDebt;
+        set(symbol, collateralStats);
+    }
+
+    public static void setLiquidationPool(String symbol, BigInteger liquidationPool) {
+        CollateralStats collateralStats = get(symbol);
+        if (collateralStats == null) {
+            return;
+        }
+
+        collateralStats.liquidationPool = liquidationPool == null ? BigInteger.ZERO : liquidationPool;
+        set(symbol, collateralStats);
+    }
+
+    public static Map<String, Map<String, Object>> getCollateralStats() {
+        Map<String, Map<String, Object>> collateralStats = new HashMap<>();
+        int collateralCount = CollateralDB.collateralList.size();
+        for (int i = 0; i < collateralCount; i++) {
+            String symbol = CollateralDB.collateralList.get(i);
+            CollateralStats symbolStats = get(symbol);
+            if (symbolStats != null) {
+                collateralStats.put(symbol, symbolStats.toMap());
+            }
+        }
+
+        return collateralStats;
+    }
+}
@@ -17,9 +17,12 @@
 package network.balanced.score.core.loans.debt;
 
 import network.balanced.score.core.loans.collateral.CollateralDB;
+import network.balanced.score.core.loans.collateral.CollateralStats;
+import network.balanced.score.core.loans.collateral.CollateralStatsDB;
 import network.balanced.score.core.loans.linkedlist.LinkedListDB;
 import network.balanced.score.core.loans.positions.Position;
 import network.balanced.score.core.loans.positions.PositionsDB;
+import network.balanced.score.core.loans.utils.CallContext;
 import score.Address;
 import score.BranchDB;
 import score.Context;
@@ -53,8 +56,31 @@ public class DebtDB {
     private static final BranchDB<String, DictDB<String, BigInteger>> totalPerCollateralDebts =
             Context.newBranchDB(TOTAL_COLLATERAL_DEBTS, BigInteger.class);
 
+    /**
+     * Debt totals of the running call, written back once by {@link #flush()}. Calls without a {@link CallContext}
+     * read and write storage directly.
+     */
+    public static class Cache {
+        private BigInteger totalDebt;
+        private boolean totalDebtDirty = false;
+        private final Map<String, BigInteger> collateralDebts = new HashMap<>();
+        private final List<String> dirtyCollateralDebts = new ArrayList<>();
+    }
+
+    private static Cache getCache() {
+        CallContext context = CallContext.get();
+        return context == null ? null : context.debts;
+    }
+
     public static void setTotalDebt(BigInteger debt) {
-        totalDebts.set(BNUSD_SYMBOL, debt);
+        Cache cache = getCache();
+        if (cache == null) {
+            totalDebts.set(BNUSD_SYMBOL, debt);
+            return;
+        }
+
+        cache.totalDebt = debt;
+        cache.totalDebtDirty = true;
     }
 
     public static String getDBKey() {
@@ -62,15 +88,68 @@ public class DebtDB {
     }
 
     public static BigInteger getTotalDebt() {
-        return totalDebts.getOrDefault(BNUSD_SYMBOL, BigInteger.ZERO);
+        Cache cache = getCache();
+        if (cache == null) {
+            return totalDebts.getOrDefault(BNUSD_SYMBOL, BigInteger.ZERO);
+        }
+
+        if (cache.totalDebt == null) {
+            cache.totalDebt = totalDebts.getOrDefault(BNUSD_SYMBOL, BigInteger.ZERO);
+        }
+
+        return cache.totalDebt;
     }
 
     public static void setCollateralDebt(String collateralSymbol, BigInteger debt) {
-        totalPerCollateralDebts.at(collateralSymbol).set(BNUSD_SYMBOL, debt);
+        Cache cache = getCache();
+        if (cache == null) {
+            totalPerCollateralDebts.at(collateralSymbol).set(BNUSD_SYMBOL, debt);
+            CollateralStatsDB.setTotalDebt(collateralSymbol, debt);
+            return;
+        }
+
+        cache.collateralDebts.put(collateralSymbol, debt);
+        if (!cache.dirtyCollateralDebts.contains(collateralSymbol)) {
+            cache.dirtyCollateralDebts.add(collateralSymbol);
+        }
     }
 
     public static BigInteger getCollateralDebt(String collateralSymbol) {
-        return totalPerCollateralDebts.at(collateralSymbol).getOrDefault(BNUSD_SYMBOL, BigInteger.ZERO);
+        Cache cache = getCache();
+        if (cache == null) {
+            return totalPerCollateralDebts.at(collateralSymbol).getOrDefault(BNUSD_SYMBOL, BigInteger.ZERO);
+        }
+
+        BigInteger debt = cache.collateralDebts.get(collateralSymbol);
+        if (debt == null) {
+            debt = totalPerCollateralDebts.at(collateralSymbol).getOrDefault(BNUSD_SYMBOL, BigInteger.ZERO);
+            cache.collateralDebts.put(collateralSymbol, debt);
+        }
+
+        return debt;
+    }
+
+    /**
+     * Writes the pending debt totals to storage. Must be called before any external call that reads the totals and
+     * before the running call returns.
+     */
+    public static void flush() {
+        Cache cache = getCache();
+        if (cache == null) {
+            return;
+        }
+
+        if (cache.totalDebtDirty) {
+            totalDebts.set(BNUSD_SYMBOL, cache.totalDebt);
+            cache.totalDebtDirty = false;
+        }
+
+        for (String symbol : cache.dirtyCollateralDebts) {
+            totalPerCollateralDebts.at(symbol).set(BNUSD_SYMBOL, cache.collateralDebts.get(symbol));
+            CollateralStatsDB.setTotalDebt(symbol, cache.collateralDebts.get(symbol));
+        }
+
+        cache.dirtyCollateralDebts.clear();
     }
 
     public static void setDebtCeiling(String collateralSymbol, BigInteger ceiling) {
@@ -83,6 +162,7 @@ public class DebtDB {
 
     public static void setBadDebt(String symbol, BigInteger badDebt) {
         badDebts.at(getDBKey()).set(symbol, badDebt);
+        CollateralStatsDB.setBadDebt(symbol, badDebt);
     }
 
     public static BigInteger getBadDebt(String symbol) {
@@ -91,6 +171,7 @@ public class DebtDB {
 
     public static void setLiquidationPool(String collateralSymbol, BigInteger liquidationPool) {
         liquidationPools.at(getDBKey()).set(collateralSymbol, liquidationPool);
+        CollateralStatsDB.setLiquidationPool(collateralSymbol, liquidationPool);
     }
 
     public static BigInteger getLiquidationPool(String collateralSymbol) {
@@ -146,16 +227,31 @@ public class DebtDB {
         for (int i = 0; i < collateralListCount; i++) {
             Map<String, Object> loansDetail = new HashMap<>();
             String symbol = CollateralDB.collateralList.get(i);
-            loansDetail.put("borrowers", getBorrowers(symbol).size());
-            loansDetail.put("bad_debt", getBadDebt(symbol));
-            loansDetail.put("liquidation_pool", getLiquidationPool(symbol));
+            CollateralStats stats = CollateralStatsDB.get(symbol);
+            if (stats == null) {
+                loansDetail.put("borrowers", getBorrowers(symbol).size());
+                loansDetail.put("bad_debt", getBadDebt(symbol));
+                loansDetail.put("liquidation_pool", getLiquidationPool(symbol));
+            } else {
+                loansDetail.put("borrowers", stats.borrowers);
+                loansDetail.put("bad_debt", stats.badDebt);
+                loansDetail.put("liquidation_pool", stats.liquidationPool);
+            }
+
             loansDetails.put(symbol, loansDetail);
         }
 
+        Map<String, Object> sICXDetails = loansDetails.get(SICX_SYMBOL);
         debtDetails.put("debt_details", loansDetails);
-        debtDetails.put("bad_debt", getBadDebt(SICX_SYMBOL));
-        debtDetails.put("liquidation_pool", getLiquidationPool(SICX_SYMBOL));
-        debtDetails.put("borrowers", getBorrowers(SICX_SYMBOL).size());
+        if (sICXDetails != null) {
+            debtDetails.put("bad_debt", sICXDetails.get("bad_debt"));
+            debtDetails.put("liquidation_pool", sICXDetails.get("liquidation_pool"));
+            debtDetails.put("borrowers", sICXDetails.get("borrowers"));
+        } else {
+            debtDetails.put("bad_debt", getBadDebt(SICX_SYMBOL));
+            debtDetails.put("liquidation_pool", getLiquidationPool(SICX_SYMBOL));
+            debtDetails.put("borrowers", getBorrowers(SICX_SYMBOL).size());
+        }
 
         return debtDetails;
     }
@@ -16,19 +16,17 @@
 
 package network.balanced.score.core.loans.linkedlist;
 
-import network.balanced.score.core.loans.utils.PositionBatch;
 import score.Context;
 import score.VarDB;
-import scorex.util.HashMap;
 
 import java.math.BigInteger;
-import java.util.Map;
 
 public class LinkedListDB {
     private final static String _NAME = "_LINKED_LISTDB";
     private final String name;
     private final String dbKey;
     private final VarDB<String> metadata;
+    private final VarDB<Integer> redemptionCursor;
     private String dataString;
     private int headId;
     private int tailId;
@@ -38,6 +36,7 @@ public class LinkedListDB {
         name = dbName + _NAME;
         dbKey = "";
         metadata = Context.newVarDB(name + "_metadata", String.class);
+        redemptionCursor = Context.newVarDB(name + "_redemption_cursor", Integer.class);
         initialize();
     }
 
@@ -46,6 +45,7 @@ public class LinkedListDB {
         name = dbName + _NAME;
         dbKey = key;
         metadata = (VarDB<String>) Context.newBranchDB(name + "_metadata", String.class).at(dbKey);
+        redemptionCursor = (VarDB<Integer>) Context.newBranchDB(name + "_redemption_cursor", Integer.class).at(dbKey);
         initialize();
     }
 
@@ -79,7 +79,11 @@ public class LinkedListDB {
         return size;
     }
 
-    private Node getNode(int nodeId) {
+    String getName() {
+        return name;
+    }
+
+    Node getNode(int nodeId) {
         Context.require(nodeId > 0, name + ": Reached end of list");
         if (!dbKey.equals("")) {
             return new Node(nodeId + name, dbKey);
@@ -136,78 +140,31 @@ public class LinkedListDB {
         serialize();
     }
 
-    public PositionBatch readDataBatch(BigInteger debtRequired) {
+    /**
+     * Opens a cursor at the node the previous redemption stopped at. Falls back to the head if that node has since
+     * been removed from the list.
+     */
+    public RedemptionCursor readRedemptionCursor() {
         Context.require(size != 0, name + ": No data in the list");
 
-        PositionBatch batch = new PositionBatch();
-        batch.totalDebt = BigInteger.ZERO;
-        Map<Integer, BigInteger> positionsMap = new HashMap<>();
-
-        Node head = getNode(headId);
-        Node tail = getNode(tailId);
-        Node currentNode = head;
-        int currentNodeId = headId;
-        BigInteger currentValue;
-
-        positionsMap.put(headId, head.getValue());
-        batch.totalDebt = batch.totalDebt.add(head.getValue());
-
-        while (batch.totalDebt.compareTo(debtRequired) < 0) {
-            currentNodeId = currentNode.getNext();
-            currentNode = getNode(currentNodeId);
-            currentValue = currentNode.getValue();
-            batch.totalDebt = batch.totalDebt.add(currentValue);
-            positionsMap.put(currentNodeId, currentValue);
-        }
-
-        batch.positions = positionsMap;
-        batch.size = positionsMap.size();
-
-        int nextId = currentNode.getNext();
-        if (nextId == 0) {
-            return batch;
+        Integer cursor = redemptionCursor.get();
+        if (cursor == null || cursor == 0 || !contains(cursor)) {
+            return new RedemptionCursor(this, headId);
         }
 
-        Node nextHead = getNode(nextId);
-
-        // Update node next to head
-        nextHead.setPrev(0);
-        nextHead.repack();
-
-        // Update tail node
-        tail.setNext(headId);
-        tail.repack();
-
-        // Update previous head as new tail
-        head.setPrev(tailId);
-        head.repack();
-
-        currentNode.setNext(0);
-        currentNode.repack();
-
-        tailId = currentNodeId;
-        headId = nextId;
-        serialize();
+        return new RedemptionCursor(this, cursor);
+    }
 
-        return batch;
+    void setRedemptionCursor(int id) {
+        redemptionCursor.set(id);
     }
 
     public BigInteger getTotalDebtFor(int nrOfPositions) {
-        Context.require(size != 0, name + ": No data in the list");
-
+        RedemptionCursor cursor = readRedemptionCursor();
         BigInteger totalDebt = BigInteger.ZERO;
-
-        Node head = getNode(headId);
-        Node currentNode = head;
-        int currentNodeId;
-        BigInteger currentValue;
-
-        totalDebt = totalDebt.add(head.getValue());
-        for (int i = 1; i < nrOfPositions; i++) {
-            currentNodeId = currentNode.getNext();
-            currentNode = getNode(currentNodeId);
-            currentValue = currentNode.getValue();
-            totalDebt = totalDebt.add(currentValue);
+        for (int i = 0; i < nrOfPositions; i++) {
+            cursor.next();
+            totalDebt = totalDebt.add(cursor.getValue());
         }
 
         return totalDebt;
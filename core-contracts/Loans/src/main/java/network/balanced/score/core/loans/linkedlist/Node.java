@@ -16,55 +16,98 @@
 
 package network.balanced.score.core.loans.linkedlist;
 
+import score.ByteArrayObjectWriter;
 import score.Context;
+import score.ObjectReader;
 import score.VarDB;
 
 import java.math.BigInteger;
+import java.util.Arrays;
+
+import static network.balanced.score.lib.utils.Check.readonly;
 
 public class Node {
 
     private final String _NAME = "_Node";
     private final String name;
-    private final VarDB<String> nodeData;
-    private String dataString;
+    private final VarDB<byte[]> packedNodeData;
+    // Nodes written before the packed format are stored as "value|next|prev" and are upgraded the first time a write
+    // call loads them
+    private final VarDB<String> legacyNodeData;
+    private byte[] data;
+    private boolean legacy;
     private BigInteger value;
     private int next;
     private int prev;
 
     Node(String dbName) {
         name = dbName + _NAME;
-        nodeData = Context.newVarDB(name + "_node_data", String.class);
+        packedNodeData = Context.newVarDB(name + "_packed_node_data", byte[].class);
+        legacyNodeData = Context.newVarDB(name + "_node_data", String.class);
         initialize();
     }
 
     @SuppressWarnings("unchecked")
     Node(String dbName, String key) {
         name = dbName + _NAME;
-        nodeData = (VarDB<String>) Context.newBranchDB(name + "_node_data", String.class).at(key);
+        packedNodeData = (VarDB<byte[]>) Context.newBranchDB(name + "_packed_node_data", byte[].class).at(key);
+        legacyNodeData = (VarDB<String>) Context.newBranchDB(name + "_node_data", String.class).at(key);
         initialize();
     }
 
     private void initialize() {
-        dataString = nodeData.get();
+        value = BigInteger.ZERO;
+        next = 0;
+        prev = 0;
+        legacy = false;
+
+        data = packedNodeData.get();
+        if (data != null) {
+            ObjectReader reader = Context.newByteArrayObjectReader("RLPn", data);
+            reader.beginList();
+            value = reader.readBigInteger();
+            next = reader.readInt();
+            prev = reader.readInt();
+            reader.end();
+            return;
+        }
+
+        String dataString = legacyNodeData.get();
         if (dataString == null || dataString.isEmpty()) {
-            value = BigInteger.ZERO;
-            next = 0;
-            prev = 0;
             return;
         }
 
+        legacy = true;
         int delimiter1 = dataString.indexOf("|");
         int delimiter2 = dataString.lastIndexOf("|");
         value = new BigInteger(dataString.substring(0, delimiter1));
         next = Integer.parseInt(dataString.substring(delimiter1 + 1, delimiter2));
         prev = Integer.parseInt(dataString.substring(delimiter2 + 1));
+        if (!readonly()) {
+            repack();
+        }
+    }
+
+    private byte[] pack() {
+        ByteArrayObjectWriter writer = Context.newByteArrayObjectWriter("RLPn");
+        writer.beginList(3);
+        writer.write(value);
+        writer.write(next);
+        writer.write(prev);
+        writer.end();
+        return writer.toByteArray();
     }
 
     void repack() {
-        String newData = value.toString() + "|" + next + "|" + prev;
-        if (!newData.equals(dataString)) {
-            dataString = newData;
-            nodeData.set(newData);
+        byte[] newData = pack();
+        if (!Arrays.equals(newData, data)) {
+            data = newData;
+            packedNodeData.set(newData);
+        }
+
+        if (legacy) {
+            legacy = false;
+            legacyNodeData.set(null);
         }
     }
 
@@ -72,12 +115,19 @@ public class Node {
         value = BigInteger.ZERO;
         next = 0;
         prev = 0;
-        dataString = null;
-        nodeData.set(null);
+        if (data != null) {
+            data = null;
+            packedNodeData.set(null);
+        }
+
+        if (legacy) {
+            legacy = false;
+            legacyNodeData.set(null);
+        }
     }
 
     boolean exists() {
-        return dataString != null && !dataString.isEmpty();
+        return data != null || legacy;
     }
 
     BigInteger getValue() {
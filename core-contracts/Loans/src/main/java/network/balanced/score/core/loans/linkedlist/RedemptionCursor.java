@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2023-2023 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.loans.linkedlist;
+
+import score.Context;
+
+import java.math.BigInteger;
+
+/**
+ * Walks a {@link LinkedListDB} from its stored redemption cursor, wrapping around to the head at the end of the list.
+ * Nodes are never relinked, only the cursor is written back by {@link #save()}.
+ */
+public class RedemptionCursor {
+    private final LinkedListDB list;
+    private int nextId;
+    private int visited;
+    private int id;
+    private BigInteger value;
+
+    RedemptionCursor(LinkedListDB list, int startId) {
+        this.list = list;
+        this.nextId = startId;
+        this.visited = 0;
+    }
+
+    public boolean hasNext() {
+        return visited < list.size();
+    }
+
+    public void next() {
+        Context.require(visited < list.size(), list.getName() + ": Reached end of list");
+        Node node = list.getNode(nextId);
+        id = nextId;
+        value = node.getValue();
+        nextId = node.getNext() == 0 ? list.getHeadId() : node.getNext();
+        visited = visited + 1;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public BigInteger getValue() {
+        return value;
+    }
+
+    public void save() {
+        list.setRedemptionCursor(nextId);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2023-2023 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.loans.liquidation;
+
+import network.balanced.score.core.loans.positions.Position;
+import network.balanced.score.core.loans.positions.PositionsDB;
+import network.balanced.score.lib.utils.EnumerableSetDB;
+import score.BranchDB;
+import score.Context;
+import score.DictDB;
+import scorex.util.ArrayList;
+import scorex.util.HashMap;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+
+import static network.balanced.score.core.loans.utils.LoansConstants.EXA;
+import static network.balanced.score.core.loans.utils.LoansConstants.POINTS;
+
+/**
+ * Index of positions with debt, bucketed by their debt to collateral ratio per collateral symbol.
+ * Buckets are logarithmic with 8 sub buckets for every doubling of the ratio, so a single price threshold
+ * splits the index into buckets that are fully liquidatable and one bucket that has to be checked per position.
+ */
+public class LiquidationIndexDB {
+    private static final String LIQUIDATION_INDEX = "liquidation_index";
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int NO_COLLATERAL_BUCKET = Integer.MAX_VALUE;
+
+    private static final BranchDB<String, DictDB<Integer, Integer>> positionBuckets = Context.newBranchDB(
+            LIQUIDATION_INDEX + "_position_buckets", Integer.class);
+
+    private static EnumerableSetDB<Integer> getBuckets(String collateralSymbol) {
+        return new EnumerableSetDB<>(collateralSymbol + "|" + LIQUIDATION_INDEX, Integer.class);
+    }
+
+    private static EnumerableSetDB<Integer> getBucket(String collateralSymbol, int bucket) {
+        return new EnumerableSetDB<>(collateralSymbol + "|" + LIQUIDATION_INDEX + "|" + bucket, Integer.class);
+    }
+
+    public static Integer getPositionBucket(String collateralSymbol, int id) {
+        return positionBuckets.at(collateralSymbol).get(id);
+    }
+
+    public static void update(String collateralSymbol, int id, BigInteger debt, BigInteger collateral) {
+        Integer previousBucket = getPositionBucket(collateralSymbol, id);
+        Integer newBucket = null;
+        if (debt != null && debt.signum() > 0) {
+            newBucket = getBucketIndex(debt, collateral);
+        }
+
+        if (newBucket == null ? previousBucket == null : newBucket.equals(previousBucket)) {
+            return;
+        }
+
+        if (previousBucket != null) {
+            EnumerableSetDB<Integer> bucket = getBucket(collateralSymbol, previousBucket);
+            bucket.remove(id);
+            if (bucket.length() == 0) {
+                getBuckets(collateralSymbol).remove(previousBucket);
+            }
+        }
+
+        if (newBucket != null) {
+            getBucket(collateralSymbol, newBucket).add(id);
+            getBuckets(collateralSymbol).add(newBucket);
+        }
+
+        positionBuckets.at(collateralSymbol).set(id, newBucket);
+    }
+
+    public static List<Map<String, Object>> getCandidates(String collateralSymbol, BigInteger price,
+                                                          BigInteger unitValue, BigInteger liquidationRatio,
+                                                          int limit) {
+        List<Map<String, Object>> candidates = new ArrayList<>();
+        if (limit <= 0) {
+            return candidates;
+        }
+
+        // A position is liquidatable when collateral * price * POINTS <= liquidationRatio * unitValue * debt
+        BigInteger minimumRatio = price.multiply(POINTS).multiply(EXA).divide(liquidationRatio.multiply(unitValue));
+        int minimumBucket = getBucketIndex(minimumRatio);
+        int[] buckets = getSortedBuckets(collateralSymbol, minimumBucket);
+
+        BigInteger maxCollateralValue;
+        for (int bucketIndex : buckets) {
+            EnumerableSetDB<Integer> bucket = getBucket(collateralSymbol, bucketIndex);
+            int bucketSize = bucket.length();
+            for (int i = 0; i < bucketSize; i++) {
+                int id = bucket.at(i);
+                Position position = PositionsDB.uncheckedGet(id);
+                BigInteger debt = position.getDebt(collateralSymbol);
+                BigInteger collateral = position.getCollateral(collateralSymbol, true);
+
+                maxCollateralValue = liquidationRatio.multiply(unitValue).multiply(debt);
+                if (collateral.multiply(price).multiply(POINTS).compareTo(maxCollateralValue) > 0) {
+                    continue;
+                }
+
+                Map<String, Object> positionData = new HashMap<>();
+                positionData.put("id", id);
+                positionData.put("address", position.getAddress().toString());
+                positionData.put("debt", debt);
+                positionData.put(collateralSymbol, collateral);
+                candidates.add(positionData);
+                if (candidates.size() == limit) {
+                    return candidates;
+                }
+            }
+        }
+
+        return candidates;
+    }
+
+    // Non-empty buckets at or above minimumBucket, riskiest first
+    private static int[] getSortedBuckets(String collateralSymbol, int minimumBucket) {
+        EnumerableSetDB<Integer> allBuckets = getBuckets(collateralSymbol);
+        int bucketCount = allBuckets.length();
+        int[] buckets = new int[bucketCount];
+        int count = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            int bucket = allBuckets.at(i);
+            if (bucket < minimumBucket) {
+                continue;
+            }
+
+            int j = count;
+            while (j > 0 && buckets[j - 1] < bucket) {
+                buckets[j] = buckets[j - 1];
+                j--;
+            }
+
+            buckets[j] = bucket;
+            count++;
+        }
+
+        int[] sortedBuckets = new int[count];
+        System.arraycopy(buckets, 0, sortedBuckets, 0, count);
+        return sortedBuckets;
+    }
+
+    static int getBucketIndex(BigInteger debt, BigInteger collateral) {
+        if (collateral == null || collateral.signum() <= 0) {
+            return NO_COLLATERAL_BUCKET;
+        }
+
+        return getBucketIndex(debt.multiply(EXA).divide(collateral));
+    }
+
+    static int getBucketIndex(BigInteger ratio) {
+        int bitLength = ratio.bitLength();
+        if (bitLength == 0) {
+            return 0;
+        }
+
+        int shift = bitLength - SUB_BUCKET_BITS - 1;
+        BigInteger leadingBits = shift >= 0 ? ratio.shiftRight(shift) : ratio.shiftLeft(-shift);
+        int subBucket = leadingBits.intValue() - (1 << SUB_BUCKET_BITS);
+
+        return (bitLength << SUB_BUCKET_BITS) + subBucket;
+    }
+}
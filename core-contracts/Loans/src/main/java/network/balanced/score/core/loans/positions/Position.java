@@ -18,18 +18,22 @@ package network.balanced.score.core.loans.positions;
 
 import network.balanced.score.core.loans.LoansVariables;
 import network.balanced.score.core.loans.collateral.CollateralDB;
+import network.balanced.score.core.loans.collateral.CollateralStatsDB;
 import network.balanced.score.core.loans.debt.DebtDB;
+import network.balanced.score.core.loans.linkedlist.LinkedListDB;
+import network.balanced.score.core.loans.liquidation.LiquidationIndexDB;
 import network.balanced.score.core.loans.utils.Standing;
 import network.balanced.score.core.loans.utils.TokenUtils;
 import score.*;
+import scorex.util.ArrayList;
 import scorex.util.HashMap;
 
 import java.math.BigInteger;
+import java.util.List;
 import java.util.Map;
 
 import static network.balanced.score.core.loans.utils.LoansConstants.*;
 import static network.balanced.score.lib.utils.Check.readonly;
-import static network.balanced.score.lib.utils.Math.pow;
 
 public class Position {
     static final String TAG = "BalancedLoansPositions";
@@ -52,16 +56,32 @@ public class Position {
 
     private final String dbKey;
 
+    // Slots are read at most once per Position object and writes are kept in memory until flush is called
+    private Integer cachedId;
+    private Address cachedAddress;
+    private BigInteger cachedTotalDebt;
+    private boolean totalDebtDirty = false;
+    private final Map<String, BigInteger> debts = new HashMap<>();
+    private final Map<String, BigInteger> collaterals = new HashMap<>();
+    private final Map<String, BigInteger> storedCollaterals = new HashMap<>();
+    private final List<String> dirtyDebts = new ArrayList<>();
+    private final List<String> dirtyCollaterals = new ArrayList<>();
+
     Position(String dbKey) {
         this.dbKey = dbKey;
     }
 
     void setId(Integer id) {
         this.id.at(dbKey).set(id);
+        cachedId = id;
     }
 
     public Integer getId() {
-        return id.at(dbKey).get();
+        if (cachedId == null) {
+            cachedId = id.at(dbKey).get();
+        }
+
+        return cachedId;
     }
 
     void setCreated(BigInteger time) {
@@ -74,35 +94,63 @@ public class Position {
 
     public void setAddress(Address address) {
         this.address.at(dbKey).set(address);
+        cachedAddress = address;
     }
 
     public Address getAddress() {
-        return address.at(dbKey).get();
+        if (cachedAddress == null) {
+            cachedAddress = address.at(dbKey).get();
+        }
+
+        return cachedAddress;
     }
 
     private void setLoansPosition(String collateral, BigInteger value) {
-        debt.at(dbKey).at(collateral).set(BNUSD_SYMBOL, value);
+        debts.put(collateral, value);
+        if (!dirtyDebts.contains(collateral)) {
+            dirtyDebts.add(collateral);
+        }
     }
 
     public BigInteger getDebt(String collateral) {
-        return debt.at(dbKey).at(collateral).getOrDefault(BNUSD_SYMBOL, BigInteger.ZERO);
+        if (!debts.containsKey(collateral)) {
+            debts.put(collateral, debt.at(dbKey).at(collateral).get(BNUSD_SYMBOL));
+        }
+
+        BigInteger value = debts.get(collateral);
+        return value == null ? BigInteger.ZERO : value;
     }
 
     private void setPositionTotalDebt(BigInteger value) {
-        totalDebt.at(dbKey).set(BNUSD_SYMBOL, value);
+        cachedTotalDebt = value;
+        totalDebtDirty = true;
     }
 
     public BigInteger getTotalDebt() {
+        if (cachedTotalDebt != null) {
+            return cachedTotalDebt;
+        }
+
         BigInteger totalDebt = this.totalDebt.at(dbKey).get(BNUSD_SYMBOL);
         if (totalDebt == null) {
             totalDebt = getDebt(SICX_SYMBOL);
         }
 
+        cachedTotalDebt = totalDebt;
         return totalDebt;
     }
 
     public void setCollateral(String symbol, BigInteger value) {
-        collateral.at(dbKey).set(symbol, value);
+        if (!storedCollaterals.containsKey(symbol)) {
+            BigInteger storedCollateral = collaterals.containsKey(symbol) ? collaterals.get(symbol) :
+                    collateral.at(dbKey).get(symbol);
+            storedCollaterals.put(symbol, storedCollateral == null ? BigInteger.ZERO : storedCollateral);
+        }
+
+        collaterals.put(symbol, value);
+        if (!dirtyCollaterals.contains(symbol)) {
+            dirtyCollaterals.add(symbol);
+        }
     }
 
     public BigInteger getCollateral(String symbol) {
@@ -110,9 +158,15 @@ public class Position {
     }
 
     public BigInteger getCollateral(String symbol, boolean readonly) {
+        if (collaterals.containsKey(symbol)) {
+            BigInteger value = collaterals.get(symbol);
+            return value == null ? BigInteger.ZERO : value;
+        }
+
+        BigInteger storedCollateral = collateral.at(dbKey).get(symbol);
         if (symbol.equals(SICX_SYMBOL)) {
             if (!dataMigrationStatus.at(dbKey).getOrDefault(SICX_SYMBOL, false) &&
-                    collateral.at(dbKey).getOrDefault(SICX_SYMBOL, BigInteger.ZERO).equals(BigInteger.ZERO)) {
+                    (storedCollateral == null || storedCollateral.equals(BigInteger.ZERO))) {
 
                 int lastSnapIndex = snaps.at(dbKey).size() - 1;
                 int lastSnap = snaps.at(dbKey).get(lastSnapIndex);
@@ -122,7 +176,11 @@ public class Position {
                 }
 
                 if (collateralAmount.compareTo(BigInteger.ZERO) > 0) {
+                    // Migrated collateral is already part of the collateral stats
+                    collaterals.put(SICX_SYMBOL, collateralAmount);
                     setCollateral(SICX_SYMBOL, collateralAmount);
+                } else {
+                    collaterals.put(SICX_SYMBOL, storedCollateral);
                 }
 
                 dataMigrationStatus.at(dbKey).set(SICX_SYMBOL, true);
@@ -130,7 +188,8 @@ public class Position {
             }
         }
 
-        return collateral.at(dbKey).getOrDefault(symbol, BigInteger.ZERO);
+        collaterals.put(symbol, storedCollateral);
+        return storedCollateral == null ? BigInteger.ZERO : storedCollateral;
     }
 
     public void setDataMigrationStatus(String symbol, Boolean value) {
@@ -152,24 +211,79 @@ public class Position {
         BigInteger newTotalDebt = previousTotalDebt.add(debtChange);
         BigInteger newTotalPerCollateralDebt = previousTotalPerCollateralDebt.add(debtChange);
 
-        BigInteger debtAndBadDebtPerCollateral = newTotalPerCollateralDebt.add(DebtDB.getBadDebt(collateralSymbol));
-        BigInteger debtCeiling = DebtDB.getDebtCeiling(collateralSymbol);
-        Context.require(debtCeiling == null
-                        || debtChange.signum() != 1
-                        || debtAndBadDebtPerCollateral.compareTo(debtCeiling) <= 0,
-                TAG + ": Cannot mint more " + BNUSD_SYMBOL + " on collateral " + collateralSymbol);
+        if (debtChange.signum() == 1) {
+            BigInteger debtAndBadDebtPerCollateral = newTotalPerCollateralDebt.add(DebtDB.getBadDebt(collateralSymbol));
+            BigInteger debtCeiling = DebtDB.getDebtCeiling(collateralSymbol);
+            Context.require(debtCeiling == null || debtAndBadDebtPerCollateral.compareTo(debtCeiling) <= 0,
+                    TAG + ": Cannot mint more " + BNUSD_SYMBOL + " on collateral " + collateralSymbol);
+        }
 
         DebtDB.setTotalDebt(newTotalDebt);
         DebtDB.setCollateralDebt(collateralSymbol, newTotalPerCollateralDebt);
 
         setLoansPosition(collateralSymbol, value);
         setPositionTotalDebt(previousUserDebt.add(debtChange));
+    }
 
-        if (value == null) {
-            DebtDB.getBorrowers(collateralSymbol).remove(getId());
-        } else {
-            DebtDB.getBorrowers(collateralSymbol).set(getId(), currentValue);
+    /**
+     * Writes all pending debt and collateral changes to storage, together with the borrower list node and the
+     * liquidation index entry of every touched collateral. Called for every loaded position by
+     * {@link PositionsDB#flush()}.
+     */
+    void flush() {
+        if (dirtyDebts.isEmpty() && dirtyCollaterals.isEmpty() && !totalDebtDirty) {
+            return;
+        }
+
+        int id = getId();
+        for (String symbol : dirtyDebts) {
+            // Loads the collateral before writing, since the sICX migration can add a pending collateral change
+            getCollateral(symbol);
         }
+
+        Map<String, Integer> borrowerCounts = new HashMap<>();
+        for (String symbol : dirtyDebts) {
+            BigInteger value = debts.get(symbol);
+            debt.at(dbKey).at(symbol).set(BNUSD_SYMBOL, value);
+            LinkedListDB borrowers = DebtDB.getBorrowers(symbol);
+            if (value == null) {
+                borrowers.remove(id);
+            } else {
+                borrowers.set(id, value);
+            }
+
+            borrowerCounts.put(symbol, borrowers.size());
+        }
+
+        Map<String, BigInteger> collateralChanges = new HashMap<>();
+        for (String symbol : dirtyCollaterals) {
+            BigInteger value = collaterals.get(symbol);
+            collateral.at(dbKey).set(symbol, value);
+            BigInteger newValue = value == null ? BigInteger.ZERO : value;
+            collateralChanges.put(symbol, newValue.subtract(storedCollaterals.get(symbol)));
+            storedCollaterals.put(symbol, newValue);
+        }
+
+        if (totalDebtDirty) {
+            totalDebt.at(dbKey).set(BNUSD_SYMBOL, cachedTotalDebt);
+        }
+
+        for (String symbol : dirtyDebts) {
+            LiquidationIndexDB.update(symbol, id, getDebt(symbol), getCollateral(symbol));
+            BigInteger collateralChange = collateralChanges.getOrDefault(symbol, BigInteger.ZERO);
+            CollateralStatsDB.updatePosition(symbol, borrowerCounts.get(symbol), collateralChange);
+        }
+
+        for (String symbol : dirtyCollaterals) {
+            if (!dirtyDebts.contains(symbol)) {
+                LiquidationIndexDB.update(symbol, id, getDebt(symbol), getCollateral(symbol));
+                CollateralStatsDB.updatePosition(symbol, null, collateralChanges.get(symbol));
+            }
+        }
+
+        dirtyDebts.clear();
+        dirtyCollaterals.clear();
+        totalDebtDirty = false;
     }
 
     public boolean hasDebt() {
@@ -181,10 +295,8 @@ public class Position {
     }
 
     public BigInteger totalCollateralInUSD(String collateralSymbol, boolean readonly) {
-        Address collateralAddress = CollateralDB.getAddress(collateralSymbol);
-
         BigInteger amount = getCollateral(collateralSymbol, readonly);
-        BigInteger decimals = pow(BigInteger.TEN, TokenUtils.decimals(collateralAddress).intValue());
+        BigInteger decimals = TokenUtils.getUnitValue(collateralSymbol);
         BigInteger price = TokenUtils.getPriceInUSD(collateralSymbol);
 
         return amount.multiply(price).divide(decimals);
@@ -236,6 +348,7 @@ public class Position {
 
         Map<String, Map<String, BigInteger>> holdings = new HashMap<>();
         Map<String, Map<String, Object>> standings = new HashMap<>();
+        Standing sICXstanding = null;
         int collateralSymbolsCount = CollateralDB.collateralList.size();
         for (int i = 0; i < collateralSymbolsCount; i++) {
             Map<String, BigInteger> collateralAmounts = new HashMap<>();
@@ -249,6 +362,10 @@ public class Position {
             holdings.put(collateralSymbol, collateralAmounts);
 
             Standing standing = getStanding(collateralSymbol, true);
+            if (collateralSymbol.equals(SICX_SYMBOL)) {
+                sICXstanding = standing;
+            }
+
             Map<String, Object> standingMap = new HashMap<>();
             standingMap.put("total_debt", standing.totalDebt.multiply(EXA).divide(loopPrice));
             standingMap.put("collateral", standing.collateral.multiply(EXA).divide(loopPrice));
@@ -262,7 +379,10 @@ public class Position {
 
         Map<String, Object> positionDetails = new HashMap<>();
 
-        Standing sICXstanding = getStanding(SICX_SYMBOL, true);
+        if (sICXstanding == null) {
+            sICXstanding = getStanding(SICX_SYMBOL, true);
+        }
+
         positionDetails.put("pos_id", getId());
         positionDetails.put("created", getCreated());
         positionDetails.put("address", getAddress().toString());
@@ -16,12 +16,16 @@
 
 package network.balanced.score.core.loans.positions;
 
+import network.balanced.score.core.loans.utils.CallContext;
 import network.balanced.score.core.loans.utils.IdFactory;
 import score.Address;
 import score.Context;
 import score.DictDB;
+import scorex.util.ArrayList;
+import scorex.util.HashMap;
 
 import java.math.BigInteger;
+import java.util.List;
 import java.util.Map;
 
 import static network.balanced.score.core.loans.positions.Position.TAG;
@@ -37,6 +41,14 @@ public class PositionsDB {
     private static final IdFactory idFactory = new IdFactory(ID_FACTORY);
     private static final DictDB<Address, Integer> addressIds = Context.newDictDB(ADDRESS_ID, Integer.class);
 
+    /**
+     * Positions loaded by the running call, a position is loaded once so every caller shares its pending writes.
+     */
+    public static class Cache {
+        private final Map<Integer, Position> positions = new HashMap<>();
+        private final List<Position> loadedPositions = new ArrayList<>();
+    }
+
     public static Integer getAddressIds(Address _owner) {
         return addressIds.getOrDefault(_owner, 0);
     }
@@ -49,11 +61,43 @@ public class PositionsDB {
 
         Context.require(id >= 1, TAG + ": That is not a valid key.");
         Context.require(id <= lastUid, TAG + ": That key does not exist yet.");
-        return new Position(POSITION_DB_PREFIX + "|" + id);
+        return load(id);
     }
 
     public static Position uncheckedGet(Integer id) {
-        return new Position(POSITION_DB_PREFIX + "|" + id);
+        return load(id);
+    }
+
+    private static Position load(Integer id) {
+        CallContext context = CallContext.get();
+        if (context == null) {
+            return new Position(POSITION_DB_PREFIX + "|" + id);
+        }
+
+        Cache cache = context.positions;
+        Position position = cache.positions.get(id);
+        if (position == null) {
+            position = new Position(POSITION_DB_PREFIX + "|" + id);
+            cache.positions.put(id, position);
+            cache.loadedPositions.add(position);
+        }
+
+        return position;
+    }
+
+    /**
+     * Writes the pending changes of every position loaded by the running call to storage. Positions stay cached
+     * for the rest of the call, so a later change to an already flushed position is written by the next flush.
+     */
+    public static void flush() {
+        CallContext context = CallContext.get();
+        if (context == null) {
+            return;
+        }
+
+        for (Position position : context.positions.loadedPositions) {
+            position.flush();
+        }
     }
 
     public static int size() {
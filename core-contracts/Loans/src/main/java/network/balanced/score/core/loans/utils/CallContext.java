@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2023-2023 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.loans.utils;
+
+import network.balanced.score.core.loans.collateral.CollateralStatsDB;
+import network.balanced.score.core.loans.debt.DebtDB;
+import network.balanced.score.core.loans.positions.PositionsDB;
+
+/**
+ * Positions, debt totals, collateral stats and prices loaded by a single external call, together with their pending
+ * writes. A context is opened when a write call enters Loans and is dropped when that call returns or reverts, so it
+ * never outlives the call. Readonly calls never open one and read storage directly.
+ */
+public class CallContext {
+    private static CallContext current;
+
+    public final PositionsDB.Cache positions = new PositionsDB.Cache();
+    public final DebtDB.Cache debts = new DebtDB.Cache();
+    public final CollateralStatsDB.Cache collateralStats = new CollateralStatsDB.Cache();
+    public final TokenUtils.Cache prices = new TokenUtils.Cache();
+
+    private CallContext() {
+    }
+
+    /**
+     * @return The context of the running call, or null outside of a write call
+     */
+    public static CallContext get() {
+        return current;
+    }
+
+    /**
+     * Opens a context for the calling external method. A call re-entering Loans keeps the context of the call it
+     * is nested in.
+     *
+     * @return True if the context was opened by this call, which then has to close it
+     */
+    public static boolean open() {
+        if (current != null) {
+            return false;
+        }
+
+        current = new CallContext();
+        return true;
+    }
+
+    public static void close(boolean opened) {
+        if (opened) {
+            current = null;
+        }
+    }
+}
@@ -16,15 +16,27 @@
 
 package network.balanced.score.core.loans.utils;
 
+import network.balanced.score.core.loans.collateral.CollateralDB;
 import score.Address;
+import scorex.util.HashMap;
 
 import java.math.BigInteger;
+import java.util.Map;
 
 import static network.balanced.score.core.loans.LoansImpl.call;
 import static network.balanced.score.lib.utils.BalancedAddressManager.getBalancedOracle;
 import static network.balanced.score.lib.utils.BalancedAddressManager.getBnusd;
+import static network.balanced.score.lib.utils.Math.pow10;
 
 public class TokenUtils {
+    /**
+     * Prices and unit values fetched by the running call, calls without a {@link CallContext} are not cached.
+     */
+    public static class Cache {
+        private final Map<String, BigInteger> prices = new HashMap<>();
+        private final Map<String, BigInteger> unitValues = new HashMap<>();
+    }
+
     public static String symbol(Address tokenAddress) {
         return (String) call(tokenAddress, "symbol");
     }
@@ -38,9 +50,58 @@ public class TokenUtils {
     }
 
     public static BigInteger getPriceInUSD(String symbol) {
+        Cache cache = getCache();
+        if (cache == null) {
+            return fetchPriceInUSD(symbol);
+        }
+
+        BigInteger price = cache.prices.get(symbol);
+        if (price == null) {
+            price = fetchPriceInUSD(symbol);
+            cache.prices.put(symbol, price);
+        }
+
+        return price;
+    }
+
+    /**
+     * Returns the price fetched for the symbol earlier in the running call, without calling the oracle.
+     *
+     * @return The cached price, or null if it was not fetched by the running call
+     */
+    public static BigInteger getCachedPriceInUSD(String symbol) {
+        Cache cache = getCache();
+        if (cache == null) {
+            return null;
+        }
+
+        return cache.prices.get(symbol);
+    }
+
+    public static BigInteger getUnitValue(String collateralSymbol) {
+        Cache cache = getCache();
+        if (cache == null) {
+            return pow10(CollateralDB.getDecimals(collateralSymbol).intValue());
+        }
+
+        BigInteger unitValue = cache.unitValues.get(collateralSymbol);
+        if (unitValue == null) {
+            unitValue = pow10(CollateralDB.getDecimals(collateralSymbol).intValue());
+            cache.unitValues.put(collateralSymbol, unitValue);
+        }
+
+        return unitValue;
+    }
+
+    private static BigInteger fetchPriceInUSD(String symbol) {
         return (BigInteger) call(getBalancedOracle(), "getLastPriceInUSD", symbol);
     }
 
+    private static Cache getCache() {
+        CallContext context = CallContext.get();
+        return context == null ? null : context.prices;
+    }
+
     public static void mintAssetTo(Address to, BigInteger amount) {
         call(getBnusd(), "mintTo", to, amount, new byte[0]);
     }
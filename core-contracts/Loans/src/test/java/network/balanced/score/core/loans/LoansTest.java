@@ -21,18 +21,22 @@ import com.iconloop.score.test.Account;
 import network.balanced.score.core.loans.utils.LoansConstants.Standings;
 import network.balanced.score.lib.interfaces.tokens.IRC2;
 import network.balanced.score.lib.interfaces.tokens.IRC2ScoreInterface;
+import network.balanced.score.lib.structs.RewardsDataEntry;
 import network.balanced.score.lib.test.mock.MockContract;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
+import score.Address;
 
 import java.math.BigInteger;
 import java.util.List;
 import java.util.Map;
 
 import static network.balanced.score.core.loans.utils.LoansConstants.LOCKING_RATIO;
+import static network.balanced.score.core.loans.utils.LoansConstants.MAX_LIQUIDATION_CANDIDATES;
 import static network.balanced.score.core.loans.utils.LoansConstants.StandingsMap;
+import static network.balanced.score.lib.utils.Constants.EOA_ZERO;
 import static network.balanced.score.lib.utils.Constants.EXA;
 import static network.balanced.score.lib.utils.Constants.POINTS;
 import static org.junit.jupiter.api.Assertions.*;
@@ -208,6 +212,28 @@ class LoansTest extends LoansTestBase {
         assertEquals(loan.add(expectedFee), balanceAndSupply.get("_totalSupply"));
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    void getBalancesAndSupply() {
+        // Arrange
+        Account loanTaker = sm.createAccount();
+        Account zeroAccount = sm.createAccount();
+        BigInteger collateral = BigInteger.valueOf(1000).multiply(EXA);
+        BigInteger loan = BigInteger.valueOf(100).multiply(EXA);
+        BigInteger expectedDebt = loan.add(calculateFee(loan));
+        takeLoanICX(loanTaker, "bnUSD", collateral, loan);
+
+        // Act
+        Address[] owners = new Address[]{loanTaker.getAddress(), zeroAccount.getAddress()};
+        Map<String, BigInteger> balances = (Map<String, BigInteger>) loans.call("getBalancesAndSupply", "Loans",
+                owners);
+
+        // Assert
+        assertEquals(expectedDebt, balances.get(loanTaker.getAddress().toString()));
+        assertEquals(BigInteger.ZERO, balances.get(zeroAccount.getAddress().toString()));
+        assertEquals(expectedDebt, balances.get("_totalSupply"));
+    }
+
     @Test
     void getDay() {
         BigInteger currentDay = (BigInteger) loans.call("getDay");
@@ -287,6 +313,32 @@ class LoansTest extends LoansTestBase {
         expectErrorMessage(transferToken, expectedErrorMessage);
     }
 
+    @Test
+    void tokenFallback_StraySicxMint() {
+        // Arrange
+        BigInteger value = BigInteger.valueOf(100).multiply(EXA);
+        String expectedErrorMessage = "Reverted(0): " + TAG + "Unexpected sICX mint.";
+
+        // Assert & Act
+        Executable strayMint = () -> loans.invoke(sicx.account, "tokenFallback", EOA_ZERO, value, new byte[0]);
+        expectErrorMessage(strayMint, expectedErrorMessage);
+    }
+
+    @Test
+    void depositAndBorrow_AcceptsStakedSicxMint() {
+        // Arrange
+        Account account = sm.createAccount();
+        BigInteger collateral = BigInteger.valueOf(1000).multiply(EXA);
+
+        // Act
+        takeLoanICX(account, "", collateral, BigInteger.ZERO);
+
+        // Assert
+        verify(staking.mock).stakeICX(eq(loans.getAddress()), any(byte[].class));
+        verifyPosition(account.getAddress(), collateral, BigInteger.ZERO);
+        verifyCollateralStats("sICX", 0, BigInteger.ZERO, collateral);
+    }
+
     @Test
     void depositAndBorrow_ICX() {
         // Arrange
@@ -400,6 +452,25 @@ class LoansTest extends LoansTestBase {
         verifyTotalDebt(BigInteger.ZERO);
     }
 
+    @Test
+    void collateralDecimals_storedOnAdd() {
+        // Arrange
+        Account account = sm.createAccount();
+        BigInteger collateral = BigInteger.valueOf(2000).multiply(EXA);
+        BigInteger loan = BigInteger.valueOf(200).multiply(EXA);
+        BigInteger collateralToWithdraw = BigInteger.valueOf(80).multiply(EXA);
+        BigInteger expectedFee = calculateFee(loan);
+
+        // Act
+        takeLoaniETH(account, collateral, loan);
+        loans.invoke(account, "withdrawCollateral", collateralToWithdraw, "iETH");
+
+        // Assert
+        verify(ieth.mock, times(1)).decimals();
+        verifyPosition(account.getAddress(), collateral.subtract(collateralToWithdraw), loan.add(expectedFee),
+                "iETH");
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     void borrow_sICX() {
@@ -412,7 +483,7 @@ class LoansTest extends LoansTestBase {
         takeLoanSICX(account, collateral, BigInteger.ZERO);
 
         // Act
-        loans.invoke(account, "borrow", "sICX", "bnUSD", loan);
+        inTransaction(() -> loans.invoke(account, "borrow", "sICX", "bnUSD", loan));
         // Assert
         Map<String, Object> position = (Map<String, Object>) loans.call("getAccountPositions", account.getAddress());
         Map<String, Map<String, BigInteger>> assetHoldings = (Map<String, Map<String, BigInteger>>) position.get(
@@ -422,6 +493,7 @@ class LoansTest extends LoansTestBase {
         assertEquals(expectedDebt, assetHoldings.get("sICX").get("bnUSD"));
         verifyPosition(account.getAddress(), collateral, expectedDebt, "sICX");
         verifyTotalDebt(expectedDebt);
+        verifyCollateralStats("sICX", 1, expectedDebt, collateral);
     }
 
     @Test
@@ -678,6 +750,32 @@ class LoansTest extends LoansTestBase {
         expectErrorMessage(negativeLoan, expectedErrorMessage);
     }
 
+    @Test
+    void borrow_priceFetchedOncePerCall() {
+        // Arrange
+        Account account = sm.createAccount();
+        BigInteger collateral = BigInteger.valueOf(2000).multiply(EXA);
+        BigInteger loan = BigInteger.valueOf(100).multiply(EXA);
+        takeLoanSICX(account, collateral, BigInteger.ZERO);
+        clearInvocations(balancedOracle.mock);
+
+        // Act
+        loans.invoke(account, "borrow", "sICX", "bnUSD", loan);
+
+        // Assert
+        verify(balancedOracle.mock, times(1)).getLastPriceInUSD("sICX");
+
+        // Act
+        inTransaction(() -> {
+            loans.invoke(account, "borrow", "sICX", "bnUSD", loan);
+            loans.invoke(account, "borrow", "sICX", "bnUSD", loan);
+        });
+
+        // Assert
+        verify(balancedOracle.mock, times(3)).getLastPriceInUSD("sICX");
+        verifyPosition(account.getAddress(), collateral, loan.add(calculateFee(loan)).multiply(BigInteger.valueOf(3)));
+    }
+
     @Test
     void getTotalDebts() {
         // Arrange
@@ -727,8 +825,8 @@ class LoansTest extends LoansTestBase {
         when(bnusd.mock.balanceOf(account.getAddress())).thenReturn(iETHLoan.add(loan));
 
         // Act
-        loans.invoke(account, "returnAsset", "bnUSD", loanToRepay, "sICX");
-        loans.invoke(account, "returnAsset", "bnUSD", iETHloanToRepay, "iETH");
+        inTransaction(() -> loans.invoke(account, "returnAsset", "bnUSD", loanToRepay, "sICX"));
+        inTransaction(() -> loans.invoke(account, "returnAsset", "bnUSD", iETHloanToRepay, "iETH"));
 
         // Assert
         verify(bnusd.mock).burnFrom(account.getAddress(), loanToRepay);
@@ -739,6 +837,8 @@ class LoansTest extends LoansTestBase {
         BigInteger expectedTotal =
                 loan.subtract(loanToRepay).add(expectedFee).add(iETHLoan.subtract(iETHloanToRepay).add(iETHExpectedFee));
         verifyTotalDebt(expectedTotal);
+        verifyCollateralStats("sICX", 1, loan.subtract(loanToRepay).add(expectedFee), collateral);
+        verifyCollateralStats("iETH", 1, iETHLoan.subtract(iETHloanToRepay).add(iETHExpectedFee), iETHCollateral);
     }
 
     @Test
@@ -1170,7 +1270,7 @@ class LoansTest extends LoansTestBase {
         mockOraclePrice("sICX", EXA.divide(BigInteger.valueOf(4)));
 
         // Act
-        loans.invoke(liquidator, "liquidate", account.getAddress(), "sICX");
+        inTransaction(() -> loans.invoke(liquidator, "liquidate", account.getAddress(), "sICX"));
 
         // Assert
         verify(sicx.mock).transfer(eq(liquidator.getAddress()), eq(expectedReward), any(byte[].class));
@@ -1189,6 +1289,159 @@ class LoansTest extends LoansTestBase {
         verify(rewards.mock).updateRewardsData("Loans", originalTotalDebt.add(loan.add(expectedFee)),
                 account.getAddress(), loan.add(expectedFee));
         verifyTotalDebt(originalTotalDebt);
+        verifyCollateralStats("sICX", 0, BigInteger.ZERO, BigInteger.ZERO);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void liquidateBatch() {
+        // Arrange
+        Account account1 = sm.createAccount();
+        Account account2 = sm.createAccount();
+        Account healthyAccount = sm.createAccount();
+        Account liquidator = sm.createAccount();
+        BigInteger collateral = BigInteger.valueOf(1000).multiply(EXA);
+        BigInteger healthyCollateral = BigInteger.valueOf(10000).multiply(EXA);
+        BigInteger loan = BigInteger.valueOf(200).multiply(EXA);
+        BigInteger expectedFee = calculateFee(loan);
+        BigInteger originalTotalDebt = getTotalDebt();
+
+        BigInteger liquidationReward = (BigInteger) getParam("liquidation reward");
+        BigInteger expectedReward = collateral.multiply(liquidationReward).divide(POINTS);
+
+        takeLoanICX(account1, "bnUSD", collateral, loan);
+        takeLoanICX(account2, "bnUSD", collateral, loan);
+        takeLoanICX(healthyAccount, "bnUSD", healthyCollateral, loan);
+        BigInteger totalDebtBeforeLiquidation = getTotalDebt();
+
+        mockOraclePrice("sICX", EXA.divide(BigInteger.valueOf(4)));
+
+        // Act
+        Address[] owners = new Address[]{account1.getAddress(), account2.getAddress(),
+                healthyAccount.getAddress(), sm.createAccount().getAddress()};
+        inTransaction(() -> loans.invoke(liquidator, "liquidateBatch", owners, "sICX"));
+
+        // Assert
+        verify(sicx.mock).transfer(eq(liquidator.getAddress()), eq(expectedReward.multiply(BigInteger.TWO)),
+                any(byte[].class));
+        verifyPosition(account1.getAddress(), BigInteger.ZERO, BigInteger.ZERO);
+        verifyPosition(account2.getAddress(), BigInteger.ZERO, BigInteger.ZERO);
+        verifyPosition(healthyAccount.getAddress(), healthyCollateral, loan.add(expectedFee));
+
+        Map<String, Object> bnusdAsset = ((Map<String, Map<String, Object>>) loans.call("getAvailableAssets")).get(
+                "bnUSD");
+        Map<String, Map<String, Object>> bnusdDebtDetails = (Map<String, Map<String, Object>>) bnusdAsset.get(
+                "debt_details");
+
+        BigInteger expectedBadDebt = loan.add(expectedFee).multiply(BigInteger.TWO);
+        BigInteger expectedLiquidationPool = collateral.subtract(expectedReward).multiply(BigInteger.TWO);
+        assertEquals(expectedBadDebt, bnusdDebtDetails.get("sICX").get("bad_debt"));
+        assertEquals(expectedLiquidationPool, bnusdDebtDetails.get("sICX").get("liquidation_pool"));
+        verify(rewards.mock).updateBatchRewardsData(eq("Loans"), eq(totalDebtBeforeLiquidation),
+                any(RewardsDataEntry[].class));
+        verifyTotalDebt(originalTotalDebt.add(loan.add(expectedFee)));
+        verifyCollateralStats("sICX", 1, loan.add(expectedFee), healthyCollateral);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void getLiquidationCandidates() {
+        // Arrange
+        Account account1 = sm.createAccount();
+        Account account2 = sm.createAccount();
+        BigInteger loan = BigInteger.valueOf(200).multiply(EXA);
+        BigInteger expectedDebt = loan.add(calculateFee(loan));
+
+        takeLoanICX(account1, "bnUSD", BigInteger.valueOf(1000).multiply(EXA), loan);
+        takeLoanICX(account2, "bnUSD", BigInteger.valueOf(2000).multiply(EXA), loan);
+
+        // Act
+        List<Map<String, Object>> noCandidates = (List<Map<String, Object>>) loans.call(
+                "getLiquidationCandidates", sicx.getAddress(), EXA, 10);
+        List<Map<String, Object>> oneCandidate = (List<Map<String, Object>>) loans.call(
+                "getLiquidationCandidates", sicx.getAddress(), EXA.divide(BigInteger.valueOf(4)), 10);
+        List<Map<String, Object>> allCandidates = (List<Map<String, Object>>) loans.call(
+                "getLiquidationCandidates", sicx.getAddress(), EXA.divide(BigInteger.TEN), 10);
+        List<Map<String, Object>> limitedCandidates = (List<Map<String, Object>>) loans.call(
+                "getLiquidationCandidates", sicx.getAddress(), EXA.divide(BigInteger.TEN), 1);
+
+        // Assert
+        assertEquals(0, noCandidates.size());
+        assertEquals(1, oneCandidate.size());
+        assertEquals(account1.getAddress().toString(), oneCandidate.get(0).get("address"));
+        assertEquals(expectedDebt, oneCandidate.get(0).get("debt"));
+        assertEquals(2, allCandidates.size());
+        assertEquals(1, limitedCandidates.size());
+        assertEquals(account1.getAddress().toString(), limitedCandidates.get(0).get("address"));
+
+        // Repaying the debt removes the position from the index
+        when(bnusd.mock.balanceOf(account1.getAddress())).thenReturn(expectedDebt);
+        loans.invoke(account1, "returnAsset", "bnUSD", expectedDebt, "sICX");
+        List<Map<String, Object>> candidatesAfterRepay = (List<Map<String, Object>>) loans.call(
+                "getLiquidationCandidates", sicx.getAddress(), EXA.divide(BigInteger.TEN), 10);
+        assertEquals(1, candidatesAfterRepay.size());
+        assertEquals(account2.getAddress().toString(), candidatesAfterRepay.get(0).get("address"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void getLiquidationCandidates_limitCapped() {
+        // Arrange
+        BigInteger loan = BigInteger.valueOf(200).multiply(EXA);
+        for (int i = 0; i < MAX_LIQUIDATION_CANDIDATES + 1; i++) {
+            takeLoanSICX(sm.createAccount(), BigInteger.valueOf(1000).multiply(EXA), loan);
+        }
+
+        // Act
+        List<Map<String, Object>> candidates = (List<Map<String, Object>>) loans.call(
+                "getLiquidationCandidates", sicx.getAddress(), EXA.divide(BigInteger.TEN), Integer.MAX_VALUE);
+
+        // Assert
+        assertEquals(MAX_LIQUIDATION_CANDIDATES, candidates.size());
+    }
+
+    @Test
+    void updateLiquidationIndex_invalidStartId() {
+        // Arrange
+        Account account = sm.createAccount();
+        BigInteger loan = BigInteger.valueOf(200).multiply(EXA);
+        takeLoanSICX(account, BigInteger.valueOf(1000).multiply(EXA), loan);
+        int nonBorrowerId = 1000;
+
+        // Act & Assert
+        String expectedErrorMessage = TAG + "Position " + nonBorrowerId + " has no sICX debt.";
+        Executable invalidStartId = () -> loans.invoke(account, "updateLiquidationIndex", sicx.getAddress(), 10,
+                nonBorrowerId);
+        expectErrorMessage(invalidStartId, expectedErrorMessage);
+
+        int id = (int) loans.call("getBorrowerHead", sicx.getAddress());
+        loans.invoke(account, "updateLiquidationIndex", sicx.getAddress(), 10, id);
+    }
+
+    @Test
+    void getCollateralStats() {
+        // Arrange
+        Account account1 = sm.createAccount();
+        Account account2 = sm.createAccount();
+        BigInteger collateral = BigInteger.valueOf(1000).multiply(EXA);
+        BigInteger loan = BigInteger.valueOf(200).multiply(EXA);
+        BigInteger expectedDebt = loan.add(calculateFee(loan));
+
+        // Act
+        takeLoanICX(account1, "bnUSD", collateral, loan);
+        takeLoanICX(account2, "bnUSD", collateral, loan);
+        when(bnusd.mock.balanceOf(account1.getAddress())).thenReturn(expectedDebt);
+        loans.invoke(account1, "returnAsset", "bnUSD", expectedDebt, "sICX");
+
+        // Assert
+        Map<String, Object> sICXStats = ((Map<String, Map<String, Object>>) loans.call("getCollateralStats")).get(
+                "sICX");
+        assertEquals(1, sICXStats.get("borrowers"));
+        assertEquals(expectedDebt, sICXStats.get("total_debt"));
+        assertEquals(collateral.multiply(BigInteger.TWO), sICXStats.get("total_collateral"));
+        assertEquals(BigInteger.ZERO, sICXStats.get("bad_debt"));
+        assertEquals(BigInteger.ZERO, sICXStats.get("liquidation_pool"));
+        assertEquals(EXA, sICXStats.get("last_price"));
     }
 
     @Test
@@ -1727,7 +1980,7 @@ class LoansTest extends LoansTestBase {
         takeLoanICX(account4, "bnUSD", collateral, loan);
 
         BigInteger redeemableAmount = (BigInteger) loans.call("getRedeemableAmount", sicx.getAddress(), 4);
-        loans.invoke(redeemer, "redeemCollateral", sicx.getAddress(), amountToRedeem);
+        inTransaction(() -> loans.invoke(redeemer, "redeemCollateral", sicx.getAddress(), amountToRedeem));
 
         // Assert
         verify(bnusd.mock).burnFrom(redeemer.getAddress(), amountToRedeem);
@@ -1746,6 +1999,65 @@ class LoansTest extends LoansTestBase {
 
         assertEquals(redeemableAmount,
                 debt.multiply(BigInteger.valueOf(4)).multiply(maxRedemptionPercentage).divide(POINTS));
+        BigInteger expectedTotalDebt = debt.multiply(BigInteger.valueOf(4)).subtract(amountRedeemed);
+        verifyTotalDebt(expectedTotalDebt);
+        verifyCollateralStats("sICX", 4, expectedTotalDebt,
+                collateral.multiply(BigInteger.valueOf(4)).subtract(totalCollateralRedeemed));
+    }
+
+    @Test
+    void redeemCollateralPartial() {
+        // Arrange
+        Account account1 = sm.createAccount();
+        Account account2 = sm.createAccount();
+        Account account3 = sm.createAccount();
+        Account redeemer = sm.createAccount();
+        BigInteger collateral = BigInteger.valueOf(4000).multiply(EXA);
+        BigInteger loan = BigInteger.valueOf(400).multiply(EXA);
+        BigInteger expectedFee = calculateFee(loan);
+        BigInteger debt = loan.add(expectedFee);
+
+        BigInteger maxRedemptionPercentage = (BigInteger) loans.call("getMaxRetirePercent");
+        BigInteger redemptionFee = (BigInteger) loans.call("getRedemptionFee");
+        BigInteger daoFeePercentage = (BigInteger) loans.call("getRedemptionDaoFee");
+
+        BigInteger amountToRedeem = BigInteger.valueOf(100).multiply(EXA);
+        BigInteger amountToBeRepaid = amountToRedeem.subtract(daoFeePercentage.multiply(amountToRedeem).divide(POINTS));
+        when(bnusd.mock.balanceOf(redeemer.getAddress())).thenReturn(amountToRedeem);
+
+        BigInteger maxRetire = maxRedemptionPercentage.multiply(debt).divide(POINTS);
+        BigInteger debtRepaid = maxRetire.multiply(BigInteger.TWO);
+        BigInteger expectedAmountRedeemed = amountToRedeem.multiply(debtRepaid).divide(amountToBeRepaid);
+        BigInteger expectedDaoFee = expectedAmountRedeemed.subtract(debtRepaid);
+
+        BigInteger sICXRate = EXA.divide(BigInteger.TWO);
+        mockOraclePrice("sICX", sICXRate);
+
+        BigInteger feeAccount = maxRetire.multiply(redemptionFee).divide(POINTS);
+        BigInteger collateralRedeemedAccount = maxRetire.subtract(feeAccount).multiply(EXA).divide(sICXRate);
+
+        // Act
+        takeLoanICX(account1, "bnUSD", collateral, loan);
+        takeLoanICX(account2, "bnUSD", collateral, loan);
+        takeLoanICX(account3, "bnUSD", collateral, loan);
+        inTransaction(() -> loans.invoke(redeemer, "redeemCollateralPartial", sicx.getAddress(), amountToRedeem,
+                2));
+
+        // Assert
+        verify(bnusd.mock).burnFrom(redeemer.getAddress(), expectedAmountRedeemed);
+        verify(bnusd.mock).mintTo(mockBalanced.daofund.getAddress(), expectedDaoFee, new byte[0]);
+        verifyPosition(account1.getAddress(), collateral.subtract(collateralRedeemedAccount),
+                debt.subtract(maxRetire), "sICX");
+        verifyPosition(account2.getAddress(), collateral.subtract(collateralRedeemedAccount),
+                debt.subtract(maxRetire), "sICX");
+        verifyPosition(account3.getAddress(), collateral, debt, "sICX");
+        verify(sicx.mock).transfer(eq(redeemer.getAddress()), eq(collateralRedeemedAccount.multiply(BigInteger.TWO)),
+                any(byte[].class));
+        BigInteger expectedTotalDebt = debt.multiply(BigInteger.valueOf(3)).subtract(debtRepaid);
+        BigInteger collateralRedeemed = collateralRedeemedAccount.multiply(BigInteger.TWO);
+        verifyTotalDebt(expectedTotalDebt);
+        verifyCollateralStats("sICX", 3, expectedTotalDebt,
+                collateral.multiply(BigInteger.valueOf(3)).subtract(collateralRedeemed));
     }
 
     @Test
@@ -27,9 +27,12 @@ import network.balanced.score.lib.structs.RewardsDataEntry;
 import network.balanced.score.lib.test.UnitTest;
 import network.balanced.score.lib.test.mock.MockBalanced;
 import network.balanced.score.lib.test.mock.MockContract;
+import org.junit.jupiter.api.AfterEach;
+import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.stubbing.Answer;
 import score.Address;
+import score.Context;
 
 import java.math.BigInteger;
 import java.util.Map;
@@ -64,6 +67,34 @@ class LoansTestBase extends UnitTest {
     protected MockContract<BalancedOracle> balancedOracle;
     protected LoansImpl loansSpy;
 
+    // Hashes are never reused, so nothing keyed to a transaction hash carries over between tests
+    private static long transactionCount = 0;
+    protected final MockedStatic<Context> contextMock = Mockito.mockStatic(Context.class, Mockito.CALLS_REAL_METHODS);
+    private byte[] transactionHash;
+
+    LoansTestBase() {
+        contextMock.when(Context::getTransactionHash).thenAnswer(invocation -> transactionHash);
+    }
+
+    @AfterEach
+    void closeContextMock() {
+        contextMock.close();
+    }
+
+    /**
+     * Runs the action as one transaction with its own transaction hash, as on chain. Calls made outside a transaction
+     * have no hash.
+     */
+    protected void inTransaction(Runnable action) {
+        transactionCount++;
+        transactionHash = BigInteger.valueOf(transactionCount).toByteArray();
+        try {
+            action.run();
+        } finally {
+            transactionHash = null;
+        }
+    }
+
     protected void mockSicxBnusdPrice(BigInteger rate) {
         when(dex.mock.getPoolId(sicx.getAddress(), bnusd.getAddress())).thenReturn(BigInteger.valueOf(3));
         when(dex.mock.getBasePriceInQuote(BigInteger.valueOf(3))).thenReturn(rate);
@@ -83,10 +114,9 @@ class LoansTestBase extends UnitTest {
     }
 
     protected void mockStakeICX(BigInteger amount) {
-        Mockito.doAnswer((Answer<Void>) invocation -> {
-            final Object[] args = invocation.getArguments();
+        Mockito.doAnswer((Answer<BigInteger>) invocation -> {
             loans.invoke(sicx.account, "tokenFallback", EOA_ZERO, amount, new byte[0]);
-            return null;
+            return amount;
         }).when(staking.mock).stakeICX(Mockito.any(Address.class), Mockito.any(byte[].class));
     }
 
@@ -107,7 +137,7 @@ class LoansTestBase extends UnitTest {
                 .add("_amount", loan.toString());
         byte[] params = data.toString().getBytes();
 
-        loans.invoke(sicx.account, "tokenFallback", account.getAddress(), collateral, params);
+        inTransaction(() -> loans.invoke(sicx.account, "tokenFallback", account.getAddress(), collateral, params));
     }
 
     protected void takeLoaniETH(Account account, BigInteger collateral, BigInteger loan) {
@@ -115,13 +145,13 @@ class LoansTestBase extends UnitTest {
                 .add("_asset", "bnUSD")
                 .add("_amount", loan.toString());
         byte[] params = data.toString().getBytes();
-        loans.invoke(ieth.account, "tokenFallback", account.getAddress(), collateral, params);
+        inTransaction(() -> loans.invoke(ieth.account, "tokenFallback", account.getAddress(), collateral, params));
     }
 
     protected void takeLoanICX(Account account, String asset, BigInteger collateral, BigInteger loan) {
         mockStakeICX(collateral);
-        sm.call(account, collateral, loans.getAddress(), "depositAndBorrow", asset, loan, account.getAddress(),
-                BigInteger.ZERO);
+        inTransaction(() -> sm.call(account, collateral, loans.getAddress(), "depositAndBorrow", asset, loan,
+                account.getAddress(), BigInteger.ZERO));
     }
 
     protected BigInteger calculateFee(BigInteger loan) {
@@ -181,6 +211,15 @@ class LoansTestBase extends UnitTest {
         assertEquals(expectedDebt, iETHDebt.add(sICXDebt));
     }
 
+    @SuppressWarnings("unchecked")
+    protected void verifyCollateralStats(String symbol, int borrowers, BigInteger totalDebt,
+                                         BigInteger totalCollateral) {
+        Map<String, Object> stats = ((Map<String, Map<String, Object>>) loans.call("getCollateralStats")).get(symbol);
+        assertEquals(borrowers, stats.get("borrowers"));
+        assertEquals(totalDebt, stats.get("total_debt"));
+        assertEquals(totalCollateral, stats.get("total_collateral"));
+    }
+
     @SuppressWarnings("unchecked")
     protected BigInteger getTotalDebt() {
         Map<String, BigInteger> balanceAndSupply = (Map<String, BigInteger>) loans.call("getBalanceAndSupply", "Loans"
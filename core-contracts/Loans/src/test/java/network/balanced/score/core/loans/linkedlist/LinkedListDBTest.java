@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2023-2023 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.core.loans.linkedlist;
+
+import com.iconloop.score.test.Account;
+import com.iconloop.score.test.Score;
+import com.iconloop.score.test.ServiceManager;
+import com.iconloop.score.test.TestBase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import score.Context;
+
+import java.math.BigInteger;
+
+import static network.balanced.score.lib.test.UnitTest.expectErrorMessage;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LinkedListDBTest extends TestBase {
+
+    private static final ServiceManager sm = getServiceManager();
+    private static final Account owner = sm.createAccount();
+    private static final String DB_NAME = "borrowers";
+
+    private Score dummyScore;
+
+    public static class DummyScore {
+
+        public DummyScore() {
+
+        }
+
+        private LinkedListDB list() {
+            return new LinkedListDB(DB_NAME);
+        }
+
+        public void append(BigInteger value, int id) {
+            list().append(value, id);
+        }
+
+        public void set(int id, BigInteger value) {
+            list().set(id, value);
+        }
+
+        public void remove(int id) {
+            list().remove(id);
+        }
+
+        public BigInteger nodeValue(int id) {
+            return list().nodeValue(id);
+        }
+
+        public int getNextId(int id) {
+            return list().getNextId(id);
+        }
+
+        public boolean contains(int id) {
+            return list().contains(id);
+        }
+
+        public int size() {
+            return list().size();
+        }
+
+        public int getHeadId() {
+            return list().getHeadId();
+        }
+
+        public int getTailId() {
+            return list().getTailId();
+        }
+
+        public int redeemBatch(int nrOfPositions) {
+            RedemptionCursor cursor = list().readRedemptionCursor();
+            for (int i = 0; i < nrOfPositions; i++) {
+                cursor.next();
+            }
+
+            cursor.save();
+            return cursor.getId();
+        }
+
+        public BigInteger getTotalDebtFor(int nrOfPositions) {
+            return list().getTotalDebtFor(nrOfPositions);
+        }
+
+        public void setLegacyMetadata(String data) {
+            Context.newVarDB(DB_NAME + "_LINKED_LISTDB_metadata", String.class).set(data);
+        }
+
+        public void setLegacyNode(int id, String data) {
+            Context.newVarDB(id + DB_NAME + "_LINKED_LISTDB_Node_node_data", String.class).set(data);
+        }
+
+        public String getLegacyNode(int id) {
+            return Context.newVarDB(id + DB_NAME + "_LINKED_LISTDB_Node_node_data", String.class).get();
+        }
+    }
+
+    @BeforeEach
+    public void setup() throws Exception {
+        dummyScore = sm.deploy(owner, DummyScore.class);
+    }
+
+    @Test
+    public void appendAndRemove() {
+        dummyScore.invoke(owner, "append", BigInteger.valueOf(100), 1);
+        dummyScore.invoke(owner, "append", BigInteger.valueOf(200), 2);
+        dummyScore.invoke(owner, "append", BigInteger.valueOf(300), 3);
+
+        assertEquals(3, dummyScore.call("size"));
+        assertEquals(1, dummyScore.call("getHeadId"));
+        assertEquals(3, dummyScore.call("getTailId"));
+        assertEquals(2, dummyScore.call("getNextId", 1));
+        assertEquals(BigInteger.valueOf(200), dummyScore.call("nodeValue", 2));
+
+        dummyScore.invoke(owner, "set", 2, BigInteger.valueOf(250));
+        assertEquals(BigInteger.valueOf(250), dummyScore.call("nodeValue", 2));
+
+        dummyScore.invoke(owner, "remove", 2);
+        assertEquals(2, dummyScore.call("size"));
+        assertEquals(3, dummyScore.call("getNextId", 1));
+        assertFalse((Boolean) dummyScore.call("contains", 2));
+    }
+
+    @Test
+    public void legacyNodesMigratedOnWrite() {
+        dummyScore.invoke(owner, "setLegacyMetadata", "1|2|2");
+        dummyScore.invoke(owner, "setLegacyNode", 1, "100|2|0");
+        dummyScore.invoke(owner, "setLegacyNode", 2, "200|0|1");
+
+        assertEquals(2, dummyScore.call("size"));
+        assertTrue((Boolean) dummyScore.call("contains", 1));
+        assertEquals(BigInteger.valueOf(100), dummyScore.call("nodeValue", 1));
+        assertEquals(2, dummyScore.call("getNextId", 1));
+
+        dummyScore.invoke(owner, "set", 1, BigInteger.valueOf(150));
+        assertNull(dummyScore.call("getLegacyNode", 1));
+        assertEquals("200|0|1", dummyScore.call("getLegacyNode", 2));
+        assertEquals(BigInteger.valueOf(150), dummyScore.call("nodeValue", 1));
+        assertEquals(2, dummyScore.call("getNextId", 1));
+
+        dummyScore.invoke(owner, "append", BigInteger.valueOf(300), 3);
+        assertNull(dummyScore.call("getLegacyNode", 2));
+        assertEquals(3, dummyScore.call("getNextId", 2));
+        assertEquals(BigInteger.valueOf(200), dummyScore.call("nodeValue", 2));
+
+        dummyScore.invoke(owner, "remove", 1);
+        assertEquals(2, dummyScore.call("getHeadId"));
+        assertEquals(2, dummyScore.call("size"));
+    }
+
+    @Test
+    public void legacyNodesMigratedOnFirstWriteCallRead() {
+        dummyScore.invoke(owner, "setLegacyMetadata", "1|2|2");
+        dummyScore.invoke(owner, "setLegacyNode", 1, "100|2|0");
+        dummyScore.invoke(owner, "setLegacyNode", 2, "200|0|1");
+
+        assertEquals(BigInteger.valueOf(300), dummyScore.call("getTotalDebtFor", 2));
+        assertEquals("100|2|0", dummyScore.call("getLegacyNode", 1));
+
+        try (MockedStatic<Context> contextMock = Mockito.mockStatic(Context.class, Mockito.CALLS_REAL_METHODS)) {
+            contextMock.when(Context::getTransactionHash).thenReturn(new byte[]{1});
+            assertEquals(1, dummyScore.call("redeemBatch", 1));
+        }
+
+        assertNull(dummyScore.call("getLegacyNode", 1));
+        assertEquals("200|0|1", dummyScore.call("getLegacyNode", 2));
+        assertEquals(BigInteger.valueOf(100), dummyScore.call("nodeValue", 1));
+        assertEquals(2, dummyScore.call("getNextId", 1));
+        assertEquals(BigInteger.valueOf(300), dummyScore.call("getTotalDebtFor", 2));
+    }
+
+    @Test
+    public void redemptionCursorAdvancesWithoutRelinking() {
+        dummyScore.invoke(owner, "append", BigInteger.valueOf(100), 1);
+        dummyScore.invoke(owner, "append", BigInteger.valueOf(200), 2);
+        dummyScore.invoke(owner, "append", BigInteger.valueOf(300), 3);
+
+        assertEquals(BigInteger.valueOf(300), dummyScore.call("getTotalDebtFor", 2));
+        assertEquals(2, dummyScore.call("redeemBatch", 2));
+        assertEquals(1, dummyScore.call("getHeadId"));
+        assertEquals(3, dummyScore.call("getTailId"));
+
+        assertEquals(BigInteger.valueOf(400), dummyScore.call("getTotalDebtFor", 2));
+        assertEquals(1, dummyScore.call("redeemBatch", 2));
+        assertEquals(BigInteger.valueOf(500), dummyScore.call("getTotalDebtFor", 2));
+
+        dummyScore.invoke(owner, "remove", 2);
+        assertEquals(BigInteger.valueOf(300), dummyScore.call("getTotalDebtFor", 1));
+    }
+
+    @Test
+    public void redemptionCursorStopsAfterFullCycle() {
+        dummyScore.invoke(owner, "append", BigInteger.valueOf(100), 1);
+        dummyScore.invoke(owner, "append", BigInteger.valueOf(200), 2);
+
+        Executable readAboveSize = () -> dummyScore.call("getTotalDebtFor", 3);
+        expectErrorMessage(readAboveSize, "Reached end of list");
+    }
+}
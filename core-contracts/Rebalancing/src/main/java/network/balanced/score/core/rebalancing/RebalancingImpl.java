@@ -33,7 +33,7 @@ import java.util.Map;
 import static network.balanced.score.core.rebalancing.Constants.*;
 import static network.balanced.score.lib.utils.Check.*;
 import static network.balanced.score.lib.utils.Constants.EXA;
-import static network.balanced.score.lib.utils.Math.pow;
+import static network.balanced.score.lib.utils.Math.pow10;
 
 public class RebalancingImpl implements Rebalancing {
 
@@ -188,7 +188,7 @@ public class RebalancingImpl implements Rebalancing {
         Context.require(bnusdScore != null && dexScore != null && sicxScore != null && threshold != null);
         String symbol = Context.call(String.class, collateralAddress, "symbol");
         BigInteger nrDecimals = Context.call(BigInteger.class, collateralAddress, "decimals");
-        BigInteger decimals = pow(BigInteger.TEN, nrDecimals.intValue());
+        BigInteger decimals = pow10(nrDecimals.intValue());
         BigInteger poolID = Context.call(BigInteger.class, dexScore, "getPoolId", collateralAddress, bnusdScore);
 
         BigInteger usdPriceInIcx = (BigInteger) Context.call(oracleScore, "getLastPriceInLoop", "USD");
@@ -32,7 +32,7 @@ import java.util.Map;
 import static network.balanced.score.lib.utils.BalancedAddressManager.*;
 import static network.balanced.score.lib.utils.Check.onlyGovernance;
 import static network.balanced.score.lib.utils.Constants.EXA;
-import static network.balanced.score.lib.utils.Math.pow;
+import static network.balanced.score.lib.utils.Math.pow10;
 
 public class ReserveFund implements Reserve {
 
@@ -229,6 +229,6 @@ public class ReserveFund implements Reserve {
 
     private BigInteger getDecimals(Address tokenAddress) {
         BigInteger decimals = Context.call(BigInteger.class, tokenAddress, "decimals");
-        return pow(BigInteger.TEN, decimals.intValue());
+        return pow10(decimals.intValue());
     }
 }
@@ -47,6 +47,7 @@ import static network.balanced.score.lib.utils.Constants.EXA;
 import static network.balanced.score.lib.utils.Constants.MICRO_SECONDS_IN_A_DAY;
 import static network.balanced.score.lib.utils.DBHelpers.contains;
 import static network.balanced.score.lib.utils.Math.pow;
+import static network.balanced.score.lib.utils.Math.pow10;
 
 
 /***
@@ -379,6 +380,11 @@ public class RewardsImpl implements Rewards {
 
         dailyVotableDistribution.set(platformDay, remaining);
 
+        int sourceCount = DataSourceDB.size();
+        for (int i = 0; i < sourceCount; i++) {
+            DataSourceDB.get(DataSourceDB.names.get(i)).accumulateDist(platformDay);
+        }
+
         RewardsImpl.platformDay.set(platformDay.add(BigInteger.ONE));
 
         return false;
@@ -505,14 +511,19 @@ public class RewardsImpl implements Rewards {
 
         BigInteger boostedSupply = fetchBoostedSupply();
 
+        Address[] users = new Address[_data.length];
+        for (int i = 0; i < _data.length; i++) {
+            users[i] = _data[i]._user;
+        }
+        Map<String, BigInteger> currentBalances = dataSource.loadCurrentBalances(users);
+
         for (RewardsDataEntry entry : _data) {
             Address user = entry._user;
             BalanceData balances = new BalanceData();
             balances.boostedSupply = boostedSupply;
             balances.boostedBalance = fetchBoostedBalance(user);
-            Map<String, BigInteger> balanceAndSupply = dataSource.loadCurrentSupply(user);
-            balances.balance = balanceAndSupply.get(BALANCE);
-            balances.supply = balanceAndSupply.get(TOTAL_SUPPLY);
+            balances.balance = currentBalances.get(user.toString());
+            balances.supply = currentBalances.get(TOTAL_SUPPLY);
             balances.prevWorkingBalance = dataSource.getWorkingBalance(user, entry._balance, false);
             balances.prevWorkingSupply = dataSource.getWorkingSupply(_totalSupply, false);
 
@@ -729,12 +740,24 @@ public class RewardsImpl implements Rewards {
         SourceWeightController.checkpoint();
     }
 
+    @External
+    public boolean checkpointBatch(int maxWeeks) {
+        checkStatus();
+        return SourceWeightController.checkpointBatch(maxWeeks);
+    }
+
     @External
     public void checkpointSource(String name) {
         checkStatus();
         SourceWeightController.checkpointSource(name);
     }
 
+    @External
+    public boolean checkpointSourceBatch(String name, int maxWeeks) {
+        checkStatus();
+        return SourceWeightController.checkpointSourceBatch(name, maxWeeks);
+    }
+
     @External
     public BigInteger updateRelativeSourceWeight(String name, BigInteger time) {
         checkStatus();
@@ -881,6 +904,12 @@ public class RewardsImpl implements Rewards {
                                       BigInteger boostedSupply) {
         distribute();
         BigInteger currentTime = getTime();
+
+        // Only sources the user has a working balance in need a refresh, their balances are fetched with one call
+        // per provider contract
+        List<String> activeSources = new ArrayList<>();
+        Map<String, BigInteger> workingBalances = new HashMap<>();
+        Map<Address, List<String>> sourcesByProvider = new HashMap<>();
         for (String name : sources) {
             DataSourceImpl dataSource = DataSourceDB.get(name);
             BigInteger workingBalance = dataSource.getWorkingBalance(user, false);
@@ -888,13 +917,32 @@ public class RewardsImpl implements Rewards {
                 continue;
             }
 
+            activeSources.add(name);
+            workingBalances.put(name, workingBalance);
+            Address provider = dataSource.getContractAddress();
+            List<String> providerSources = sourcesByProvider.get(provider);
+            if (providerSources == null) {
+                providerSources = new ArrayList<>();
+                sourcesByProvider.put(provider, providerSources);
+            }
+            providerSources.add(name);
+        }
+
+        Map<String, Map<String, BigInteger>> balancesAndSupplies = new HashMap<>();
+        for (Map.Entry<Address, List<String>> provider : sourcesByProvider.entrySet()) {
+            balancesAndSupplies.putAll(DataSourceImpl.loadCurrentSupplies(provider.getKey(), provider.getValue(),
+                    user));
+        }
+
+        for (String name : activeSources) {
+            DataSourceImpl dataSource = DataSourceDB.get(name);
             BalanceData balances = new BalanceData();
-            balances.boostedBalance = fetchBoostedBalance(user);
+            balances.boostedBalance = boostedBalance;
             balances.boostedSupply = boostedSupply;
-            Map<String, BigInteger> balanceAndSupply = dataSource.loadCurrentSupply(user);
+            Map<String, BigInteger> balanceAndSupply = balancesAndSupplies.get(name);
             balances.balance = balanceAndSupply.get(BALANCE);
             balances.supply = balanceAndSupply.get(TOTAL_SUPPLY);
-            balances.prevWorkingBalance = workingBalance;
+            balances.prevWorkingBalance = workingBalances.get(name);
             balances.prevWorkingSupply = dataSource.getWorkingSupply(false);
 
             updateUserAccruedRewards(name, currentTime, dataSource, user, balances);
@@ -1054,7 +1102,7 @@ public class RewardsImpl implements Rewards {
     }
 
     private static BigInteger dailyDistribution(BigInteger day) {
-        BigInteger baseDistribution = pow(BigInteger.TEN, 23);
+        BigInteger baseDistribution = pow10(23);
         int offset = 5;
         if (day.compareTo(BigInteger.valueOf(60)) <= 0) {
             return baseDistribution;
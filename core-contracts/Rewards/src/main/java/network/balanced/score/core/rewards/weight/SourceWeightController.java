@@ -37,6 +37,10 @@ public class SourceWeightController {
     // Cannot change weight votes more often than once in 10 days
     public static final BigInteger WEIGHT_VOTE_DELAY = MICRO_SECONDS_IN_A_DAY.multiply(BigInteger.TEN);
     public static final BigInteger VOTE_POINTS = BigInteger.valueOf(10000);
+    // Weeks each history series may be filled by a single call, progress is kept so later calls resume from there
+    public static final int MAX_CHECKPOINT_WEEKS = 500;
+    // Votes only fill a bounded gap, longer ones have to be caught up with checkpointBatch or checkpointSourceBatch
+    public static final int VOTE_CHECKPOINT_WEEKS = 52;
 
     // sourceTypeNames: public(HashMap.get(int128, String[64]))
     private static final EnumerableSetDB<String> sourceTypeNames = new EnumerableSetDB<>("sourceTypeNames",
@@ -105,6 +109,10 @@ public class SourceWeightController {
      * @return Type weight
      */
     private static BigInteger getTypeWeight(int sourceType) {
+        return getTypeWeight(sourceType, MAX_CHECKPOINT_WEEKS);
+    }
+
+    private static BigInteger getTypeWeight(int sourceType, int maxWeeks) {
         BigInteger time = timeTypeWeight.getOrDefault(sourceType, BigInteger.ZERO);
         if (time.compareTo(BigInteger.ZERO) <= 0) {
             return BigInteger.ZERO;
@@ -112,16 +120,18 @@ public class SourceWeightController {
 
         BigInteger timestamp = BigInteger.valueOf(Context.getBlockTimestamp());
         BigInteger weight = pointsTypeWeight.at(sourceType).get(time);
-        for (int i = 0; i < 500; i++) {
+        int weeks = 0;
+        for (; weeks < maxWeeks; weeks++) {
             if (time.compareTo(timestamp) > 0) {
                 break;
             }
 
             time = time.add(WEEK);
             pointsTypeWeight.at(sourceType).set(time, weight);
-            if (time.compareTo(timestamp) > 0) {
-                timeTypeWeight.set(sourceType, time);
-            }
+        }
+
+        if (weeks > 0) {
+            timeTypeWeight.set(sourceType, time);
         }
 
         return weight;
@@ -135,6 +145,10 @@ public class SourceWeightController {
      * @return Sum of weights
      */
     private static BigInteger getSum(int sourceType) {
+        return getSum(sourceType, MAX_CHECKPOINT_WEEKS);
+    }
+
+    private static BigInteger getSum(int sourceType, int maxWeeks) {
         BigInteger time = timeSum.getOrDefault(sourceType, BigInteger.ZERO);
         BigInteger timeStamp = BigInteger.valueOf(Context.getBlockTimestamp());
         if (time.compareTo(BigInteger.ZERO) <= 0) {
@@ -142,7 +156,8 @@ public class SourceWeightController {
         }
 
         Point pt = pointsSum.at(sourceType).getOrDefault(time, new Point());
-        for (int i = 0; i < 500; i++) {
+        int weeks = 0;
+        for (; weeks < maxWeeks; weeks++) {
             if (time.compareTo(timeStamp) > 0) {
                 break;
             }
@@ -159,9 +174,10 @@ public class SourceWeightController {
             }
 
             pointsSum.at(sourceType).set(time, pt);
-            if (time.compareTo(timeStamp) > 0) {
-                timeSum.set(sourceType, time);
-            }
+        }
+
+        if (weeks > 0) {
+            timeSum.set(sourceType, time);
         }
 
         return pt.bias;
@@ -173,6 +189,10 @@ public class SourceWeightController {
      * @return Total weight
      */
     private static BigInteger getTotal() {
+        return getTotal(MAX_CHECKPOINT_WEEKS);
+    }
+
+    private static BigInteger getTotal(int maxWeeks) {
         BigInteger time = timeTotal.getOrDefault(BigInteger.ZERO);
         BigInteger timestamp = BigInteger.valueOf(Context.getBlockTimestamp());
         if (time.compareTo(timestamp) > 0) {
@@ -181,17 +201,26 @@ public class SourceWeightController {
         }
         BigInteger pt = pointsTotal.getOrDefault(time, BigInteger.ZERO);
 
+        // A total can only be filled for weeks every type sum and type weight has already been filled for
+        BigInteger filledUntil = null;
         int nrSourceTypes = sourceTypeNames.length();
         for (int id = 0; id < nrSourceTypes; id++) {
-            getSum(id);
-            getTypeWeight(id);
+            getSum(id, maxWeeks);
+            getTypeWeight(id, maxWeeks);
+            filledUntil = minFilledTime(filledUntil, timeSum.getOrDefault(id, BigInteger.ZERO));
+            filledUntil = minFilledTime(filledUntil, timeTypeWeight.getOrDefault(id, BigInteger.ZERO));
         }
 
-        for (int i = 0; i < 500; i++) {
+        int weeks = 0;
+        for (; weeks < maxWeeks; weeks++) {
             if (time.compareTo(timestamp) > 0) {
                 break;
             }
 
+            if (filledUntil != null && time.add(WEEK).compareTo(filledUntil) > 0) {
+                break;
+            }
+
             time = time.add(WEEK);
             pt = BigInteger.ZERO;
             for (int id = 0; id < nrSourceTypes; id++) {
@@ -202,15 +231,29 @@ public class SourceWeightController {
             }
 
             pointsTotal.set(time, pt);
+        }
 
-            if (time.compareTo(timestamp) > 0) {
-                timeTotal.set(time);
-            }
+        if (weeks > 0) {
+            timeTotal.set(time);
         }
 
         return pt;
     }
 
+    private static BigInteger minFilledTime(BigInteger current, BigInteger time) {
+        // Series that were never started have no history to wait for
+        if (time.compareTo(BigInteger.ZERO) <= 0) {
+            return current;
+        }
+
+        return current == null ? time : current.min(time);
+    }
+
+    private static boolean isCheckpointed() {
+        BigInteger timestamp = BigInteger.valueOf(Context.getBlockTimestamp());
+        return timeTotal.getOrDefault(BigInteger.ZERO).compareTo(timestamp) > 0;
+    }
+
     /**
      * Fill historic source weights week-over-week for missed checkins and return the total for the future week
      *
@@ -218,6 +261,10 @@ public class SourceWeightController {
      * @return Source weight
      */
     private static BigInteger getWeight(String source) {
+        return getWeight(source, MAX_CHECKPOINT_WEEKS);
+    }
+
+    private static BigInteger getWeight(String source, int maxWeeks) {
         BigInteger time = timeWeight.getOrDefault(source, BigInteger.ZERO);
         BigInteger timestamp = BigInteger.valueOf(Context.getBlockTimestamp());
         if (time.compareTo(BigInteger.ZERO) <= 0) {
@@ -225,7 +272,8 @@ public class SourceWeightController {
         }
 
         Point pt = pointsWeight.at(source).getOrDefault(time, new Point());
-        for (int i = 0; i < 500; i++) {
+        int weeks = 0;
+        for (; weeks < maxWeeks; weeks++) {
             if (time.compareTo(timestamp) > 0) {
                 break;
             }
@@ -241,9 +289,10 @@ public class SourceWeightController {
             }
 
             pointsWeight.at(source).set(time, pt);
-            if (time.compareTo(timestamp) > 0) {
-                timeWeight.set(source, time);
-            }
+        }
+
+        if (weeks > 0) {
+            timeWeight.set(source, time);
         }
 
         return pt.bias;
@@ -295,6 +344,19 @@ public class SourceWeightController {
         getTotal();
     }
 
+    /**
+     * Fill data common for all sources for at most `maxWeeks` weeks per series, to be repeated until caught up
+     *
+     * @param maxWeeks Maximum number of weeks filled in each history series
+     * @return Whether all common data is filled up to the current week
+     */
+    public static boolean checkpointBatch(int maxWeeks) {
+        Context.require(maxWeeks > 0 && maxWeeks <= MAX_CHECKPOINT_WEEKS, "maxWeeks has to be between 1 and " +
+                MAX_CHECKPOINT_WEEKS);
+        getTotal(maxWeeks);
+        return isCheckpointed();
+    }
+
     /**
      * Checkpoint to fill data for both a specific source and common for all sources
      *
@@ -305,6 +367,24 @@ public class SourceWeightController {
         getTotal();
     }
 
+    /**
+     * Fill data for both a specific source and common for all sources for at most `maxWeeks` weeks per series, to be
+     * repeated until caught up
+     *
+     * @param name     Source name
+     * @param maxWeeks Maximum number of weeks filled in each history series
+     * @return Whether the source and all common data are filled up to the current week
+     */
+    public static boolean checkpointSourceBatch(String name, int maxWeeks) {
+        Context.require(maxWeeks > 0 && maxWeeks <= MAX_CHECKPOINT_WEEKS, "maxWeeks has to be between 1 and " +
+                MAX_CHECKPOINT_WEEKS);
+        Context.require(sourceTypes.get(name) != null, "Source with name " + name + " does not exist");
+        getWeight(name, maxWeeks);
+        getTotal(maxWeeks);
+        BigInteger timestamp = BigInteger.valueOf(Context.getBlockTimestamp());
+        return isCheckpointed() && timeWeight.getOrDefault(name, BigInteger.ZERO).compareTo(timestamp) > 0;
+    }
+
     /**
      * Get Source relative weight (not more than 1.0) normalized to 1e18 (e.g. 1.0 == 1e18). Inflation which will be
      * received by it is inflationRate * relativeWeight / 1e18
@@ -436,7 +516,11 @@ public class SourceWeightController {
         // Remove old and schedule new slope changes
         // Remove slope changes for old slopes
         // Schedule recording of initial slope for nextTime
-        BigInteger oldWeightBias = getWeight(sourceName);
+        getTotal(VOTE_CHECKPOINT_WEEKS);
+        Context.require(isCheckpointed(), "Source weights are not checkpointed, call checkpointBatch first");
+        BigInteger oldWeightBias = getWeight(sourceName, VOTE_CHECKPOINT_WEEKS);
+        Context.require(timeWeight.get(sourceName).compareTo(timestamp) > 0, sourceName + " is not checkpointed, " +
+                "call checkpointSourceBatch first");
         BigInteger oldWeightSlope = pointsWeight.at(sourceName).getOrDefault(nextTime, new Point()).slope;
         BigInteger oldSumBias = getSum(sourceType);
         BigInteger oldSumSlope = pointsSum.at(sourceType).getOrDefault(nextTime, new Point()).slope;
@@ -28,6 +28,7 @@ import java.util.Map;
 import static network.balanced.score.core.rewards.utils.RewardsConstants.WEIGHT;
 import static network.balanced.score.lib.utils.Constants.MICRO_SECONDS_IN_A_DAY;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -452,6 +453,57 @@ class RewardsTestRewards extends RewardsTestBase {
         verifyBalnReward(account2.getAddress(), user2ExpectedRewards);
     }
 
+    @Test
+    void updateBatchRewardsData_bulkLookup() {
+        // Arrange
+        Account account1 = sm.createAccount();
+        Account account2 = sm.createAccount();
+
+        String name = "Loans";
+        BigInteger initialTotalSupply = BigInteger.TEN.multiply(EXA);
+        BigInteger user1CurrentBalance = BigInteger.ONE.multiply(EXA);
+        BigInteger user2CurrentBalance = BigInteger.TWO.multiply(EXA);
+        BigInteger currentTotalSupply = initialTotalSupply.add(user1CurrentBalance).add(user2CurrentBalance);
+
+        RewardsDataEntry user1Entry = new RewardsDataEntry();
+        user1Entry._balance = BigInteger.ZERO;
+        user1Entry._user = account1.getAddress();
+        RewardsDataEntry user2Entry = new RewardsDataEntry();
+        user2Entry._balance = BigInteger.ZERO;
+        user2Entry._user = account2.getAddress();
+        Object batch = new RewardsDataEntry[]{user1Entry, user2Entry};
+
+        when(loans.mock.getBalancesAndSupply(eq(name), any(Address[].class))).thenReturn(Map.of(
+                account1.getAddress().toString(), user1CurrentBalance,
+                account2.getAddress().toString(), user2CurrentBalance,
+                "_totalSupply", currentTotalSupply));
+
+        // Act
+        rewardsScore.invoke(loans.account, "updateBatchRewardsData", name, initialTotalSupply, batch);
+        BigInteger startTimeInUS = BigInteger.valueOf(sm.getBlock().getTimestamp());
+
+        // Assert
+        verify(loans.mock, times(1)).getBalancesAndSupply(eq(name), any(Address[].class));
+        verify(loans.mock, never()).getBalanceAndSupply(name, account1.getAddress());
+        verify(loans.mock, never()).getBalanceAndSupply(name, account2.getAddress());
+
+        sm.getBlock().increase(DAY);
+        rewardsScore.invoke(admin, "distribute");
+        BigInteger diffInUS = BigInteger.valueOf(sm.getBlock().getTimestamp()).subtract(startTimeInUS);
+
+        BigInteger emission = (BigInteger) rewardsScore.call("getEmission", BigInteger.valueOf(-1));
+        BigInteger loansDistribution = loansDist.dist_percent.multiply(emission).divide(EXA);
+        BigInteger user1ExpectedRewards = loansDistribution.multiply(user1CurrentBalance).divide(currentTotalSupply)
+                .multiply(diffInUS).divide(MICRO_SECONDS_IN_A_DAY);
+        BigInteger user2ExpectedRewards = loansDistribution.multiply(user2CurrentBalance).divide(currentTotalSupply)
+                .multiply(diffInUS).divide(MICRO_SECONDS_IN_A_DAY);
+
+        BigInteger user1Rewards = (BigInteger) rewardsScore.call("getBalnHolding", account1.getAddress());
+        BigInteger user2Rewards = (BigInteger) rewardsScore.call("getBalnHolding", account2.getAddress());
+        assertEquals(user1ExpectedRewards.divide(BigInteger.TEN), user1Rewards.divide(BigInteger.TEN));
+        assertEquals(user2ExpectedRewards.divide(BigInteger.TEN), user2Rewards.divide(BigInteger.TEN));
+    }
+
     @Test
     void claimRewards_updateBalanceAndSupplyBatch() {
         // Arrange
@@ -506,6 +558,135 @@ class RewardsTestRewards extends RewardsTestBase {
         verifyBalnReward(account2.getAddress(), user2ExpectedRewards);
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    void claimRewards_batchLookupMergesPartialAnswer() {
+        // Arrange
+        Account account = sm.createAccount();
+        String batchedSource = "sICX/ICX";
+        String fallbackSource = "sICX/bnUSD";
+        rewardsScore.invoke(governance, "addNewDataSource", fallbackSource, dex.getAddress());
+
+        BigInteger totalSupply = BigInteger.TEN.multiply(EXA);
+        rewardsScore.invoke(dex.account, "updateBalanceAndSupply", batchedSource, totalSupply, account.getAddress(),
+                EXA);
+        rewardsScore.invoke(dex.account, "updateBalanceAndSupply", fallbackSource, totalSupply,
+                account.getAddress(), EXA);
+
+        // The provider only answers for one of its sources, the other one is looked up on its own
+        BigInteger batchedBalance = BigInteger.TWO.multiply(EXA);
+        BigInteger fallbackBalance = BigInteger.valueOf(3).multiply(EXA);
+        when(dex.mock.getBalanceAndSupplyBatch(any(String[].class), eq(account.getAddress()))).thenReturn(Map.of(
+                batchedSource, Map.of("_balance", batchedBalance, "_totalSupply", totalSupply.add(EXA))));
+        mockBalanceAndSupply(dex, fallbackSource, account.getAddress(), fallbackBalance,
+                totalSupply.add(BigInteger.TWO.multiply(EXA)));
+        clearInvocations(dex.mock, bBaln.mock);
+
+        // Act
+        rewardsScore.invoke(account, "claimRewards", getUserSources(account.getAddress()));
+
+        // Assert
+        verify(dex.mock, times(1)).getBalanceAndSupplyBatch(any(String[].class), eq(account.getAddress()));
+        verify(dex.mock, never()).getBalanceAndSupply(batchedSource, account.getAddress());
+        verify(dex.mock, times(1)).getBalanceAndSupply(fallbackSource, account.getAddress());
+        verify(bBaln.mock, times(1)).balanceOf(eq(account.getAddress()), any(BigInteger.class));
+
+        Map<String, BigInteger> batched = (Map<String, BigInteger>) rewardsScore.call("getWorkingBalanceAndSupply",
+                batchedSource, account.getAddress());
+        Map<String, BigInteger> fallback = (Map<String, BigInteger>) rewardsScore.call("getWorkingBalanceAndSupply",
+                fallbackSource, account.getAddress());
+        assertEquals(batchedBalance, batched.get("workingBalance"));
+        assertEquals(fallbackBalance, fallback.get("workingBalance"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void boostedBalance_suppliedByCaller() {
+        // Arrange
+        Account account = sm.createAccount();
+        BigInteger loansBalance = BigInteger.valueOf(1000).multiply(EXA);
+        BigInteger loansTotalSupply = BigInteger.valueOf(1_000_000).multiply(EXA);
+        BigInteger bBalnSupply = BigInteger.valueOf(500_000).multiply(EXA);
+        when(bBaln.mock.balanceOf(eq(account.getAddress()), any(BigInteger.class))).thenReturn(
+                BigInteger.valueOf(800).multiply(EXA));
+        when(bBaln.mock.totalSupply(BigInteger.ZERO)).thenReturn(bBalnSupply);
+        mockBalanceAndSupply(loans, "Loans", account.getAddress(), loansBalance, loansTotalSupply);
+        rewardsScore.invoke(loans.account, "updateBalanceAndSupply", "Loans", loansTotalSupply,
+                account.getAddress(), loansBalance);
+        clearInvocations(bBaln.mock);
+
+        // Act
+        rewardsScore.invoke(bBaln.account, "onKick", account.getAddress());
+
+        // Assert
+        Map<String, BigInteger> workingBalance = (Map<String, BigInteger>) rewardsScore.call(
+                "getWorkingBalanceAndSupply", "Loans", account.getAddress());
+        assertEquals(loansBalance, workingBalance.get("workingBalance"));
+
+        // Act
+        BigInteger bBalnBalance = BigInteger.valueOf(100).multiply(EXA);
+        rewardsScore.invoke(bBaln.account, "onBalanceUpdate", account.getAddress(), bBalnBalance);
+
+        // Assert
+        BigInteger boost = loansTotalSupply.multiply(bBalnBalance).multiply(EXA.subtract(WEIGHT)).divide(bBalnSupply)
+                .divide(WEIGHT);
+        workingBalance = (Map<String, BigInteger>) rewardsScore.call("getWorkingBalanceAndSupply", "Loans",
+                account.getAddress());
+        assertEquals(loansBalance.add(boost), workingBalance.get("workingBalance"));
+        verify(bBaln.mock, never()).balanceOf(eq(account.getAddress()), any(BigInteger.class));
+    }
+
+    @Test
+    void getBalnHolding_gapWithoutEmissionPrefix() {
+        // Arrange
+        Account account = sm.createAccount();
+        BigInteger supply = BigInteger.TEN.multiply(EXA);
+        rewardsScore.invoke(loans.account, "updateBalanceAndSupply", "Loans", supply, account.getAddress(), supply);
+        BigInteger startTime = getRewardsTime();
+
+        // Act, distribute has not run over the gap so the days are walked one by one
+        sm.getBlock().increase(DAY * 5);
+        BigInteger rewards = (BigInteger) rewardsScore.call("getBalnHolding", account.getAddress());
+
+        // Assert
+        BigInteger endTime = getRewardsTime();
+        assertEquals(loopWeight(startTime, endTime, supply).multiply(supply).divide(EXA), rewards);
+    }
+
+    @Test
+    void getBalnHolding_gapWithEmissionPrefix() {
+        // Arrange
+        Account account = sm.createAccount();
+        BigInteger supply = BigInteger.TEN.multiply(EXA);
+        rewardsScore.invoke(loans.account, "updateBalanceAndSupply", "Loans", supply, account.getAddress(), supply);
+        BigInteger startTime = getRewardsTime();
+
+        // Act, distribute records the emission of every day of the gap
+        sm.getBlock().increase(DAY * 5);
+        syncDistributions();
+        BigInteger rewards = (BigInteger) rewardsScore.call("getBalnHolding", account.getAddress());
+
+        // Assert
+        BigInteger endTime = getRewardsTime();
+        BigInteger firstFullDay = startTime.divide(MICRO_SECONDS_IN_A_DAY).add(BigInteger.ONE);
+        BigInteger lastPartialDay = endTime.divide(MICRO_SECONDS_IN_A_DAY);
+        BigInteger fullDaysEmission = BigInteger.ZERO;
+        for (BigInteger day = firstFullDay; day.compareTo(lastPartialDay) < 0; day = day.add(BigInteger.ONE)) {
+            fullDaysEmission = fullDaysEmission.add(getLoansDist(day));
+        }
+        BigInteger prefixWeight = loopWeight(startTime, firstFullDay.multiply(MICRO_SECONDS_IN_A_DAY), supply)
+                .add(fullDaysEmission.multiply(EXA).divide(supply))
+                .add(loopWeight(lastPartialDay.multiply(MICRO_SECONDS_IN_A_DAY), endTime, supply));
+        assertEquals(prefixWeight.multiply(supply).divide(EXA), rewards);
+
+        // Whole days are rounded once instead of once per day, which pays at most one unit of weight more per day
+        BigInteger loopRewards = loopWeight(startTime, endTime, supply).multiply(supply).divide(EXA);
+        BigInteger fullDays = lastPartialDay.subtract(firstFullDay);
+        assertTrue(rewards.compareTo(loopRewards) >= 0);
+        assertTrue(rewards.subtract(loopRewards)
+                .compareTo(fullDays.multiply(supply).divide(EXA).add(BigInteger.ONE)) <= 0);
+    }
+
     @Test
     void getBalnHolding() {
         // Arrange
@@ -639,4 +820,30 @@ class RewardsTestRewards extends RewardsTestBase {
         assertEquals(user1ExpectedRewards.divide(BigInteger.TEN), user1Rewards);
         assertEquals(user2ExpectedRewards.divide(BigInteger.TEN), user2Rewards);
     }
-}
\ No newline at end of file
+
+    private BigInteger getRewardsTime() {
+        BigInteger timeOffset = (BigInteger) rewardsScore.call("getTimeOffset");
+        return BigInteger.valueOf(sm.getBlock().getTimestamp()).subtract(timeOffset);
+    }
+
+    @SuppressWarnings("unchecked")
+    private BigInteger getLoansDist(BigInteger day) {
+        Map<String, Map<String, Object>> data = (Map<String, Map<String, Object>>) rewardsScore.call(
+                "getDataSourcesAt", day);
+        return (BigInteger) data.get("Loans").get("total_dist");
+    }
+
+    // Total weight gained between two rewards times, one day at a time as the rewards contract walks a gap
+    private BigInteger loopWeight(BigInteger from, BigInteger to, BigInteger supply) {
+        BigInteger weight = BigInteger.ZERO;
+        while (from.compareTo(to) < 0) {
+            BigInteger day = from.divide(MICRO_SECONDS_IN_A_DAY);
+            BigInteger end = day.add(BigInteger.ONE).multiply(MICRO_SECONDS_IN_A_DAY).min(to);
+            weight = weight.add(getLoansDist(day).multiply(end.subtract(from)).multiply(EXA)
+                    .divide(MICRO_SECONDS_IN_A_DAY).divide(supply));
+            from = end;
+        }
+
+        return weight;
+    }
+}
@@ -290,6 +290,77 @@ public class SourceWeightControllerTest extends UnitTest {
         assertTrue(lastUserVoteBnUSD.compareTo(timeAfterVote1) > 0 && lastUserVoteBnUSD.compareTo(timeAfterVote2) < 0);
     }
 
+    @Test
+    void checkpointBatch_longGap() {
+        // Arrange
+        Account user = sm.createAccount();
+        Account user2 = sm.createAccount();
+        mockUserWeight(user, EXA);
+        mockUserWeight(user2, EXA);
+        vote(user, "sICX/ICX", VOTE_POINTS);
+
+        sm.getBlock().increase(WEEK_BLOCKS * 60);
+        BigInteger currentTime = BigInteger.valueOf(sm.getBlock().getTimestamp());
+        BigInteger unlockTime = currentTime.add(MICRO_SECONDS_IN_A_DAY.multiply(BigInteger.valueOf(365)));
+        when(bBaln.mock.lockedEnd(any(Address.class))).thenReturn(unlockTime);
+
+        // Act & Assert
+        String expectedErrorMessage = "Reverted(0): Source weights are not checkpointed, call checkpointBatch first";
+        Executable voteBeforeCheckpoint = () -> vote(user2, "sICX/bnUSD", VOTE_POINTS);
+        expectErrorMessage(voteBeforeCheckpoint, expectedErrorMessage);
+
+        for (int i = 0; i < 7; i++) {
+            weightController.invoke(owner, "checkpointBatch", 10);
+        }
+        weightController.invoke(owner, "checkpointSource", "sICX/bnUSD");
+        vote(user2, "sICX/bnUSD", VOTE_POINTS);
+
+        sm.getBlock().increase(WEEK_BLOCKS);
+        currentTime = BigInteger.valueOf(sm.getBlock().getTimestamp());
+        weightController.invoke(owner, "updateRelativeWeight", "sICX/ICX", currentTime);
+        weightController.invoke(owner, "updateRelativeWeight", "sICX/bnUSD", currentTime);
+
+        assertEquals(BigInteger.ZERO, weightController.call("getRelativeWeight", "sICX/ICX", currentTime));
+        assertEquals(EXA, weightController.call("getRelativeWeight", "sICX/bnUSD", currentTime));
+    }
+
+    @Test
+    void checkpointSourceBatch_longGap() {
+        // Arrange
+        Account user = sm.createAccount();
+        Account user2 = sm.createAccount();
+        mockUserWeight(user, EXA);
+        mockUserWeight(user2, EXA);
+        vote(user, "sICX/ICX", VOTE_POINTS);
+
+        sm.getBlock().increase(WEEK_BLOCKS * 60);
+        BigInteger currentTime = BigInteger.valueOf(sm.getBlock().getTimestamp());
+        BigInteger unlockTime = currentTime.add(MICRO_SECONDS_IN_A_DAY.multiply(BigInteger.valueOf(365)));
+        when(bBaln.mock.lockedEnd(any(Address.class))).thenReturn(unlockTime);
+
+        for (int i = 0; i < 7; i++) {
+            weightController.invoke(owner, "checkpointBatch", 10);
+        }
+
+        // Act & Assert
+        String expectedErrorMessage = "Reverted(0): sICX/bnUSD is not checkpointed, call checkpointSourceBatch first";
+        Executable voteBeforeCheckpoint = () -> vote(user2, "sICX/bnUSD", VOTE_POINTS);
+        expectErrorMessage(voteBeforeCheckpoint, expectedErrorMessage);
+
+        for (int i = 0; i < 7; i++) {
+            weightController.invoke(owner, "checkpointSourceBatch", "sICX/bnUSD", 10);
+        }
+        vote(user2, "sICX/bnUSD", VOTE_POINTS);
+
+        sm.getBlock().increase(WEEK_BLOCKS);
+        currentTime = BigInteger.valueOf(sm.getBlock().getTimestamp());
+        weightController.invoke(owner, "updateRelativeWeight", "sICX/ICX", currentTime);
+        weightController.invoke(owner, "updateRelativeWeight", "sICX/bnUSD", currentTime);
+
+        assertEquals(BigInteger.ZERO, weightController.call("getRelativeWeight", "sICX/ICX", currentTime));
+        assertEquals(EXA, weightController.call("getRelativeWeight", "sICX/bnUSD", currentTime));
+    }
+
     private void vote(Account user, String name, BigInteger weight) {
         weightController.invoke(user, "voteForSourceWeights", name, weight);
     }
@@ -160,6 +160,34 @@ public class RouterImpl implements Router {
         }
     }
 
+    private int tokenHopsFrom(Address currentToken, Address[] path, int start) {
+        if (currentToken == null) {
+            return 0;
+        }
+
+        int end = start;
+        while (end < path.length && path[end] != null) {
+            end++;
+        }
+
+        return end - start;
+    }
+
+    private void swapPath(Address fromToken, Address[] path, int start, int hops) {
+        // Consecutive token to token hops are settled inside the Dex, which only sends back the final token
+        JsonArray tokens = new JsonArray();
+        for (int i = start; i < start + hops; i++) {
+            tokens.add(path[i].toString());
+        }
+        JsonObject params = new JsonObject();
+        params.add("path", tokens);
+        JsonObject data = new JsonObject();
+        data.add("method", "_swapPath");
+        data.add("params", params);
+        BigInteger balance = (BigInteger) Context.call(fromToken, "balanceOf", Context.getAddress());
+        Context.call(fromToken, "transfer", dex.get(), balance, data.toString().getBytes());
+    }
+
     private void route(Address from, Address startToken, Address[] _path, BigInteger _minReceive) {
         Address currentToken = startToken;
         BigInteger fromAmount;
@@ -172,9 +200,17 @@ public class RouterImpl implements Router {
             fromAddress = startToken;
         }
 
-        for (Address token : _path) {
-            swap(currentToken, token);
-            currentToken = token;
+        int hop = 0;
+        while (hop < _path.length) {
+            int tokenHops = tokenHopsFrom(currentToken, _path, hop);
+            if (tokenHops > 1) {
+                swapPath(currentToken, _path, hop, tokenHops);
+                hop += tokenHops;
+            } else {
+                swap(currentToken, _path[hop]);
+                hop++;
+            }
+            currentToken = _path[hop - 1];
         }
 
         if (currentToken == null) {
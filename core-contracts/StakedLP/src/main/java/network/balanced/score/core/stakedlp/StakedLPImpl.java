@@ -185,6 +185,28 @@ public class StakedLPImpl implements StakedLP {
         return rewardsData;
     }
 
+    @External(readonly = true)
+    public Map<String, Map<String, BigInteger>> getBalanceAndSupplyBatch(String[] _names, Address _owner) {
+        Map<String, Map<String, BigInteger>> balances = new HashMap<>();
+        for (String name : _names) {
+            balances.put(name, getBalanceAndSupply(name, _owner));
+        }
+
+        return balances;
+    }
+
+    @External(readonly = true)
+    public Map<String, BigInteger> getBalancesAndSupply(String _name, Address[] _owners) {
+        BigInteger poolId = getSourceId(_name);
+        Map<String, BigInteger> balances = new HashMap<>();
+        balances.put("_totalSupply", totalStaked(poolId));
+        for (Address owner : _owners) {
+            balances.put(owner.toString(), balanceOf(owner, poolId));
+        }
+
+        return balances;
+    }
+
     @External(readonly = true)
     public BigInteger getBnusdValue(String _name) {
         return Context.call(BigInteger.class, dex.get(), "getLPBnusdValue", dataSourceIds.get(_name));
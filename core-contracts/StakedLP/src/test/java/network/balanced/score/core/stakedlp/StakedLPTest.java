@@ -295,4 +295,11 @@ public class StakedLPTest extends UnitTest {
         assertEquals(BigInteger.valueOf(8), balanceAndSupply.get("_totalSupply"));
         verify(rewards.mock).updateRewardsData(name, BigInteger.TEN, alice.getAddress(), BigInteger.TEN);
     }
+
+    @Test
+    void getBalancesAndSupply_unknownSource() {
+        Executable unknownSource = () -> stakedLpScore.call("getBalancesAndSupply", "unknownSource",
+                new Address[]{alice.getAddress()});
+        expectErrorMessage(unknownSource, "datasource unknownSource is not a valid source");
+    }
 }
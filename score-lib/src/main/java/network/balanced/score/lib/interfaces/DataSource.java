@@ -42,4 +42,12 @@ public interface DataSource {
 
     @External
     Map<String, BigInteger> getBalanceAndSupply(String _name, Address _owner);
+
+    // Balances of one owner in several sources of this provider, keyed by source name
+    @External(readonly = true)
+    Map<String, Map<String, BigInteger>> getBalanceAndSupplyBatch(String[] _names, Address _owner);
+
+    // Balances of several owners in one source keyed by owner address, plus the source "_totalSupply"
+    @External(readonly = true)
+    Map<String, BigInteger> getBalancesAndSupply(String _name, Address[] _owners);
 }
\ No newline at end of file
@@ -55,6 +55,12 @@ public interface Dex extends Name, AddressManager, Fallback, TokenFallback,
     @External(readonly = true)
     boolean isQuoteCoinAllowed(Address _address);
 
+    @External
+    void setStableSwapPair(Address _baseToken, Address _quoteToken, BigInteger _amplification);
+
+    @External(readonly = true)
+    BigInteger getPoolAmplification(BigInteger _id);
+
     @External(readonly = true)
     BigInteger getDay();
 
@@ -121,6 +127,21 @@ public interface Dex extends Name, AddressManager, Fallback, TokenFallback,
     @External(readonly = true)
     BigInteger getPrice(BigInteger _id);
 
+    @External(readonly = true)
+    Map<String, Object> getCumulativePrice(BigInteger _id);
+
+    @External(readonly = true)
+    Map<String, Object> getTWAP(BigInteger _id, BigInteger _window);
+
+    @External(readonly = true)
+    Map<String, Object> quoteExactIn(Address _fromToken, Address _toToken, BigInteger _amount);
+
+    @External(readonly = true)
+    Map<String, Object> quoteExactOut(Address _fromToken, Address _toToken, BigInteger _amountOut);
+
+    @External(readonly = true)
+    Map<String, Object> quotePath(Address[] _path, BigInteger _amount);
+
     @External(readonly = true)
     BigInteger getBalnPrice();
 
@@ -148,9 +169,18 @@ public interface Dex extends Name, AddressManager, Fallback, TokenFallback,
     @External(readonly = true)
     BigInteger totalDexAddresses(BigInteger _id);
 
+    @External(readonly = true)
+    Map<String, Object> getPoolHolders(BigInteger _id, BigInteger _cursor, BigInteger _limit);
+
     @External(readonly = true)
     Map<String, BigInteger> getBalanceAndSupply(String _name, Address _owner);
 
+    @External(readonly = true)
+    Map<String, Map<String, BigInteger>> getBalanceAndSupplyBatch(String[] _names, Address _owner);
+
+    @External(readonly = true)
+    Map<String, BigInteger> getBalancesAndSupply(String _name, Address[] _owners);
+
     @External(readonly = true)
     BigInteger balanceOfAt(Address _account, BigInteger _id, BigInteger _snapshot_id, @Optional boolean _twa);
 
@@ -58,6 +58,9 @@ public interface Loans extends Name, TokenFallback, AddressManager, Version {
     @External(readonly = true)
     Map<String, Map<String, Object>> getAvailableAssets();
 
+    @External(readonly = true)
+    Map<String, Map<String, Object>> getCollateralStats();
+
     @External(readonly = true)
     int assetCount();
 
@@ -73,6 +76,12 @@ public interface Loans extends Name, TokenFallback, AddressManager, Version {
     @External(readonly = true)
     Map<String, BigInteger> getBalanceAndSupply(String _name, Address _owner);
 
+    @External(readonly = true)
+    Map<String, Map<String, BigInteger>> getBalanceAndSupplyBatch(String[] _names, Address _owner);
+
+    @External(readonly = true)
+    Map<String, BigInteger> getBalancesAndSupply(String _name, Address[] _owners);
+
     @External(readonly = true)
     BigInteger getBnusdValue(String _name);
 
@@ -105,9 +114,15 @@ public interface Loans extends Name, TokenFallback, AddressManager, Version {
     @External
     void liquidate(Address _owner, @Optional String _collateralSymbol);
 
+    @External
+    void liquidateBatch(Address[] _owners, @Optional String _collateralSymbol);
+
     @External
     void redeemCollateral(Address _collateralAddress, BigInteger _amount);
 
+    @External
+    BigInteger redeemCollateralPartial(Address _collateralAddress, BigInteger _amount, @Optional int _maxPositions);
+
     @External(readonly = true)
     BigInteger getRedeemableAmount(Address _collateralAddress, @Optional int nrOfPositions);
 
@@ -65,6 +65,12 @@ public interface StakedLP extends Version {
     @External(readonly = true)
     Map<String, BigInteger> getBalanceAndSupply(String _name, Address _owner);
 
+    @External(readonly = true)
+    Map<String, Map<String, BigInteger>> getBalanceAndSupplyBatch(String[] _names, Address _owner);
+
+    @External(readonly = true)
+    Map<String, BigInteger> getBalancesAndSupply(String _name, Address[] _owners);
+
     @External(readonly = true)
     BigInteger getBnusdValue(String _name);
 
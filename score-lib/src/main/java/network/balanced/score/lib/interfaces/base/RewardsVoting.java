@@ -42,9 +42,15 @@ public interface RewardsVoting {
     @External
     void checkpoint();
 
+    @External
+    boolean checkpointBatch(int maxWeeks);
+
     @External
     void checkpointSource(String name);
 
+    @External
+    boolean checkpointSourceBatch(String name, int maxWeeks);
+
     @External
     BigInteger updateRelativeSourceWeight(String name, BigInteger time);
 
@@ -20,10 +20,10 @@ import score.Address;
 
 import java.math.BigInteger;
 
-import static network.balanced.score.lib.utils.Math.pow;
+import static network.balanced.score.lib.utils.Math.pow10;
 
 public class Constants {
-    public final static BigInteger EXA = pow(BigInteger.TEN, 18);
+    public final static BigInteger EXA = pow10(18);
     public final static BigInteger POINTS = BigInteger.valueOf(10000);
     public static final BigInteger MICRO_SECONDS_IN_A_SECOND = BigInteger.valueOf(1_000_000);
     public static final BigInteger MICRO_SECONDS_IN_A_DAY =
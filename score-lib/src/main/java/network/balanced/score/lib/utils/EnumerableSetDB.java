@@ -82,11 +82,20 @@ public class EnumerableSetDB<V> {
     }
 
     public List<V> range(BigInteger start, BigInteger stop) {
+        int size = entries.size();
+        if (start.signum() < 0 || start.compareTo(BigInteger.valueOf(size)) >= 0) {
+            return new ArrayList<>();
+        }
+
+        return range(start.intValue(), stop.min(BigInteger.valueOf(size)).intValue());
+    }
+
+    public List<V> range(int start, int stop) {
         List<V> data = new ArrayList<>();
-        BigInteger size = BigInteger.valueOf(entries.size());
-        if (start.compareTo(BigInteger.ZERO) >= 0 && start.compareTo(size) < 0 && start.compareTo(stop) < 0) {
-            BigInteger end = (stop.compareTo(size) <= 0) ? stop : size;
-            for (int i = start.intValue(); i < end.intValue(); i++) {
+        int size = entries.size();
+        if (start >= 0 && start < size && start < stop) {
+            int end = stop <= size ? stop : size;
+            for (int i = start; i < end; i++) {
                 data.add(entries.get(i));
             }
         }
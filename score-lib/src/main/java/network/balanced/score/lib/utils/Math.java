@@ -24,6 +24,25 @@ import java.math.BigInteger;
 import static network.balanced.score.lib.utils.Constants.EXA;
 
 public class Math {
+    // Powers of ten up to EXA squared, other exponents fall back to pow
+    private static final int POW10_TABLE_SIZE = 37;
+    private static final BigInteger[] POW10 = new BigInteger[POW10_TABLE_SIZE];
+
+    static {
+        POW10[0] = BigInteger.ONE;
+        for (int i = 1; i < POW10_TABLE_SIZE; i++) {
+            POW10[i] = POW10[i - 1].multiply(BigInteger.TEN);
+        }
+    }
+
+    public static BigInteger pow10(int exponent) {
+        if (exponent >= 0 && exponent < POW10_TABLE_SIZE) {
+            return POW10[exponent];
+        }
+
+        return pow(BigInteger.TEN, exponent);
+    }
+
     public static BigInteger pow(BigInteger base, int exponent) {
         BigInteger res = BigInteger.ONE;
         for (int i = 1; i <= exponent; i++) {
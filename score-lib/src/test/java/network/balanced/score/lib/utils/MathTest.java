@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2022-2022 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package network.balanced.score.lib.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MathTest {
+
+    @Test
+    public void pow10() {
+        assertEquals(BigInteger.ONE, Math.pow10(0));
+        assertEquals(BigInteger.TEN.pow(36), Math.pow10(36));
+        assertEquals(BigInteger.TEN.pow(37), Math.pow10(37));
+    }
+
+    @Test
+    public void pow10_negativeExponent() {
+        // Same as the pow loop it replaced, which returns one for non positive exponents
+        assertEquals(Math.pow(BigInteger.TEN, -1), Math.pow10(-1));
+        assertEquals(BigInteger.ONE, Math.pow10(-1));
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2023-2023 Balanced.network.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package network.balanced.score.lib.test.benchmark;
+
+import network.balanced.score.lib.test.mock.MockBalanced;
+import network.balanced.score.lib.test.mock.MockContract;
+import org.json.JSONObject;
+import org.mockito.MockSettings;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import score.ArrayDB;
+import score.BranchDB;
+import score.Context;
+import score.DictDB;
+import score.VarDB;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+
+/**
+ * Counts storage reads, storage writes and calls to mocked contracts made by a contract under test. Every DB created
+ * through {@link Context} while the recorder is open is wrapped in a counting proxy. Counters are static since
+ * contracts keep their DBs in static fields, which outlive a single recorder.
+ */
+public class CostRecorder implements AutoCloseable {
+    private static final Set<String> READS = Set.of("get", "getOrDefault", "size");
+    private static final Set<String> WRITES = Set.of("set", "add", "pop", "removeLast");
+    private static final List<Class<?>> DB_TYPES = List.of(VarDB.class, DictDB.class, BranchDB.class, ArrayDB.class);
+
+    private static boolean recording = false;
+    private static long reads = 0;
+    private static long writes = 0;
+    // Shared so that hashes are not reused by later recorders, per-transaction caches are static as well
+    private static final Random random = new Random(0);
+
+    private final MockedStatic<Context> contextMock;
+    private final boolean ownsContextMock;
+    private final List<Object> contracts = new ArrayList<>();
+    private final String outputFile;
+    private byte[] transactionHash;
+
+    public CostRecorder() {
+        this(Mockito.mockStatic(Context.class, Mockito.CALLS_REAL_METHODS), true);
+    }
+
+    /**
+     * Records through a static mock of {@link Context} opened by the test, which is left open when the recorder is
+     * closed. Its transaction hash answer is replaced by the one of the recorder.
+     */
+    public CostRecorder(MockedStatic<Context> contextMock) {
+        this(contextMock, false);
+    }
+
+    private CostRecorder(MockedStatic<Context> contextMock, boolean ownsContextMock) {
+        this.contextMock = contextMock;
+        this.ownsContextMock = ownsContextMock;
+        outputFile = System.getProperty("benchmark.output");
+        contextMock.when(() -> Context.newVarDB(anyString(), any())).thenAnswer(i -> wrap(i.callRealMethod()));
+        contextMock.when(() -> Context.newDictDB(anyString(), any())).thenAnswer(i -> wrap(i.callRealMethod()));
+        contextMock.when(() -> Context.newBranchDB(anyString(), any())).thenAnswer(i -> wrap(i.callRealMethod()));
+        contextMock.when(() -> Context.newArrayDB(anyString(), any())).thenAnswer(i -> wrap(i.callRealMethod()));
+        contextMock.when(Context::getTransactionHash).thenAnswer(i -> transactionHash);
+    }
+
+    public void trackContracts(MockBalanced mockBalanced) {
+        for (Field field : MockBalanced.class.getFields()) {
+            if (!MockContract.class.isAssignableFrom(field.getType())) {
+                continue;
+            }
+
+            try {
+                MockContract<?> contract = (MockContract<?>) field.get(mockBalanced);
+                trackContract(contract);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    public void trackContract(MockContract<?> contract) {
+        contracts.add(contract.mock);
+    }
+
+    /**
+     * Measures a transaction, which gets its own transaction hash so that per-transaction caches behave as on chain.
+     */
+    public Cost measureTransaction(String operation, Runnable action) {
+        transactionHash = new byte[32];
+        random.nextBytes(transactionHash);
+        try {
+            return measure(operation, action);
+        } finally {
+            transactionHash = null;
+        }
+    }
+
+    /**
+     * Measures a readonly call, which has no transaction hash.
+     */
+    public Cost measureCall(String operation, Runnable action) {
+        return measure(operation, action);
+    }
+
+    private Cost measure(String operation, Runnable action) {
+        long callsBefore = countCalls();
+        reads = 0;
+        writes = 0;
+        recording = true;
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            recording = false;
+        }
+
+        Cost cost = new Cost();
+        cost.operation = operation;
+        cost.nanos = System.nanoTime() - start;
+        cost.reads = reads;
+        cost.writes = writes;
+        cost.calls = countCalls() - callsBefore;
+        return cost;
+    }
+
+    public void report(Cost cost, Map<String, Object> parameters) {
+        JSONObject json = new JSONObject();
+        json.put("operation", cost.operation);
+        json.put("storageReads", cost.reads);
+        json.put("storageWrites", cost.writes);
+        json.put("contractCalls", cost.calls);
+        json.put("wallTimeNanos", cost.nanos);
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            json.put(parameter.getKey(), parameter.getValue());
+        }
+
+        String line = json.toString();
+        System.out.println(line);
+        if (outputFile == null) {
+            return;
+        }
+
+        try (FileWriter writer = new FileWriter(outputFile, true)) {
+            writer.write(line + System.lineSeparator());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownsContextMock) {
+            contextMock.close();
+        }
+    }
+
+    private long countCalls() {
+        long calls = 0;
+        for (Object contract : contracts) {
+            calls += Mockito.mockingDetails(contract).getInvocations().size();
+        }
+
+        return calls;
+    }
+
+    private static Object wrap(Object db) {
+        List<Class<?>> interfaces = new ArrayList<>();
+        for (Class<?> type : DB_TYPES) {
+            if (type.isInstance(db)) {
+                interfaces.add(type);
+            }
+        }
+
+        if (interfaces.isEmpty()) {
+            return db;
+        }
+
+        MockSettings settings = Mockito.withSettings();
+        if (interfaces.size() > 1) {
+            settings.extraInterfaces(interfaces.subList(1, interfaces.size()).toArray(new Class<?>[0]));
+        }
+
+        return Mockito.mock(interfaces.get(0), settings
+                .defaultAnswer(invocation -> {
+                    String method = invocation.getMethod().getName();
+                    if (recording && READS.contains(method)) {
+                        reads++;
+                    } else if (recording && WRITES.contains(method)) {
+                        writes++;
+                    }
+
+                    try {
+                        return wrap(invocation.getMethod().invoke(db, invocation.getArguments()));
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }));
+    }
+
+    public static class Cost {
+        public String operation;
+        public long reads;
+        public long writes;
+        public long calls;
+        public long nanos;
+    }
+}
@@ -31,7 +31,7 @@ import java.util.Map;
 import static network.balanced.score.lib.utils.Check.*;
 import static network.balanced.score.lib.utils.Constants.EXA;
 import static network.balanced.score.lib.utils.Constants.MICRO_SECONDS_IN_A_DAY;
-import static network.balanced.score.lib.utils.Math.pow;
+import static network.balanced.score.lib.utils.Math.pow10;
 import static network.balanced.score.tokens.balancedtoken.Constants.*;
 
 public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
@@ -259,7 +259,7 @@ public class BalancedTokenImpl extends IRC2Burnable implements BalancedToken {
         only(governance);
         Context.require(_amount.compareTo(BigInteger.ZERO) >= 0, TAG + ": Amount cannot be less than zero.");
 
-        BigInteger totalAmount = _amount.multiply(pow(BigInteger.TEN, decimals().intValue()));
+        BigInteger totalAmount = _amount.multiply(pow10(decimals().intValue()));
         this.minimumStake.set(totalAmount);
     }
 
@@ -21,11 +21,11 @@ import network.balanced.score.lib.utils.Names;
 import java.math.BigInteger;
 
 import static network.balanced.score.lib.utils.Constants.*;
-import static network.balanced.score.lib.utils.Math.pow;
+import static network.balanced.score.lib.utils.Math.pow10;
 
 public interface Constants {
 
-    BigInteger INITIAL_PRICE_ESTIMATE = pow(BigInteger.TEN, 17); //# loop
+    BigInteger INITIAL_PRICE_ESTIMATE = pow10(17); //# loop
     BigInteger MIN_UPDATE_TIME = BigInteger.TWO.multiply(MICRO_SECONDS_IN_A_SECOND); //2 seconds
     BigInteger MINIMUM_STAKE_AMOUNT = EXA;
     BigInteger DEFAULT_UNSTAKING_PERIOD = BigInteger.valueOf(3).multiply(MICRO_SECONDS_IN_A_DAY);
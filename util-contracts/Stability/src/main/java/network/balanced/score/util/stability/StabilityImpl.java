@@ -29,7 +29,7 @@ import java.util.List;
 import static network.balanced.score.lib.utils.Check.isContract;
 import static network.balanced.score.lib.utils.Check.onlyOwner;
 import static network.balanced.score.lib.utils.Constants.EXA;
-import static network.balanced.score.lib.utils.Math.pow;
+import static network.balanced.score.lib.utils.Math.pow10;
 
 public class StabilityImpl implements Stability {
 
@@ -146,7 +146,7 @@ public class StabilityImpl implements Stability {
 
         int tokenDecimal = ((BigInteger) Context.call(_address, "decimals")).intValue();
         decimals.set(_address, tokenDecimal);
-        BigInteger actualLimit = _limit.multiply(pow(BigInteger.TEN, tokenDecimal));
+        BigInteger actualLimit = _limit.multiply(pow10(tokenDecimal));
         tokenLimits.set(_address, actualLimit);
         acceptedTokens.add(_address);
     }
@@ -158,7 +158,7 @@ public class StabilityImpl implements Stability {
         Context.require(tokenLimits.get(_address) != null, TAG + ": Address not white listed previously");
 
         int tokenDecimal = decimals.get(_address);
-        BigInteger actualLimit = _limit.multiply(pow(BigInteger.TEN, tokenDecimal));
+        BigInteger actualLimit = _limit.multiply(pow10(tokenDecimal));
         tokenLimits.set(_address, actualLimit);
     }
 
@@ -179,7 +179,7 @@ public class StabilityImpl implements Stability {
 
     private void mintBnusd(BigInteger _amount, Address _asset, Address _user, Address bnusdAddress) {
         int assetInDecimals = decimals.get(_asset);
-        BigInteger equivalentBnusd = (_amount.multiply(ONE_BNUSD)).divide(pow(BigInteger.TEN, assetInDecimals));
+        BigInteger equivalentBnusd = (_amount.multiply(ONE_BNUSD)).divide(pow10(assetInDecimals));
         Context.require(equivalentBnusd.compareTo(BigInteger.ZERO) > 0, TAG + ": Bnusd amount must be greater than " +
                 "zero");
         BigInteger fee = (feeIn.get().multiply(equivalentBnusd)).divide(HUNDRED_PERCENTAGE);
@@ -201,7 +201,7 @@ public class StabilityImpl implements Stability {
         Context.require(fee.compareTo(BigInteger.ZERO) > 0, TAG + ": Fee must be greater than zero");
 
         BigInteger bnusdToConvert = _amount.subtract(fee);
-        BigInteger equivalentAssetAmount = (bnusdToConvert.multiply(pow(BigInteger.TEN, assetOutDecimals)))
+        BigInteger equivalentAssetAmount = (bnusdToConvert.multiply(pow10(assetOutDecimals)))
                 .divide(ONE_BNUSD);
         Context.require(equivalentAssetAmount.compareTo(BigInteger.ZERO) > 0, TAG + ": Asset to return can't be zero " +
                 "or less");